@@ -0,0 +1,116 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 封閉迴圈的 HTTP 負載產生器：固定數量的連線各自連續送出 POST 請求，統計暖機後的吞吐量與延遲百分位數。
+ * 以 JDK 11 以上的單檔原始碼模式執行，不需要建置：
+ *
+ *   java scripts/LoadTest.java URL [連線數=200] [秒數=20] [暖機秒數=5]
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: java scripts/LoadTest.java URL [connections] [seconds] [warmup-seconds]");
+            System.exit(1);
+        }
+        URI uri = URI.create(args[0]);
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        long warmupSeconds = args.length > 3 ? Long.parseLong(args[3]) : 5;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(60))
+                .build();
+
+        long start = System.nanoTime();
+        Run run = new Run(client, request, start + TimeUnit.SECONDS.toNanos(warmupSeconds),
+                start + TimeUnit.SECONDS.toNanos(warmupSeconds + seconds), connections);
+        for (int i = 0; i < connections; i++) {
+            run.next();
+        }
+        run.done.await();
+        run.report(connections, seconds);
+    }
+
+    private static final class Run {
+        private final HttpClient client;
+        private final HttpRequest request;
+        private final long measureFrom;
+        private final long end;
+        private final CountDownLatch done;
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private long[] latencies = new long[1 << 16];
+        private int count;
+
+        Run(HttpClient client, HttpRequest request, long measureFrom, long end, int connections) {
+            this.client = client;
+            this.request = request;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            this.done = new CountDownLatch(connections);
+        }
+
+        /**
+         * 每條連線在上一個回應完成後才送出下一個請求，期限到時結束。
+         */
+        void next() {
+            long sent = System.nanoTime();
+            if (sent >= end) {
+                done.countDown();
+                return;
+            }
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                long received = System.nanoTime();
+                if (sent >= measureFrom && received < end) {
+                    if (failure != null) {
+                        errors.incrementAndGet();
+                    } else if (response.statusCode() >= 300) {
+                        rejected.incrementAndGet();
+                    } else {
+                        record(received - sent);
+                    }
+                }
+                next();
+            });
+        }
+
+        synchronized void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        synchronized void report(int connections, long seconds) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            System.out.printf("connections=%d ok=%d non-2xx=%d errors=%d throughput=%.1f req/s"
+                            + " p50=%.1f ms p90=%.1f ms p99=%.1f ms max=%.1f ms%n",
+                    connections, count, rejected.get(), errors.get(), (double) count / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 1.0));
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+#!/usr/bin/env bash
+# 以 AppCDS 封存檔縮短啟動時間（需要 JDK 13 以上，且訓練與執行必須使用同一個 JDK）。
+#
+#   scripts/appcds.sh train [參數...]  展開 jar 並執行一次訓練，產生 target/cds/app.jsa
+#   scripts/appcds.sh run [參數...]    以封存檔啟動
+#   scripts/appcds.sh time [參數...]   以封存檔啟動，輸出第一個請求成功前經過的毫秒數後結束
+#
+# 預設 profile 為 prod,faststart，可用 PROFILES 環境變數覆寫；其餘參數直接傳給應用程式。
+# 就緒判斷使用 PROBE_PATH（預設 /api/coindesk/latest/stats）回應 200。
+set -e
+
+cd "$(dirname "$0")/.."
+ROOT=$(pwd)
+JAR=${JAR:-target/coin-api-handler-1.0-SNAPSHOT.jar}
+CDS_DIR=${CDS_DIR:-target/cds}
+PROFILES=${PROFILES:-prod,faststart}
+PORT=${PORT:-8080}
+MAIN=com.vinskao.CoinApiHandlerApplication
+PROBE="http://localhost:$PORT${PROBE_PATH:-/api/coindesk/latest/stats}"
+
+# 封存檔只接受 jar 組成的 classpath，且執行時的順序必須與訓練時相同
+classpath() {
+    printf '%s' "$CDS_DIR/application.jar"
+    for lib in $(ls "$CDS_DIR"/BOOT-INF/lib/*.jar | sort); do
+        printf ':%s' "$lib"
+    done
+}
+
+start() {
+    java "$@" -cp "$(classpath)" $MAIN --spring.profiles.active="$PROFILES" --server.port="$PORT" "${APP_ARGS[@]}" &
+    PID=$!
+}
+
+wait_ready() {
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' -X POST "$PROBE")" = "200" ]; do
+        kill -0 "$PID" 2>/dev/null || { echo "application exited before it was ready" >&2; exit 1; }
+        sleep 0.05
+    done
+}
+
+command=$1
+[ $# -gt 0 ] && shift
+APP_ARGS=("$@")
+
+case "$command" in
+    train)
+        rm -rf "$CDS_DIR"
+        mkdir -p "$CDS_DIR"
+        (cd "$CDS_DIR" && jar xf "$ROOT/$JAR")
+        jar cf "$CDS_DIR/application.jar" -C "$CDS_DIR/BOOT-INF/classes" .
+        start -XX:ArchiveClassesAtExit="$CDS_DIR/app.jsa" -Xlog:cds=error
+        wait_ready
+        # 讓背景預熱與 Swagger 掃描載入的類別也進入封存檔；JVM 正常結束時才會寫出封存檔
+        curl -s -o /dev/null -X POST "http://localhost:$PORT/api/coindesk/latest/USD"
+        sleep "${TRAIN_SECONDS:-5}"
+        kill "$PID"
+        wait "$PID" || true
+        echo "AppCDS archive written to $CDS_DIR/app.jsa"
+        ;;
+    run)
+        exec java -XX:SharedArchiveFile="$CDS_DIR/app.jsa" -Xlog:cds=error -cp "$(classpath)" $MAIN \
+            --spring.profiles.active="$PROFILES" --server.port="$PORT" "$@"
+        ;;
+    time)
+        begin=$(date +%s%N)
+        start -XX:SharedArchiveFile="$CDS_DIR/app.jsa" -Xlog:cds=error
+        wait_ready
+        end=$(date +%s%N)
+        echo "first request after $(( (end - begin) / 1000000 )) ms"
+        kill "$PID"
+        wait "$PID" || true
+        ;;
+    *)
+        sed -n '2,9p' "$0"
+        exit 1
+        ;;
+esac
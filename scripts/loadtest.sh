@@ -0,0 +1,41 @@
+#!/usr/bin/env bash
+# 比較請求執行模式（coindesk.web.execution-mode）在相同負載下的吞吐量與延遲。
+#
+#   scripts/loadtest.sh [參數...]
+#
+# 依序以 MODES（預設 "PLATFORM ASYNC"，JDK 21 以上可加入 VIRTUAL）中的每個模式啟動應用程式，
+# 對 LOAD_PATH 分別以 CONNECTIONS 中的並行連線數施加 DURATION 秒負載（前 WARMUP 秒不計），結果輸出至標準輸出。
+# 預設 profile 為 prod，可用 PROFILES 環境變數覆寫；其餘參數直接傳給應用程式，例如 --coindesk.data-dir=/tmp/coindesk。
+set -e
+
+cd "$(dirname "$0")/.."
+JAR=${JAR:-target/coin-api-handler-1.0-SNAPSHOT.jar}
+PROFILES=${PROFILES:-prod}
+PORT=${PORT:-8080}
+MODES=${MODES:-PLATFORM ASYNC}
+CONNECTIONS=${CONNECTIONS:-200 2000}
+DURATION=${DURATION:-20}
+WARMUP=${WARMUP:-5}
+LOAD_PATH=${LOAD_PATH:-/api/coindesk/page?size=20}
+PROBE="http://localhost:$PORT/api/coindesk/latest/stats"
+
+wait_ready() {
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' -X POST "$PROBE")" = "200" ]; do
+        kill -0 "$PID" 2>/dev/null || { echo "application exited before it was ready, see $LOG" >&2; exit 1; }
+        sleep 0.2
+    done
+}
+
+for mode in $MODES; do
+    LOG=target/loadtest-$mode.log
+    java $JAVA_OPTS -jar "$JAR" --spring.profiles.active="$PROFILES" --server.port="$PORT" \
+        --coindesk.web.execution-mode="$mode" "$@" > "$LOG" 2>&1 &
+    PID=$!
+    wait_ready
+    for connections in $CONNECTIONS; do
+        printf '%-8s ' "$mode"
+        java scripts/LoadTest.java "http://localhost:$PORT$LOAD_PATH" "$connections" "$DURATION" "$WARMUP"
+    done
+    kill "$PID"
+    wait "$PID" || true
+done
@@ -0,0 +1,73 @@
+package com.vinskao;
+
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+
+/**
+ * 效能測試共用工具：本機 CoinDesk API 替身與不含 Web 層的應用程式啟動。
+ */
+public final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * 讀取 CoinDesk API 回應範本。
+     */
+    public static byte[] stubPayload() {
+        try (InputStream in = BenchmarkSupport.class.getResourceAsStream("/coindesk-stub.json")) {
+            return StreamUtils.copyToByteArray(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 啟動於隨機埠回應固定內容的本機 HTTP 伺服器，取代真實的 CoinDesk API。
+     */
+    public static HttpServer startStub() {
+        byte[] payload = stubPayload();
+        // 避免 Nagle 與 delayed ACK 使每次請求多出數十毫秒
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/coindesk.json", exchange -> {
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, payload.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(payload);
+                }
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static String stubUrl(HttpServer server) {
+        return "http://localhost:" + server.getAddress().getPort() + "/coindesk.json";
+    }
+
+    /**
+     * 以記憶體 H2 啟動應用程式，關閉背景擷取與 SQL 日誌。
+     */
+    public static ConfigurableApplicationContext startApplication(String apiUrl) {
+        return new SpringApplicationBuilder(CoinApiHandlerApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--coindesk.api.url=" + apiUrl,
+                        "--coindesk.ingest.enabled=false",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN");
+    }
+}
@@ -0,0 +1,98 @@
+package com.vinskao;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 啟動時間效能測試：由建立 Spring 應用程式到第一個 /latest 請求成功回應所需的時間。
+ * 每個 fork 只量測一次冷啟動；資料庫預先寫入一筆幣價，驗證擷取前即可提供上次已知的幣價，量測包含背景預熱的時間。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(3)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class StartupBenchmark {
+
+    @Param({"prod", "prod,faststart"})
+    public String profiles;
+
+    private Path dataDir;
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("coindesk-startup");
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:file:" + dataDir.resolve("coindesk"), "sa", "password");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        new JdbcTemplate(dataSource).update("INSERT INTO coin_desk (id, currency_type, rate_scaled, updated_iso)"
+                + " VALUES (1, 'USD', 577562984, '2024-09-02T07:07:20+00:00')");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (context != null) {
+            context.close();
+        }
+        FileSystemUtils.deleteRecursively(dataDir);
+    }
+
+    @Benchmark
+    public int timeToFirstRequest() throws IOException {
+        context = new SpringApplicationBuilder(CoinApiHandlerApplication.class)
+                .run("--spring.profiles.active=" + profiles,
+                        "--coindesk.data-dir=" + dataDir,
+                        "--server.port=0",
+                        "--coindesk.ingest.enabled=false",
+                        "--coindesk.retention.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.apache.catalina.loader=ERROR");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        // 快取於啟動完成後在背景預熱，完成前 /latest 回應 404
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        int status;
+        while ((status = postLatest(port)) == 404 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        if (status != 200) {
+            throw new IllegalStateException("Unexpected status " + status);
+        }
+        return status;
+    }
+
+    private static int postLatest(int port) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)
+                new URL("http://localhost:" + port + "/api/coindesk/latest/USD").openConnection();
+        connection.setRequestMethod("POST");
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+}
@@ -0,0 +1,114 @@
+package com.vinskao.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.domain.CoinDeskSource;
+import com.vinskao.dto.CoinDeskSummary;
+import com.vinskao.mapper.CoinDeskMapper;
+import com.vinskao.enums.CurrencyType;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /api/coindesk/all 回應序列化的效能測試，比較完整實體（List&lt;CoinDesk&gt;）與精簡檢視。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CoinDeskSerializationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private ObjectMapper objectMapper;
+    private List<CoinDesk> coinDesks;
+    private ObjectMapper summaryObjectMapper;
+    private List<CoinDeskSummary> summaries;
+    private final CountingOutputStream out = new CountingOutputStream();
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        CoinDeskSource source = new CoinDeskSource(1L, "Bitcoin",
+                "This data was produced from the CoinDesk Bitcoin Price Index (USD).");
+        LocalDateTime now = LocalDateTime.now();
+        coinDesks = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            CoinDesk coinDesk = new CoinDesk();
+            coinDesk.setId((long) i);
+            coinDesk.setUpdated("Sep 2, 2024 07:07:20 UTC");
+            coinDesk.setUpdatedISO("2024-09-02T07:07:20+00:00");
+            coinDesk.setUpdateduk("Sep 2, 2024 at 08:07 BST");
+            coinDesk.setSource(source);
+            coinDesk.setCurrencyType(CurrencyType.values()[i % CurrencyType.values().length]);
+            coinDesk.setRateScaled(577562984L + i);
+            coinDesk.setCreatedAt(now);
+            coinDesk.setUpdatedAt(now);
+            coinDesks.add(coinDesk);
+        }
+        summaryObjectMapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(new BlackbirdModule()).build();
+        CoinDeskMapper mapper = Mappers.getMapper(CoinDeskMapper.class);
+        summaries = new ArrayList<>(rows);
+        for (CoinDesk coinDesk : coinDesks) {
+            summaries.add(mapper.toSummary(coinDesk));
+        }
+    }
+
+    @Benchmark
+    public long serializeAll() throws IOException {
+        objectMapper.writeValue(out, coinDesks);
+        return out.count;
+    }
+
+    /**
+     * 目前 /all 實際輸出的精簡檢視，並啟用 Blackbird。
+     */
+    @Benchmark
+    public long serializeSummaries() throws IOException {
+        summaryObjectMapper.writeValue(out, summaries);
+        return out.count;
+    }
+
+    /**
+     * 只計算位元組數的輸出，排除 I/O 成本。
+     */
+    static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.vinskao.repository;
+
+import com.sun.net.httpserver.HttpServer;
+import com.vinskao.BenchmarkSupport;
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.enums.CurrencyType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 以記憶體 H2 測試實體批次寫入與 findAll 的效能。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CoinDeskRepositoryBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private HttpServer stub;
+    private ConfigurableApplicationContext context;
+    private CoinDeskRepository coinDeskRepository;
+
+    @Setup
+    public void setUp() {
+        stub = BenchmarkSupport.startStub();
+        context = BenchmarkSupport.startApplication(BenchmarkSupport.stubUrl(stub));
+        coinDeskRepository = context.getBean(CoinDeskRepository.class);
+        coinDeskRepository.deleteAllInBatch();
+        List<CoinDesk> batch = new ArrayList<>(1000);
+        for (int i = 0; i < rows; i++) {
+            batch.add(createCoinDesk(CurrencyType.values()[i % CurrencyType.values().length]));
+            if (batch.size() == 1000) {
+                coinDeskRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        coinDeskRepository.saveAll(batch);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        stub.stop(0);
+    }
+
+    /**
+     * 一次擷取的三筆資料以單一交易批次寫入。
+     */
+    @Benchmark
+    public List<CoinDesk> saveIngestBatch() {
+        return coinDeskRepository.saveAll(Arrays.asList(
+                createCoinDesk(CurrencyType.USD),
+                createCoinDesk(CurrencyType.GBP),
+                createCoinDesk(CurrencyType.EUR)));
+    }
+
+    @Benchmark
+    public List<CoinDesk> findAll() {
+        return coinDeskRepository.findAll();
+    }
+
+    private static CoinDesk createCoinDesk(CurrencyType currencyType) {
+        CoinDesk coinDesk = new CoinDesk();
+        coinDesk.setCurrencyType(currencyType);
+        coinDesk.setUpdatedISO("2024-09-02T07:07:20+00:00");
+        coinDesk.setRateScaled(577562984L);
+        coinDesk.setCreatedAt(LocalDateTime.now());
+        coinDesk.setUpdatedAt(coinDesk.getCreatedAt());
+        return coinDesk;
+    }
+}
@@ -0,0 +1,67 @@
+package com.vinskao.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.vinskao.BenchmarkSupport;
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.dto.CoinDeskResponse;
+import com.vinskao.enums.CurrencyType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 擷取流程的效能測試：回應轉換為實體，以及對本機 API 替身的完整擷取。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CoinDeskIngestBenchmark {
+
+    private HttpServer stub;
+    private ConfigurableApplicationContext context;
+    private CoinDeskService coinDeskService;
+    private CoinDeskResponse response;
+
+    @Setup
+    public void setUp() throws IOException {
+        stub = BenchmarkSupport.startStub();
+        context = BenchmarkSupport.startApplication(BenchmarkSupport.stubUrl(stub));
+        coinDeskService = context.getBean(CoinDeskService.class);
+        response = context.getBean(ObjectMapper.class).readValue(BenchmarkSupport.stubPayload(), CoinDeskResponse.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        stub.stop(0);
+    }
+
+    @Benchmark
+    public CoinDesk createCoinDeskFromResponse() {
+        return coinDeskService.createCoinDeskFromResponse(response, CurrencyType.USD, response.getBpi().get("USD"));
+    }
+
+    /**
+     * 擷取、解析與變更偵測；首次之後報價不變，因此不會寫入資料庫。
+     */
+    @Benchmark
+    public CoinDesk fetchAndSaveFromApi() {
+        return coinDeskService.fetchAndSaveFromApi();
+    }
+}
@@ -0,0 +1,104 @@
+package com.vinskao.service;
+
+import com.sun.net.httpserver.HttpServer;
+import com.vinskao.BenchmarkSupport;
+import com.vinskao.enums.CurrencyType;
+import com.vinskao.repository.CoinDeskRollupRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * as-of 查詢的效能測試：三年的分鐘彙總加上七日的原始資料（約 158 萬筆），
+ * 比較記憶體時間索引與直接查詢資料庫索引。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RateHistoryIndexBenchmark {
+    private static final int YEARS = 3;
+    private static final int RAW_DAYS = 7;
+
+    private HttpServer stub;
+    private ConfigurableApplicationContext context;
+    private RateHistoryIndex rateHistoryIndex;
+    private CoinDeskRollupRepository coinDeskRollupRepository;
+    private LocalDateTime[] times;
+    private long[] epochSeconds;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        stub = BenchmarkSupport.startStub();
+        context = BenchmarkSupport.startApplication(BenchmarkSupport.stubUrl(stub));
+        rateHistoryIndex = context.getBean(RateHistoryIndex.class);
+        coinDeskRollupRepository = context.getBean(CoinDeskRollupRepository.class);
+
+        LocalDateTime rawFrom = LocalDateTime.now().minusDays(RAW_DAYS).truncatedTo(ChronoUnit.MINUTES);
+        long rawFromSecond = rawFrom.toEpochSecond(ZoneOffset.UTC);
+        int rolledUpMinutes = (YEARS * 365 - RAW_DAYS) * 24 * 60;
+        JdbcTemplate jdbc = new JdbcTemplate(context.getBean(DataSource.class));
+        jdbc.update("INSERT INTO coin_desk_rollup (currency_type, resolution, bucket_start, open_scaled,"
+                + " high_scaled, low_scaled, close_scaled, average_rate, tick_count)"
+                + " SELECT 'USD', 'MINUTE', ? - X * 60, 577562984 + X, 577562984 + X, 577562984 + X, 577562984 + X,"
+                + " 57756.2984, 1 FROM SYSTEM_RANGE(1, ?)", rawFromSecond, rolledUpMinutes);
+        jdbc.update("INSERT INTO coin_desk (id, currency_type, rate_scaled, created_at)"
+                + " SELECT X, 'USD', 577562984 - X, DATEADD('MINUTE', X, CAST(? AS TIMESTAMP)) FROM SYSTEM_RANGE(0, ?)",
+                rawFrom, RAW_DAYS * 24 * 60 - 1);
+        ReflectionTestUtils.setField(rateHistoryIndex, "indexDays", YEARS * 365 + 1);
+        rateHistoryIndex.invalidateAll();
+        rateHistoryIndex.load(CurrencyType.USD);
+
+        Random random = new Random(42);
+        long now = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+        long span = (YEARS * 365L - 1) * 24 * 3600;
+        times = new LocalDateTime[1024];
+        epochSeconds = new long[times.length];
+        for (int i = 0; i < times.length; i++) {
+            epochSeconds[i] = now - (long) (random.nextDouble() * span);
+            times[i] = LocalDateTime.ofEpochSecond(epochSeconds[i], 0, ZoneOffset.UTC);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        stub.stop(0);
+    }
+
+    @Benchmark
+    public RateHistoryIndex.RateTick findInIndex() {
+        return rateHistoryIndex.find(CurrencyType.USD, times[next++ & (times.length - 1)]);
+    }
+
+    /**
+     * 相同時間點以索引範圍外的查詢方式（前一日內的 coin_desk_rollup 主鍵範圍）查詢資料庫。
+     */
+    @Benchmark
+    public List<Object[]> findInDatabase() {
+        long at = epochSeconds[next++ & (times.length - 1)] - 60;
+        return coinDeskRollupRepository.findLastClose("USD", "MINUTE", at - 86400, at);
+    }
+}
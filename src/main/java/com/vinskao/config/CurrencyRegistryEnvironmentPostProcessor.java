@@ -0,0 +1,20 @@
+package com.vinskao.config;
+
+import com.vinskao.enums.CurrencyType;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * 在任何 bean 建立前，將 coindesk.currencies.location 設定帶入 CurrencyType 的幣別清單來源。
+ */
+public class CurrencyRegistryEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        String location = environment.getProperty(CurrencyType.LOCATION_PROPERTY);
+        if (location != null && !location.isEmpty()) {
+            CurrencyType.Registry.setLocation(location);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.vinskao.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * coindesk.web.execution-mode=VIRTUAL 時以虛擬執行緒取代 Tomcat 的請求執行緒池。
+ * ASYNC 模式由 DatabaseExecutor 處理，不需要調整 Tomcat。
+ */
+@Configuration
+public class ExecutionConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "coindesk.web.execution-mode", havingValue = "VIRTUAL")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    /**
+     * 專案以 Java 17 編譯，因此以反射取得 JDK 21 的 Executors.newVirtualThreadPerTaskExecutor。
+     *
+     * @throws IllegalStateException 執行中的 JDK 不支援虛擬執行緒
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("coindesk.web.execution-mode=VIRTUAL requires JDK 21 or later, running on "
+                    + System.getProperty("java.version"));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create a virtual thread executor", e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.vinskao.config;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.enums.CurrencyType;
+import com.vinskao.repository.CoinDeskRepository;
+import com.vinskao.service.CoinDeskCache;
+import com.vinskao.service.IngestChangeDetector;
+import com.vinskao.service.RateHistoryIndex;
+import com.vinskao.service.RateUpdateBroadcaster;
+import com.vinskao.service.SerializedPayloadCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * 自訂 Micrometer 指標：最新幣價快取、資料列數、擷取延遲（ingest lag）、變更偵測計數、推播訂閱者、as-of 索引與預先序列化的回應。
+ * 快照時間與來源斷路器的指標由 CoinDeskIngestScheduler 與 RateSourceAggregator 自行註冊，
+ * 兩者經由 CoinDeskApiClient 依賴 MeterRegistry，無法在此注入。
+ * Repository 呼叫與 HTTP 端點的計時由 Spring Boot Actuator 自動提供。
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Value("${coindesk.metrics.row-count-refresh-ms:30000}")
+    private long rowCountRefreshMs;
+
+    @Bean
+    public MeterBinder coinDeskMetrics(CoinDeskCache coinDeskCache,
+                                       CoinDeskRepository coinDeskRepository,
+                                       IngestChangeDetector ingestChangeDetector,
+                                       RateUpdateBroadcaster rateUpdateBroadcaster,
+                                       RateHistoryIndex rateHistoryIndex,
+                                       SerializedPayloadCache serializedPayloadCache) {
+        RowCount rowCount = new RowCount(coinDeskRepository, rowCountRefreshMs);
+        return registry -> {
+            Gauge.builder("coindesk.cache.size", coinDeskCache, CoinDeskCache::size)
+                    .description("Number of currencies with a cached latest rate")
+                    .register(registry);
+            FunctionCounter.builder("coindesk.cache.hits", coinDeskCache, CoinDeskCache::getHits)
+                    .register(registry);
+            FunctionCounter.builder("coindesk.cache.misses", coinDeskCache, CoinDeskCache::getMisses)
+                    .register(registry);
+            Gauge.builder("coindesk.rows", rowCount, RowCount::get)
+                    .description("Row count of coin_desk, refreshed at most every coindesk.metrics.row-count-refresh-ms")
+                    .register(registry);
+            Gauge.builder("coindesk.ingest.lag", coinDeskCache, MetricsConfig::ingestLagSeconds)
+                    .description("Seconds between now and the newest cached updatedISO")
+                    .baseUnit("seconds")
+                    .register(registry);
+            FunctionCounter.builder("coindesk.ingest.noop", ingestChangeDetector, IngestChangeDetector::getNoOpFetches)
+                    .description("Fetches that persisted nothing")
+                    .register(registry);
+            FunctionCounter.builder("coindesk.ingest.skipped.rows", ingestChangeDetector, IngestChangeDetector::getSkippedRows)
+                    .register(registry);
+            FunctionCounter.builder("coindesk.ingest.written.rows", ingestChangeDetector, IngestChangeDetector::getWrittenRows)
+                    .register(registry);
+            Gauge.builder("coindesk.push.subscribers", rateUpdateBroadcaster, RateUpdateBroadcaster::getSubscriberCount)
+                    .register(registry);
+            FunctionCounter.builder("coindesk.push.dropped", rateUpdateBroadcaster, RateUpdateBroadcaster::getDropped)
+                    .description("Rate updates dropped from slow subscribers' queues")
+                    .register(registry);
+            FunctionCounter.builder("coindesk.push.evicted", rateUpdateBroadcaster, RateUpdateBroadcaster::getEvicted)
+                    .description("SSE subscribers disconnected after a send exceeded the send timeout")
+                    .register(registry);
+            Gauge.builder("coindesk.asof.index.size", rateHistoryIndex, RateHistoryIndex::size)
+                    .description("Historical rates held in the as-of index")
+                    .register(registry);
+            FunctionCounter.builder("coindesk.asof.lookups", rateHistoryIndex, RateHistoryIndex::getIndexHits)
+                    .tag("source", "index")
+                    .register(registry);
+            FunctionCounter.builder("coindesk.asof.lookups", rateHistoryIndex, RateHistoryIndex::getDatabaseLookups)
+                    .tag("source", "database")
+                    .register(registry);
+            FunctionCounter.builder("coindesk.payload.hits", serializedPayloadCache, SerializedPayloadCache::getHits)
+                    .description("Reads served from a pre-serialized response")
+                    .register(registry);
+            FunctionCounter.builder("coindesk.payload.builds", serializedPayloadCache, SerializedPayloadCache::getBuilds)
+                    .description("Responses queried and serialized after a write")
+                    .register(registry);
+            Gauge.builder("coindesk.payload.bytes", serializedPayloadCache, SerializedPayloadCache::getBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+
+    static double ingestLagSeconds(CoinDeskCache coinDeskCache) {
+        long newestEpochSecond = Long.MIN_VALUE;
+        for (CurrencyType currencyType : CurrencyType.values()) {
+            CoinDesk coinDesk = coinDeskCache.peek(currencyType);
+            if (coinDesk == null || coinDesk.getUpdatedISO() == null) {
+                continue;
+            }
+            try {
+                newestEpochSecond = Math.max(newestEpochSecond,
+                        OffsetDateTime.parse(coinDesk.getUpdatedISO()).toEpochSecond());
+            } catch (DateTimeParseException e) {
+                // 無法解析的時間不列入計算
+            }
+        }
+        if (newestEpochSecond == Long.MIN_VALUE) {
+            return Double.NaN;
+        }
+        return System.currentTimeMillis() / 1000.0 - newestEpochSecond;
+    }
+
+    /**
+     * 限制 COUNT(*) 查詢頻率的資料列數。
+     */
+    static final class RowCount {
+        private final CoinDeskRepository coinDeskRepository;
+        private final long refreshMs;
+        private volatile long value = -1;
+        private volatile long refreshedAt;
+
+        RowCount(CoinDeskRepository coinDeskRepository, long refreshMs) {
+            this.coinDeskRepository = coinDeskRepository;
+            this.refreshMs = refreshMs;
+        }
+
+        double get() {
+            long now = System.currentTimeMillis();
+            if (value < 0 || now - refreshedAt >= refreshMs) {
+                value = coinDeskRepository.count();
+                refreshedAt = now;
+            }
+            return value;
+        }
+    }
+}
@@ -1,28 +1,88 @@
 package com.vinskao.config;
 
+import com.fasterxml.classmate.TypeResolver;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
+import springfox.documentation.schema.AlternateTypeRules;
+import springfox.documentation.schema.WildcardType;
 import springfox.documentation.service.ApiInfo;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
+import springfox.documentation.spring.web.plugins.DocumentationPluginsBootstrapper;
+import springfox.documentation.spring.web.plugins.WebMvcRequestHandlerProvider;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @Configuration
 @EnableSwagger2
 public class SwaggerConfig {
     @Bean
-    public Docket api() {
+    public Docket api(TypeResolver typeResolver) {
         return new Docket(DocumentationType.SWAGGER_2)
                 .select()
                 .apis(RequestHandlerSelectors.basePackage("com.vinskao.controller"))
                 .paths(PathSelectors.any())
                 .build()
+                // 存取資料庫的端點回傳 CompletableFuture<ResponseEntity<T>>，文件中以 T 表示
+                .alternateTypeRules(AlternateTypeRules.newRule(
+                        typeResolver.resolve(CompletableFuture.class,
+                                typeResolver.resolve(ResponseEntity.class, WildcardType.class)),
+                        typeResolver.resolve(WildcardType.class)))
                 .apiInfo(apiInfo());
     }
 
+    /**
+     * Actuator 端點使用 PathPatternParser 註冊，Springfox 2.x 無法處理而導致啟動失敗，
+     * 因此只保留使用 AntPathMatcher 的 handler mapping 給 Springfox 掃描。
+     */
+    @Bean
+    public static BeanPostProcessor springfoxHandlerProviderBeanPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof WebMvcRequestHandlerProvider) {
+                    Field field = ReflectionUtils.findField(bean.getClass(), "handlerMappings");
+                    ReflectionUtils.makeAccessible(field);
+                    List<RequestMappingInfoHandlerMapping> mappings =
+                            (List<RequestMappingInfoHandlerMapping>) ReflectionUtils.getField(field, bean);
+                    mappings.removeIf(mapping -> mapping.getPatternParser() != null);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * springfox.documentation.auto-startup=false 時（faststart profile）不在啟動流程中掃描 API，
+     * 改於應用程式啟動完成後由背景執行緒掃描，掃描完成前 Swagger 文件為空。
+     */
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> deferredSwaggerScan(
+            ObjectProvider<DocumentationPluginsBootstrapper> bootstrapper) {
+        return event -> bootstrapper.ifAvailable(plugins -> {
+            if (!plugins.isRunning()) {
+                Thread thread = new Thread(plugins::start, "swagger-scan");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        });
+    }
+
     private ApiInfo apiInfo() {
         return new ApiInfoBuilder()
                 .title("CoinDesk API")
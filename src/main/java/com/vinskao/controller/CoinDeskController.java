@@ -1,49 +1,300 @@
 package com.vinskao.controller;
 
 import com.vinskao.domain.CoinDesk;
+import com.vinskao.dto.ConversionResult;
+import com.vinskao.dto.CoinDeskPage;
+import com.vinskao.dto.CoinDeskPatch;
+import com.vinskao.dto.CoinDeskSummary;
+import com.vinskao.dto.RateCandle;
+import com.vinskao.dto.SerializedPayload;
+import com.vinskao.enums.CandleInterval;
+import com.vinskao.enums.CurrencyType;
+import com.vinskao.enums.HistoryFormat;
+import com.vinskao.service.BatchConversionService;
+import com.vinskao.service.CoinDeskIngestScheduler;
 import com.vinskao.service.CoinDeskService;
+import com.vinskao.service.CoinDeskTransferService;
+import com.vinskao.service.CurrencyConversionService;
+import com.vinskao.service.DatabaseExecutor;
+import com.vinskao.service.RateUpdateBroadcaster;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * 存取資料庫的端點回傳 CompletableFuture，由 DatabaseExecutor 依 coindesk.web.execution-mode 決定執行緒；
+ * 最新幣價、換算與統計只讀取記憶體，串流輸出的端點直接寫入回應，皆在請求執行緒上同步執行。
+ */
 @Api(tags = "CoinDesk API")
 @RestController
 @RequestMapping("/api/coindesk")
 public class CoinDeskController {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
     @Autowired
     private CoinDeskService coinDeskService;
 
+    @Autowired
+    private CurrencyConversionService currencyConversionService;
+
+    @Autowired
+    private BatchConversionService batchConversionService;
+
+    @Autowired
+    private RateUpdateBroadcaster rateUpdateBroadcaster;
+
+    @Autowired
+    private CoinDeskTransferService coinDeskTransferService;
+
+    @Autowired
+    private CoinDeskIngestScheduler coinDeskIngestScheduler;
+
+    @Autowired
+    private DatabaseExecutor databaseExecutor;
+
     @ApiOperation("創建幣價資訊")
     @PostMapping("/create")
-    public ResponseEntity<CoinDesk> createCoinDesk(@RequestBody CoinDesk coinDesk) {
-        return ResponseEntity.ok(coinDeskService.saveCoinDesk(coinDesk));
+    public CompletableFuture<ResponseEntity<CoinDesk>> createCoinDesk(
+            @RequestBody CoinDesk coinDesk,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return databaseExecutor.supply(() -> ResponseEntity.ok(coinDeskService.saveCoinDesk(coinDesk, idempotencyKey)));
     }
 
     @ApiOperation("讀取幣價資訊")
     @PostMapping("/read/{id}")
-    public ResponseEntity<CoinDesk> readCoinDesk(@PathVariable Long id) {
-        return ResponseEntity.ok(coinDeskService.getCoinDeskById(id));
+    public CompletableFuture<ResponseEntity<CoinDesk>> readCoinDesk(@PathVariable Long id) {
+        return databaseExecutor.supply(() -> ResponseEntity.ok(coinDeskService.getCoinDeskById(id)));
     }
 
     @ApiOperation("更新幣價資訊")
     @PostMapping("/update/{id}")
-    public ResponseEntity<CoinDesk> updateCoinDesk(@PathVariable Long id, @RequestBody CoinDesk coinDesk) {
-        return ResponseEntity.ok(coinDeskService.updateCoinDesk(id, coinDesk));
+    public CompletableFuture<ResponseEntity<CoinDesk>> updateCoinDesk(@PathVariable Long id,
+                                                                      @RequestBody CoinDesk coinDesk) {
+        return databaseExecutor.supply(() -> ResponseEntity.ok(coinDeskService.updateCoinDesk(id, coinDesk)));
+    }
+
+    @ApiOperation("部分更新幣價資訊")
+    @PostMapping("/patch/{id}")
+    public CompletableFuture<ResponseEntity<CoinDesk>> patchCoinDesk(@PathVariable Long id,
+                                                                     @RequestBody CoinDeskPatch patch) {
+        return databaseExecutor.supply(() -> ResponseEntity.ok(coinDeskService.patchCoinDesk(id, patch)));
     }
 
     @ApiOperation("刪除幣價資訊")
     @PostMapping("/delete/{id}")
-    public ResponseEntity<Void> deleteCoinDesk(@PathVariable Long id) {
-        coinDeskService.deleteCoinDesk(id);
-        return ResponseEntity.ok().build();
+    public CompletableFuture<ResponseEntity<Void>> deleteCoinDesk(@PathVariable Long id) {
+        return databaseExecutor.supply(() -> {
+            coinDeskService.deleteCoinDesk(id);
+            return ResponseEntity.ok().<Void>build();
+        });
+    }
+
+    @ApiOperation(value = "獲取幣價資訊，最多 coindesk.payload.all-max-rows 筆，超過時以 Link 標頭指向其餘資料的 /page；"
+            + "GET 支援 If-None-Match / If-Modified-Since 條件式請求",
+            response = CoinDeskSummary.class, responseContainer = "List")
+    @RequestMapping(value = "/all", method = {RequestMethod.GET, RequestMethod.POST})
+    public CompletableFuture<ResponseEntity<byte[]>> getAllCoinDesks(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return databaseExecutor.supply(() -> {
+            SerializedPayload payload = coinDeskService.getAllCoinDesksPayload();
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+            if (payload.getNextAfterId() != null) {
+                builder.header(HttpHeaders.LINK, "</api/coindesk/page?afterId=" + payload.getNextAfterId() + ">; rel=\"next\"");
+            }
+            return payload(builder, payload, acceptEncoding);
+        });
+    }
+
+    @ApiOperation("分頁讀取幣價資訊")
+    @PostMapping("/page")
+    public CompletableFuture<ResponseEntity<CoinDeskPage>> getCoinDeskPage(
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(required = false) CurrencyType currencyType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return databaseExecutor.supply(() ->
+                ResponseEntity.ok(coinDeskService.getCoinDeskPage(afterId, size, currencyType, from, to)));
+    }
+
+    @ApiOperation("以 NDJSON 串流輸出幣價資訊")
+    @PostMapping(value = "/stream", produces = NDJSON)
+    public void streamCoinDesks(
+            @RequestParam(required = false) CurrencyType currencyType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        coinDeskService.streamCoinDesks(currencyType, from, to, response.getOutputStream());
+    }
+
+    @ApiOperation("匯出歷史幣價檔案，格式為 CSV 或欄式二進位")
+    @PostMapping("/export")
+    public void exportHistory(
+            @RequestParam(defaultValue = "CSV") HistoryFormat format,
+            @RequestParam(required = false) CurrencyType currencyType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=coindesk-history." + format.getExtension());
+        coinDeskTransferService.exportHistory(format, currencyType, from, to, response.getOutputStream());
+    }
+
+    @ApiOperation("由請求內容匯入歷史幣價檔案，格式為 CSV 或欄式二進位")
+    @PostMapping("/import")
+    public ResponseEntity<Map<String, Object>> importHistory(
+            @RequestParam(defaultValue = "CSV") HistoryFormat format,
+            HttpServletRequest request) throws IOException {
+        long imported = coinDeskTransferService.importHistory(format, request.getInputStream());
+        return ResponseEntity.ok(Collections.singletonMap("imported", imported));
+    }
+
+    @ApiOperation("讀取指定幣別於時間區間內的歷史幣價")
+    @PostMapping("/history/{currencyType}")
+    public CompletableFuture<ResponseEntity<List<CoinDeskSummary>>> getHistory(
+            @PathVariable CurrencyType currencyType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "1000") int limit) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        return databaseExecutor.supply(() ->
+                ResponseEntity.ok(coinDeskService.getHistory(currencyType, start, end, limit)));
+    }
+
+    @ApiOperation("讀取指定幣別的 OHLC K 線")
+    @PostMapping("/candles/{currencyType}")
+    public CompletableFuture<ResponseEntity<List<RateCandle>>> getCandles(
+            @PathVariable CurrencyType currencyType,
+            @RequestParam(defaultValue = "M5") CandleInterval interval,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        return databaseExecutor.supply(() ->
+                ResponseEntity.ok(coinDeskService.getCandles(currencyType, interval, start, end)));
+    }
+
+    @ApiOperation(value = "讀取指定幣別的最新幣價，Age 標頭為距上次確認與上游一致的秒數，GET 支援條件式請求",
+            response = CoinDeskSummary.class)
+    @RequestMapping(value = "/latest/{currencyType}", method = {RequestMethod.GET, RequestMethod.POST})
+    public ResponseEntity<byte[]> getLatestCoinDesk(
+            @PathVariable CurrencyType currencyType,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        SerializedPayload payload = coinDeskService.getLatestPayload(currencyType);
+        return payload(snapshot(ResponseEntity.ok(), payload.getCreatedAt()), payload, acceptEncoding);
+    }
+
+    @ApiOperation("上游 API 擷取延遲統計")
+    @PostMapping("/fetch/stats")
+    public ResponseEntity<Map<String, Object>> getFetchStats() {
+        return ResponseEntity.ok(coinDeskService.getFetchStats());
+    }
+
+    @ApiOperation("最新幣價快取統計")
+    @PostMapping("/latest/stats")
+    public ResponseEntity<Map<String, Long>> getCacheStats() {
+        return ResponseEntity.ok(coinDeskService.getCacheStats());
+    }
+
+    @ApiOperation("換算金額，幣別代碼可為 BTC 或任一法幣，Age 標頭為所用報價距上次確認與上游一致的秒數")
+    @PostMapping("/convert")
+    public ResponseEntity<ConversionResult> convert(
+            @RequestParam double amount,
+            @RequestParam String from,
+            @RequestParam String to) {
+        return snapshot(ResponseEntity.ok(), null).body(currencyConversionService.convert(amount, from, to));
+    }
+
+    @ApiOperation("以指定時間點（含）之前的最後一筆報價換算金額")
+    @PostMapping("/convert/asof")
+    public CompletableFuture<ResponseEntity<ConversionResult>> convertAsOf(
+            @RequestParam double amount,
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return databaseExecutor.supply(() ->
+                ResponseEntity.ok(currencyConversionService.convertAsOf(amount, from, to, at)));
+    }
+
+    @ApiOperation("批次換算金額，請求為 [{amount, from, to}] 陣列或 {amounts, from, to} 欄位格式，結果以串流輸出")
+    @PostMapping(value = "/convert/batch", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public void convertBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        batchConversionService.convert(request.getInputStream(), response.getOutputStream());
+    }
+
+    /**
+     * 以最新幣價快照回應，附上 Age 標頭；快照過期時另加 Warning 110 並於背景補一次擷取，本次請求不等待上游。
+     */
+    private ResponseEntity.BodyBuilder snapshot(ResponseEntity.BodyBuilder builder, LocalDateTime createdAt) {
+        long ageMillis = coinDeskIngestScheduler.getSnapshotAgeMillis(createdAt);
+        if (ageMillis < 0) {
+            return builder;
+        }
+        builder.header(HttpHeaders.AGE, String.valueOf(ageMillis / 1000));
+        if (coinDeskIngestScheduler.isStale(ageMillis)) {
+            builder.header(HttpHeaders.WARNING, STALE_WARNING);
+            coinDeskIngestScheduler.revalidate();
+        }
+        return builder;
+    }
+
+    /**
+     * 以預先序列化的內容回應，用戶端接受 gzip 且有壓縮內容時直接送出壓縮後的位元組。
+     * GET 請求的 If-None-Match / If-Modified-Since 由 Spring 依 ETag 與 Last-Modified 判斷，符合時回應 304。
+     */
+    private static ResponseEntity<byte[]> payload(ResponseEntity.BodyBuilder builder, SerializedPayload payload,
+                                                  String acceptEncoding) {
+        boolean gzip = payload.getGzipBody() != null && acceptsGzip(acceptEncoding);
+        builder.contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .eTag(gzip ? payload.getGzipETag() : payload.getETag());
+        if (payload.getLastModified() >= 0) {
+            builder.lastModified(payload.getLastModified());
+        }
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(gzip ? payload.getGzipBody() : payload.getBody());
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 
-    @ApiOperation("獲取所有幣價資訊")
-    @PostMapping("/all")
-    public ResponseEntity<List<CoinDesk>> getAllCoinDesks() {
-        return ResponseEntity.ok(coinDeskService.getAllCoinDesks());
+    @ApiOperation("以 Server-Sent Events 訂閱幣價變動，可指定多個幣別")
+    @GetMapping(value = "/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam(required = false) List<CurrencyType> currencyType) {
+        return rateUpdateBroadcaster.subscribe(currencyType);
     }
-} 
\ No newline at end of file
+}
@@ -1,23 +1,38 @@
 package com.vinskao.domain;
 
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.Id;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Column;
-import javax.persistence.Enumerated;
-import javax.persistence.EnumType;
+import javax.persistence.Convert;
+import javax.persistence.Version;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.Locale;
 import com.vinskao.enums.CurrencyType;
 
+/**
+ * 幣價資料。匯率以放大 RATE_SCALE 倍的整數 rateScaled 為唯一儲存欄位，
+ * rate / rateFloat 以及幣別名稱、來源描述皆於輸出時推導。
+ */
 @Entity
 @Table(name = "coin_desk")
 @Data
 public class CoinDesk {
+    public static final long RATE_SCALE = 10_000L;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coin_desk_seq")
+    @SequenceGenerator(name = "coin_desk_seq", sequenceName = "coin_desk_seq", allocationSize = 50)
     private Long id;
     
     private String updated;
@@ -26,10 +41,11 @@ public class CoinDesk {
     private String updatedISO;
     
     private String updateduk;
-    private String disclaimer;
-    
-    @Column(name = "chart_name")
-    private String chartName;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "source_id")
+    private CoinDeskSource source;
     
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -37,19 +53,97 @@ public class CoinDesk {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
-    @Enumerated(EnumType.STRING)
+    @Convert(converter = CurrencyTypeConverter.class)
     @Column(name = "currency_type")
     private CurrencyType currencyType;
 
-    @Column(name = "rate")
-    private String rate;
+    @JsonIgnore
+    @Column(name = "rate_scaled")
+    private long rateScaled;
+
+    /**
+     * 樂觀鎖版本，每次更新加一；更新時帶入的版本與資料庫不同即視為衝突。
+     */
+    @Version
+    private Long version;
+
+    public String getRate() {
+        return formatRate(rateScaled);
+    }
+
+    public void setRate(String rate) {
+        this.rateScaled = parseRate(rate);
+    }
+
+    public Double getRateFloat() {
+        return (double) rateScaled / RATE_SCALE;
+    }
+
+    public void setRateFloat(Double rateFloat) {
+        this.rateScaled = rateFloat == null ? 0L : toScaled(rateFloat);
+    }
+
+    public String getDisclaimer() {
+        return source == null ? null : source.getDisclaimer();
+    }
+
+    /**
+     * 來源描述可能由多筆資料共用，因此一律改指向新的（未儲存的）來源，由服務層解析為既有資料。
+     */
+    public void setDisclaimer(String disclaimer) {
+        this.source = new CoinDeskSource(null, getChartName(), disclaimer);
+    }
+
+    public String getChartName() {
+        return source == null ? null : source.getChartName();
+    }
+
+    public void setChartName(String chartName) {
+        this.source = new CoinDeskSource(null, chartName, getDisclaimer());
+    }
+
+    public String getCurrencyName() {
+        return currencyType == null ? null : currencyType.getEnglishName();
+    }
+
+    public String getChineseName() {
+        return currencyType == null ? null : currencyType.getChineseName();
+    }
 
-    @Column(name = "rate_float")
-    private Double rateFloat;
+    public static long toScaled(double rate) {
+        return Math.round(rate * RATE_SCALE);
+    }
 
-    @Column(name = "currency_name")
-    private String currencyName;
+    /**
+     * 解析如 "23,342.0112" 的匯率字串。
+     *
+     * @throws IllegalArgumentException 不是數字或超出範圍
+     */
+    public static long parseRate(String rate) {
+        if (rate == null || rate.isEmpty()) {
+            return 0L;
+        }
+        try {
+            return new BigDecimal(rate.replace(",", ""))
+                    .movePointRight(4)
+                    .setScale(0, RoundingMode.HALF_UP)
+                    .longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid rate: " + rate, e);
+        }
+    }
 
-    @Column(name = "chinese_name")
-    private String chineseName;
-} 
\ No newline at end of file
+    /**
+     * 以千分位與 2 至 4 位小數格式化匯率，例如 57756.2984 → "57,756.2984"、58000 → "58,000.00"。
+     */
+    public static String formatRate(long rateScaled) {
+        long abs = Math.abs(rateScaled);
+        long fraction = abs % RATE_SCALE;
+        int digits = 4;
+        while (digits > 2 && fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        return String.format(Locale.US, "%s%,d.%0" + digits + "d", rateScaled < 0 ? "-" : "", abs / RATE_SCALE, fraction);
+    }
+}
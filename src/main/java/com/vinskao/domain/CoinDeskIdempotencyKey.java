@@ -0,0 +1,35 @@
+package com.vinskao.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 建立請求的 Idempotency-Key 與其結果。
+ * 相同 key 的重送請求直接回傳當初建立的資料；requestHash 用於偵測以同一 key 送出不同內容的請求。
+ */
+@Entity
+@Table(name = "coin_desk_idempotency")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoinDeskIdempotencyKey {
+    @Id
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    @Column(name = "request_hash")
+    private String requestHash;
+
+    @Column(name = "coin_desk_id")
+    private Long coinDeskId;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,38 @@
+package com.vinskao.domain;
+
+import lombok.Data;
+
+import javax.persistence.Column;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/**
+ * 超過保留期限的原始幣價彙總後的 OHLC 資料，各粒度共用一張表並以 resolution 區分。
+ * 開高低收以與 CoinDesk.rateScaled 相同的放大整數儲存。
+ */
+@Entity
+@Table(name = "coin_desk_rollup")
+@Data
+public class CoinDeskRollup {
+    @EmbeddedId
+    private CoinDeskRollupId id;
+
+    @Column(name = "open_scaled")
+    private long openScaled;
+
+    @Column(name = "high_scaled")
+    private long highScaled;
+
+    @Column(name = "low_scaled")
+    private long lowScaled;
+
+    @Column(name = "close_scaled")
+    private long closeScaled;
+
+    @Column(name = "average_rate")
+    private double averageRate;
+
+    @Column(name = "tick_count")
+    private long tickCount;
+}
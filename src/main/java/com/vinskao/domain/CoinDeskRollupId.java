@@ -0,0 +1,31 @@
+package com.vinskao.domain;
+
+import com.vinskao.enums.RollupResolution;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import java.io.Serializable;
+
+/**
+ * 彙總資料的主鍵：幣別代碼、粒度與區間起點（epoch 秒數）。
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoinDeskRollupId implements Serializable {
+    @Column(name = "currency_type", length = 10)
+    private String currencyType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "resolution", length = 6)
+    private RollupResolution resolution;
+
+    @Column(name = "bucket_start")
+    private long bucketStart;
+}
@@ -0,0 +1,31 @@
+package com.vinskao.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 資料來源的共用描述（圖表名稱與免責聲明），由多筆 CoinDesk 共用以避免每列重複儲存。
+ */
+@Entity
+@Table(name = "coin_desk_source")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoinDeskSource {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "chart_name")
+    private String chartName;
+
+    @Column(name = "disclaimer", length = 1024)
+    private String disclaimer;
+}
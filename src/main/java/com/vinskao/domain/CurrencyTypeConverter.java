@@ -0,0 +1,23 @@
+package com.vinskao.domain;
+
+import com.vinskao.enums.CurrencyType;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * 以幣別代碼儲存 CurrencyType。
+ */
+@Converter
+public class CurrencyTypeConverter implements AttributeConverter<CurrencyType, String> {
+
+    @Override
+    public String convertToDatabaseColumn(CurrencyType currencyType) {
+        return currencyType == null ? null : currencyType.getCode();
+    }
+
+    @Override
+    public CurrencyType convertToEntityAttribute(String code) {
+        return code == null ? null : CurrencyType.fromCode(code);
+    }
+}
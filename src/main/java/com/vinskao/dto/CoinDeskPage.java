@@ -0,0 +1,17 @@
+package com.vinskao.dto;
+
+import com.vinskao.domain.CoinDesk;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * keyset 分頁結果，nextAfterId 為下一頁的 afterId 參數，沒有下一頁時為 null。
+ */
+@Data
+@AllArgsConstructor
+public class CoinDeskPage {
+    private List<CoinDesk> items;
+    private Long nextAfterId;
+}
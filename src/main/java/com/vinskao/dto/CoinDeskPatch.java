@@ -0,0 +1,21 @@
+package com.vinskao.dto;
+
+import com.vinskao.enums.CurrencyType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 部分更新請求：version 為必填，其餘欄位為 null 時不修改。
+ * rateFloat 與 rate 同時提供時以 rateFloat 為準。
+ */
+@Data
+@NoArgsConstructor
+public class CoinDeskPatch {
+    private Long version;
+    private CurrencyType currencyType;
+    private String rate;
+    private Double rateFloat;
+    private String updated;
+    private String updatedISO;
+    private String updateduk;
+}
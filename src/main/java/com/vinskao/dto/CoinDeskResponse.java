@@ -3,12 +3,17 @@ package com.vinskao.dto;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
+import java.util.Map;
+
 @Data
 public class CoinDeskResponse {
     private Time time;
     private String disclaimer;
     private String chartName;
-    private Bpi bpi;
+    /**
+     * 以幣別代碼為鍵的報價，未列於幣別清單的代碼於寫入時略過。
+     */
+    private Map<String, Currency> bpi;
 
     @Data
     public static class Time {
@@ -17,18 +22,6 @@ public class CoinDeskResponse {
         private String updateduk;
     }
 
-    @Data
-    public static class Bpi {
-        @JsonProperty("USD")
-        private Currency USD;
-        
-        @JsonProperty("GBP")
-        private Currency GBP;
-        
-        @JsonProperty("EUR")
-        private Currency EUR;
-    }
-
     @Data
     public static class Currency {
         private String code;
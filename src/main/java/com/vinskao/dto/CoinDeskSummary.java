@@ -0,0 +1,31 @@
+package com.vinskao.dto;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.enums.CurrencyType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 列表與最新幣價使用的精簡檢視，只包含幣別、匯率與時間戳，
+ * 不含來源描述等每筆重複的欄位。由 JPQL 建構子表示式直接查詢，不載入實體。
+ */
+@Data
+@NoArgsConstructor
+public class CoinDeskSummary {
+    private Long id;
+    private CurrencyType currencyType;
+    private double rateFloat;
+    private String updatedISO;
+    private LocalDateTime createdAt;
+
+    public CoinDeskSummary(Long id, CurrencyType currencyType, long rateScaled,
+                           String updatedISO, LocalDateTime createdAt) {
+        this.id = id;
+        this.currencyType = currencyType;
+        this.rateFloat = (double) rateScaled / CoinDesk.RATE_SCALE;
+        this.updatedISO = updatedISO;
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,18 @@
+package com.vinskao.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 換匯結果，asOf 為計算所用報價的 updatedISO。
+ */
+@Data
+@AllArgsConstructor
+public class ConversionResult {
+    private String from;
+    private String to;
+    private double amount;
+    private double rate;
+    private double result;
+    private String asOf;
+}
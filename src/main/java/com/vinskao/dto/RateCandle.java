@@ -0,0 +1,21 @@
+package com.vinskao.dto;
+
+/**
+ * 單一時間區間的 OHLC 統計，由資料庫聚合查詢直接投影。
+ * bucketStart 為區間起點的 epoch 秒數。
+ */
+public interface RateCandle {
+    Long getBucketStart();
+
+    Double getOpenRate();
+
+    Double getHighRate();
+
+    Double getLowRate();
+
+    Double getCloseRate();
+
+    Double getAverageRate();
+
+    Long getTickCount();
+}
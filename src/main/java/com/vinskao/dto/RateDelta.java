@@ -0,0 +1,19 @@
+package com.vinskao.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 推播給訂閱者的幣價變動，欄位名稱縮寫以減少傳輸量：
+ * c 幣別代碼、r 匯率、t updatedISO、id 資料 ID（寫入緩衝尚未寫入時省略）。
+ */
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RateDelta {
+    private String c;
+    private double r;
+    private String t;
+    private Long id;
+}
@@ -0,0 +1,34 @@
+package com.vinskao.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 預先序列化的 JSON 回應內容與其驗證器。
+ * gzipBody 為 null 時表示不提供壓縮內容（已停用或內容小於門檻）；lastModified 為 epoch 毫秒，無法推得時為 -1；
+ * createdAt 為內容對應資料的建立時間，供 Age 標頭使用，與內容取自同一次查詢，檢視沒有單一建立時間時為 null；
+ * nextAfterId 為內容因筆數上限被截斷時，以 /page 讀取其餘資料的 afterId，未截斷時為 null。
+ */
+@Getter
+@AllArgsConstructor
+public class SerializedPayload {
+    private final byte[] body;
+    private final byte[] gzipBody;
+    private final String eTag;
+    private final long lastModified;
+    private final LocalDateTime createdAt;
+    private final Long nextAfterId;
+
+    public SerializedPayload(byte[] body, byte[] gzipBody, String eTag, long lastModified) {
+        this(body, gzipBody, eTag, lastModified, null, null);
+    }
+
+    /**
+     * 壓縮內容的位元組不同，強 ETag 也必須不同。
+     */
+    public String getGzipETag() {
+        return eTag.substring(0, eTag.length() - 1) + "-gzip\"";
+    }
+}
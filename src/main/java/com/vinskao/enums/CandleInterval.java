@@ -0,0 +1,27 @@
+package com.vinskao.enums;
+
+public enum CandleInterval {
+    M1(60, RollupResolution.MINUTE),
+    M5(300, RollupResolution.MINUTE),
+    H1(3600, RollupResolution.HOUR),
+    D1(86400, RollupResolution.DAY);
+
+    private final long seconds;
+    private final RollupResolution rollupResolution;
+
+    CandleInterval(long seconds, RollupResolution rollupResolution) {
+        this.seconds = seconds;
+        this.rollupResolution = rollupResolution;
+    }
+
+    public long getSeconds() {
+        return seconds;
+    }
+
+    /**
+     * 可組成此區間的最粗彙總粒度，查詢已彙總的歷史資料時使用。
+     */
+    public RollupResolution getRollupResolution() {
+        return rollupResolution;
+    }
+}
@@ -1,20 +1,75 @@
 package com.vinskao.enums;
 
-public enum CurrencyType {
-    USD("USD", "美元", "United States Dollar"),
-    GBP("GBP", "英鎊", "British Pound Sterling"),
-    EUR("EUR", "歐元", "Euro");
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import org.springframework.util.ResourceUtils;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 幣別。
+ * 幣別清單於類別載入時由 CSV 設定檔（預設為 classpath:currencies.csv，可由 coindesk.currencies.location 覆寫）讀入，
+ * 每個幣別依檔案順序取得連續的 ordinal()，供各幣別的快取與陣列以索引存取；fromCode 為常數時間查詢。
+ * 實例唯一，可直接以 == 比較。
+ * <p>
+ * 清單在類別載入後即固定：coindesk.currencies.location 由 CurrencyRegistryEnvironmentPostProcessor 於 Spring 環境
+ * 準備完成時帶入，在此之前（例如 main 或其他類別的 static 初始化）不可引用本類別，否則改用 -Dcoindesk.currencies.location
+ * 指定。自訂清單必須包含程式直接引用的 USD、GBP 與 EUR。
+ */
+public final class CurrencyType {
+    public static final String LOCATION_PROPERTY = "coindesk.currencies.location";
+    public static final String DEFAULT_LOCATION = "classpath:currencies.csv";
+
+    private static final CurrencyType[] VALUES;
+    private static final Map<String, CurrencyType> BY_CODE;
+
+    static {
+        List<Registry.Definition> definitions = Registry.markLoaded();
+        VALUES = new CurrencyType[definitions.size()];
+        BY_CODE = new HashMap<>(VALUES.length * 2);
+        for (int i = 0; i < VALUES.length; i++) {
+            Registry.Definition definition = definitions.get(i);
+            VALUES[i] = new CurrencyType(i, definition.code, definition.chineseName, definition.englishName);
+            BY_CODE.put(definition.code, VALUES[i]);
+        }
+    }
+
+    public static final CurrencyType USD = fromCode("USD");
+    public static final CurrencyType GBP = fromCode("GBP");
+    public static final CurrencyType EUR = fromCode("EUR");
+
+    private final int ordinal;
     private final String code;
     private final String chineseName;
     private final String englishName;
 
-    CurrencyType(String code, String chineseName, String englishName) {
+    private CurrencyType(int ordinal, String code, String chineseName, String englishName) {
+        this.ordinal = ordinal;
         this.code = code;
         this.chineseName = chineseName;
         this.englishName = englishName;
     }
 
+    public int ordinal() {
+        return ordinal;
+    }
+
+    public String name() {
+        return code;
+    }
+
+    @JsonValue
     public String getCode() {
         return code;
     }
@@ -27,12 +82,166 @@ public enum CurrencyType {
         return englishName;
     }
 
+    @Override
+    public boolean equals(Object other) {
+        return this == other;
+    }
+
+    @Override
+    public int hashCode() {
+        return code.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+
+    /**
+     * 所有幣別，依 ordinal() 排序；每次呼叫回傳新的陣列。
+     */
+    public static CurrencyType[] values() {
+        return VALUES.clone();
+    }
+
+    /**
+     * 幣別數量，即 ordinal() 的上限（不含）。
+     */
+    public static int size() {
+        return VALUES.length;
+    }
+
+    public static CurrencyType byOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * 依代碼取得幣別。
+     *
+     * @throws IllegalArgumentException 未知的幣別代碼
+     */
+    @JsonCreator
     public static CurrencyType fromCode(String code) {
-        for (CurrencyType type : values()) {
-            if (type.getCode().equals(code)) {
-                return type;
+        CurrencyType type = find(code);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown currency code: " + code);
+        }
+        return type;
+    }
+
+    /**
+     * 依代碼取得幣別，未知代碼時回傳 null。
+     */
+    public static CurrencyType find(String code) {
+        return code == null ? null : BY_CODE.get(code);
+    }
+
+    /**
+     * 與 fromCode 相同，供 Spring 將請求參數轉換為 CurrencyType。
+     */
+    public static CurrencyType valueOf(String code) {
+        return fromCode(code);
+    }
+
+    /**
+     * 幣別清單的來源位置。須在 CurrencyType 類別載入前設定，
+     * 由 CurrencyRegistryEnvironmentPostProcessor 於 Spring 環境準備完成時帶入 coindesk.currencies.location。
+     * 設定時即讀取並檢查清單，錯誤在啟動時以設定來源說明，而不是在第一次引用 CurrencyType 時才出現。
+     */
+    public static final class Registry {
+        private static final String[] REQUIRED_CODES = {"USD", "GBP", "EUR"};
+
+        private static String location;
+        private static List<Definition> definitions;
+        // 類別載入時的呼叫堆疊，載入後再變更來源時附於例外中，指出是誰過早引用了 CurrencyType
+        private static Throwable loadedAt;
+
+        private Registry() {
+        }
+
+        /**
+         * @throws IllegalStateException 清單格式錯誤、代碼重複或缺少 USD / GBP / EUR，
+         *                               或 CurrencyType 已由其他來源載入
+         */
+        public static synchronized void setLocation(String newLocation) {
+            List<Definition> newDefinitions = read(newLocation);
+            if (loadedAt != null) {
+                if (newLocation.equals(location)) {
+                    return;
+                }
+                throw new IllegalStateException("CurrencyType was already loaded from " + location
+                        + " before " + LOCATION_PROPERTY + "=" + newLocation + " was applied; the currency list"
+                        + " is fixed once the class is loaded. Do not reference CurrencyType before the Spring"
+                        + " environment is prepared, or pass -D" + LOCATION_PROPERTY + " instead."
+                        + " The cause shows where CurrencyType was first loaded.", loadedAt);
+            }
+            location = newLocation;
+            definitions = newDefinitions;
+        }
+
+        static synchronized List<Definition> markLoaded() {
+            if (location == null) {
+                location = System.getProperty(LOCATION_PROPERTY, DEFAULT_LOCATION);
+            }
+            if (definitions == null) {
+                definitions = read(location);
+            }
+            loadedAt = new Throwable("CurrencyType loaded from " + location + " here");
+            return definitions;
+        }
+
+        /**
+         * 讀取「代碼,中文名稱,英文名稱」格式的 CSV；空行與 # 開頭的行會被忽略，中文名稱留空時使用英文名稱。
+         */
+        private static List<Definition> read(String location) {
+            List<Definition> result = new ArrayList<>();
+            Set<String> codes = new HashSet<>();
+            try (InputStream in = ResourceUtils.getURL(location).openStream();
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#") || line.startsWith("code,")) {
+                        continue;
+                    }
+                    String[] columns = line.split(",", 3);
+                    if (columns.length < 3 || columns[0].trim().isEmpty()) {
+                        throw new IllegalStateException("Invalid currency definition in " + location + ": " + line);
+                    }
+                    String code = columns[0].trim();
+                    if (!codes.add(code)) {
+                        throw new IllegalStateException("Duplicate currency code " + code + " in " + location);
+                    }
+                    String englishName = columns[2].trim();
+                    String chineseName = columns[1].trim().isEmpty() ? englishName : columns[1].trim();
+                    result.add(new Definition(code, chineseName, englishName));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load currencies from " + location, e);
+            }
+            List<String> missing = new ArrayList<>();
+            for (String code : REQUIRED_CODES) {
+                if (!codes.contains(code)) {
+                    missing.add(code);
+                }
+            }
+            if (!missing.isEmpty()) {
+                throw new IllegalStateException("Currency list " + location + " is missing " + String.join(", ", missing)
+                        + "; USD, GBP and EUR are referenced directly by the application and must be listed");
+            }
+            return result;
+        }
+
+        static final class Definition {
+            private final String code;
+            private final String chineseName;
+            private final String englishName;
+
+            Definition(String code, String chineseName, String englishName) {
+                this.code = code;
+                this.chineseName = chineseName;
+                this.englishName = englishName;
             }
         }
-        throw new IllegalArgumentException("Unknown currency code: " + code);
     }
-} 
\ No newline at end of file
+}
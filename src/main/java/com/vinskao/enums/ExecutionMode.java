@@ -0,0 +1,19 @@
+package com.vinskao.enums;
+
+/**
+ * 請求處理的執行模式，由 coindesk.web.execution-mode 設定。
+ */
+public enum ExecutionMode {
+    /**
+     * 所有端點在 Tomcat 的執行緒池上同步執行，同時處理的請求數受 server.tomcat.threads.max 限制。
+     */
+    PLATFORM,
+    /**
+     * 存取資料庫的端點交給固定大小的 coindesk-db 執行緒池，等待資料庫期間不佔用 Tomcat 執行緒。
+     */
+    ASYNC,
+    /**
+     * Tomcat 以虛擬執行緒處理每個請求，阻塞於 JDBC 時不佔用平台執行緒；需要 JDK 21 以上。
+     */
+    VIRTUAL
+}
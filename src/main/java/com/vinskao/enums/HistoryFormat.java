@@ -0,0 +1,31 @@
+package com.vinskao.enums;
+
+/**
+ * 歷史幣價匯入匯出的檔案格式。
+ */
+public enum HistoryFormat {
+    /**
+     * 含標題列的 CSV：currency_type,created_at,rate,updated_iso。
+     */
+    CSV("text/csv", "csv"),
+    /**
+     * 依幣別分塊的欄式二進位格式，時間與匯率以差值 varint 編碼。
+     */
+    BINARY("application/octet-stream", "cdh");
+
+    private final String contentType;
+    private final String extension;
+
+    HistoryFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
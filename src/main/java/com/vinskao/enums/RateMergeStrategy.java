@@ -0,0 +1,15 @@
+package com.vinskao.enums;
+
+/**
+ * 多個報價來源的合併方式。
+ */
+public enum RateMergeStrategy {
+    /**
+     * 依 coindesk.sources 設定順序，各幣別採用第一個有報價的來源。
+     */
+    FIRST_WINS,
+    /**
+     * 各幣別取所有有報價來源的中位數。
+     */
+    MEDIAN
+}
@@ -0,0 +1,20 @@
+package com.vinskao.enums;
+
+/**
+ * 彙總資料（coin_desk_rollup）的時間粒度。
+ */
+public enum RollupResolution {
+    MINUTE(60),
+    HOUR(3600),
+    DAY(86400);
+
+    private final long seconds;
+
+    RollupResolution(long seconds) {
+        this.seconds = seconds;
+    }
+
+    public long getSeconds() {
+        return seconds;
+    }
+}
@@ -0,0 +1,19 @@
+package com.vinskao.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 用戶端送出的內容無效：格式錯誤、缺少必要欄位或超出允許範圍。
+ * 回應 400；繼承 IllegalArgumentException，服務層仍可以一般的參數錯誤處理。
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class CoinDeskBadRequestException extends IllegalArgumentException {
+    public CoinDeskBadRequestException(String message) {
+        super(message);
+    }
+
+    public CoinDeskBadRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,15 @@
+package com.vinskao.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 資料庫執行緒池的等待佇列已滿。
+ * 回應 503，由用戶端稍後重試，避免請求無限制地堆積在記憶體中。
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class CoinDeskBusyException extends RuntimeException {
+    public CoinDeskBusyException(String message) {
+        super(message);
+    }
+}
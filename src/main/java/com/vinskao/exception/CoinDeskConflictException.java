@@ -0,0 +1,15 @@
+package com.vinskao.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 寫入與目前資料狀態衝突：更新時帶入的版本已過期，或 Idempotency-Key 已用於內容不同的請求。
+ * 回應 409，由用戶端重新讀取後決定是否重試。
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class CoinDeskConflictException extends RuntimeException {
+    public CoinDeskConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.vinskao.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 請求指向的資料曾經存在但已被刪除，例如 Idempotency-Key 當初建立的資料已不存在。
+ * 回應 410，用戶端不應以相同的 key 重送，需以新的 key 重新建立。
+ */
+@ResponseStatus(HttpStatus.GONE)
+public class CoinDeskGoneException extends RuntimeException {
+    public CoinDeskGoneException(String message) {
+        super(message);
+    }
+}
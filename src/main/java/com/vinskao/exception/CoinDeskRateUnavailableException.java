@@ -0,0 +1,15 @@
+package com.vinskao.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 換算所需的報價不存在，例如指定的時間點之前該幣別尚無任何資料。
+ * 回應 404；繼承 IllegalStateException，服務層仍可以一般的狀態錯誤處理。
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class CoinDeskRateUnavailableException extends IllegalStateException {
+    public CoinDeskRateUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+package com.vinskao.mapper;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.dto.CoinDeskSummary;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+
+/**
+ * 幣價資料的轉換，實作於編譯時期由 MapStruct 產生，不使用反射。
+ */
+@Mapper(componentModel = "spring")
+public interface CoinDeskMapper {
+
+    CoinDeskSummary toSummary(CoinDesk coinDesk);
+
+    /**
+     * 以 source 的內容覆寫 target，ID 與版本除外。
+     * 匯率與來源描述只複製 rateScaled 與 source，不經由推導出的 rate / rateFloat / chartName / disclaimer。
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "rate", ignore = true)
+    @Mapping(target = "rateFloat", ignore = true)
+    @Mapping(target = "chartName", ignore = true)
+    @Mapping(target = "disclaimer", ignore = true)
+    void copy(CoinDesk source, @MappingTarget CoinDesk target);
+}
@@ -0,0 +1,30 @@
+package com.vinskao.repository;
+
+import com.vinskao.domain.CoinDeskIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface CoinDeskIdempotencyKeyRepository extends JpaRepository<CoinDeskIdempotencyKey, String> {
+
+    /**
+     * 直接 INSERT 而非 save（save 會先查詢再決定 insert 或 update），
+     * 同一 key 同時寫入時由主鍵約束擋下較晚的交易。
+     */
+    @Modifying
+    @Query(value = "INSERT INTO coin_desk_idempotency (idempotency_key, request_hash, coin_desk_id, created_at)"
+            + " VALUES (:idempotencyKey, :requestHash, :coinDeskId, :createdAt)", nativeQuery = true)
+    int insert(@Param("idempotencyKey") String idempotencyKey,
+               @Param("requestHash") String requestHash,
+               @Param("coinDeskId") Long coinDeskId,
+               @Param("createdAt") LocalDateTime createdAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from CoinDeskIdempotencyKey k where k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,7 +1,176 @@
 package com.vinskao.repository;
 
 import com.vinskao.domain.CoinDesk;
+import com.vinskao.dto.CoinDeskSummary;
+import com.vinskao.dto.RateCandle;
+import com.vinskao.enums.CurrencyType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface CoinDeskRepository extends JpaRepository<CoinDesk, Long> {
-} 
\ No newline at end of file
+    String FILTERED_BY_ID = "select c from CoinDesk c where c.id > :afterId"
+            + " and (:currencyType is null or c.currencyType = :currencyType)"
+            + " and (:from is null or c.createdAt >= :from)"
+            + " and (:to is null or c.createdAt < :to)"
+            + " order by c.id";
+    String SUMMARY = "select new com.vinskao.dto.CoinDeskSummary("
+            + "c.id, c.currencyType, c.rateScaled, c.updatedISO, c.createdAt) from CoinDesk c";
+
+    /**
+     * 指定幣別建立時間最新的一筆資料，建立時間相同時取 ID 較大者。
+     * 匯入的歷史資料 ID 較大但建立時間較早，不能以 ID 判斷新舊。
+     */
+    @Query(value = "SELECT * FROM coin_desk WHERE currency_type = :currencyType"
+            + " ORDER BY created_at DESC NULLS LAST, id DESC LIMIT 1",
+            nativeQuery = true)
+    Optional<CoinDesk> findLatest(@Param("currencyType") String currencyType);
+
+    /**
+     * 一次查詢各幣別建立時間最新的一筆資料（相同時取 ID 較大者），供啟動時預熱快取。
+     */
+    @Query(value = "SELECT c.* FROM coin_desk c WHERE c.id IN"
+            + " (SELECT MAX(l.id) FROM coin_desk l"
+            + "   JOIN (SELECT currency_type, MAX(created_at) AS created_at FROM coin_desk"
+            + "     WHERE currency_type IS NOT NULL GROUP BY currency_type) m"
+            + "   ON l.currency_type = m.currency_type AND l.created_at = m.created_at"
+            + "   GROUP BY l.currency_type)",
+            nativeQuery = true)
+    List<CoinDesk> findLatestPerCurrency();
+
+    /**
+     * 以精簡檢視依 ID 順序讀取資料，筆數由 pageable 限制，只查詢需要的欄位且不載入實體與來源描述。
+     */
+    @Query(SUMMARY + " order by c.id")
+    List<CoinDeskSummary> findAllSummaries(Pageable pageable);
+
+    /**
+     * 依幣別與建立時間區間 [from, to) 以精簡檢視查詢，使用 (currency_type, created_at) 複合索引。
+     */
+    @Query(SUMMARY + " where c.currencyType = :currencyType"
+            + " and c.createdAt >= :from and c.createdAt < :to order by c.createdAt")
+    List<CoinDeskSummary> findSummaries(@Param("currencyType") CurrencyType currencyType,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to,
+                                        Pageable pageable);
+
+    /**
+     * 以固定秒數分桶計算 OHLC、平均值與筆數，全部於資料庫中完成。
+     * 每桶的開盤/收盤價取自桶內建立時間最早/最晚的資料（相同時依 ID），匯入的歷史資料 ID 不代表時間順序。
+     */
+    @Query(value = "SELECT t.bucket * :bucketSeconds AS bucketStart,"
+            + " CAST(MAX(CASE WHEN t.first_rank = 1 THEN t.rate_scaled END) AS DOUBLE PRECISION) / 10000 AS openRate,"
+            + " CAST(MAX(t.rate_scaled) AS DOUBLE PRECISION) / 10000 AS highRate,"
+            + " CAST(MIN(t.rate_scaled) AS DOUBLE PRECISION) / 10000 AS lowRate,"
+            + " CAST(MAX(CASE WHEN t.last_rank = 1 THEN t.rate_scaled END) AS DOUBLE PRECISION) / 10000 AS closeRate,"
+            + " AVG(CAST(t.rate_scaled AS DOUBLE PRECISION)) / 10000 AS averageRate, COUNT(*) AS tickCount"
+            + " FROM (SELECT r.bucket, r.rate_scaled,"
+            + "   ROW_NUMBER() OVER (PARTITION BY r.bucket ORDER BY r.created_at, r.id) AS first_rank,"
+            + "   ROW_NUMBER() OVER (PARTITION BY r.bucket ORDER BY r.created_at DESC, r.id DESC) AS last_rank"
+            + "   FROM (SELECT id, rate_scaled, created_at,"
+            + "     CAST(FLOOR(EXTRACT(EPOCH FROM created_at)) AS BIGINT) / :bucketSeconds AS bucket"
+            + "     FROM coin_desk"
+            + "     WHERE currency_type = :currencyType AND created_at >= :from AND created_at < :to) r) t"
+            + " GROUP BY t.bucket"
+            + " ORDER BY t.bucket",
+            nativeQuery = true)
+    List<RateCandle> findCandles(@Param("currencyType") String currencyType,
+                                 @Param("bucketSeconds") long bucketSeconds,
+                                 @Param("from") LocalDateTime from,
+                                 @Param("to") LocalDateTime to);
+
+    /**
+     * 依建立時間順序逐筆讀取指定幣別自 from（含）起的建立時間與匯率，供時間索引載入使用。
+     * 需在交易中使用並於結束後關閉 Stream。
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select c.createdAt, c.rateScaled from CoinDesk c"
+            + " where c.currencyType = :currencyType and c.createdAt >= :from order by c.createdAt")
+    Stream<Object[]> streamTicks(@Param("currencyType") CurrencyType currencyType,
+                                 @Param("from") LocalDateTime from);
+
+    /**
+     * 指定幣別於 (from, at] 之間最新的建立時間與匯率，筆數由 pageable 決定，
+     * 使用 (currency_type, created_at) 複合索引；下限讓 H2 只掃描區間內的索引。
+     */
+    @Query("select c.createdAt, c.rateScaled from CoinDesk c where c.currencyType = :currencyType"
+            + " and c.createdAt > :from and c.createdAt <= :at order by c.createdAt desc")
+    List<Object[]> findTicksAtOrBefore(@Param("currencyType") CurrencyType currencyType,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("at") LocalDateTime at,
+                                       Pageable pageable);
+
+    /**
+     * 指定 ID 的幣別，只讀取單一欄位；資料不存在時回傳 empty。
+     */
+    @Query("select c.currencyType from CoinDesk c where c.id = :id")
+    Optional<CurrencyType> findCurrencyTypeById(@Param("id") Long id);
+
+    /**
+     * 指定 ID 且版本相符時的幣別，與以相同版本為條件的更新於同一交易中使用。
+     */
+    @Query("select c.currencyType from CoinDesk c where c.id = :id and c.version = :version")
+    Optional<CurrencyType> findCurrencyTypeByIdAndVersion(@Param("id") Long id, @Param("version") Long version);
+
+    /**
+     * 指定幣別最舊一筆原始資料的建立時間，使用 (currency_type, created_at) 複合索引。
+     */
+    @Query("select min(c.createdAt) from CoinDesk c where c.currencyType = :currencyType")
+    LocalDateTime findOldestCreatedAt(@Param("currencyType") CurrencyType currencyType);
+
+    /**
+     * 刪除最多 limit 筆建立時間早於 cutoff 的資料，每次呼叫為獨立的短交易。
+     * 各幣別最新的一筆（見 findLatest）一律保留：報價未變動時不會寫入新資料，最新一筆可能早於保留期限。
+     *
+     * @return 刪除筆數，小於 limit 時表示已無符合條件的資料
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM coin_desk WHERE id IN"
+            + " (SELECT d.id FROM coin_desk d WHERE d.created_at < :cutoff"
+            + "   AND (d.currency_type IS NULL OR EXISTS (SELECT 1 FROM coin_desk n"
+            + "     WHERE n.currency_type = d.currency_type"
+            + "     AND (n.created_at > d.created_at OR (n.created_at = d.created_at AND n.id > d.id))))"
+            + "   ORDER BY d.id LIMIT :limit)",
+            nativeQuery = true)
+    int deleteChunkCreatedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * 以 ID 為游標的 keyset 分頁查詢，筆數由 pageable 的 page size 決定。
+     */
+    @Query(FILTERED_BY_ID)
+    List<CoinDesk> findPage(@Param("afterId") long afterId,
+                            @Param("currencyType") CurrencyType currencyType,
+                            @Param("from") LocalDateTime from,
+                            @Param("to") LocalDateTime to,
+                            Pageable pageable);
+
+    /**
+     * 以資料庫游標逐筆讀取，需在交易中使用並於結束後關閉 Stream。
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query(FILTERED_BY_ID)
+    Stream<CoinDesk> streamAll(@Param("afterId") long afterId,
+                               @Param("currencyType") CurrencyType currencyType,
+                               @Param("from") LocalDateTime from,
+                               @Param("to") LocalDateTime to);
+}
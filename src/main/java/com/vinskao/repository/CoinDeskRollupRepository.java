@@ -0,0 +1,112 @@
+package com.vinskao.repository;
+
+import com.vinskao.domain.CoinDeskRollup;
+import com.vinskao.domain.CoinDeskRollupId;
+import com.vinskao.dto.RateCandle;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface CoinDeskRollupRepository extends JpaRepository<CoinDeskRollup, CoinDeskRollupId> {
+
+    /**
+     * 將 cutoff 之前的原始幣價依指定粒度彙總寫入 coin_desk_rollup，已存在彙總的區間不會重複寫入。
+     * 開盤/收盤價取自區間內建立時間最早/最晚的資料（相同時依 ID）。
+     *
+     * @return 新增的彙總筆數
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO coin_desk_rollup (currency_type, resolution, bucket_start,"
+            + " open_scaled, high_scaled, low_scaled, close_scaled, average_rate, tick_count)"
+            + " SELECT b.currency_type, :resolution, b.bucket * :bucketSeconds,"
+            + " b.open_rate, b.high_rate, b.low_rate, b.close_rate, b.average_rate / 10000, b.tick_count"
+            + " FROM (SELECT t.currency_type, t.bucket,"
+            + "   MAX(CASE WHEN t.first_rank = 1 THEN t.rate_scaled END) AS open_rate,"
+            + "   MAX(CASE WHEN t.last_rank = 1 THEN t.rate_scaled END) AS close_rate,"
+            + "   MAX(t.rate_scaled) AS high_rate, MIN(t.rate_scaled) AS low_rate,"
+            + "   AVG(CAST(t.rate_scaled AS DOUBLE PRECISION)) AS average_rate, COUNT(*) AS tick_count"
+            + "   FROM (SELECT r.currency_type, r.bucket, r.rate_scaled,"
+            + "     ROW_NUMBER() OVER (PARTITION BY r.currency_type, r.bucket ORDER BY r.created_at, r.id) AS first_rank,"
+            + "     ROW_NUMBER() OVER (PARTITION BY r.currency_type, r.bucket"
+            + "       ORDER BY r.created_at DESC, r.id DESC) AS last_rank"
+            + "     FROM (SELECT id, currency_type, rate_scaled, created_at,"
+            + "       CAST(FLOOR(EXTRACT(EPOCH FROM created_at)) AS BIGINT) / :bucketSeconds AS bucket"
+            + "       FROM coin_desk"
+            + "       WHERE currency_type IS NOT NULL AND created_at < :cutoff) r) t"
+            + "   GROUP BY t.currency_type, t.bucket) b"
+            + " WHERE NOT EXISTS (SELECT 1 FROM coin_desk_rollup r"
+            + "   WHERE r.currency_type = b.currency_type AND r.resolution = :resolution"
+            + "   AND r.bucket_start = b.bucket * :bucketSeconds)",
+            nativeQuery = true)
+    int rollUp(@Param("resolution") String resolution,
+               @Param("bucketSeconds") long bucketSeconds,
+               @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * 由指定粒度的彙總資料再分桶計算 OHLC，平均值依各彙總的筆數加權。
+     *
+     * @param from 區間起點（含）的 epoch 秒數
+     * @param to   區間終點（不含）的 epoch 秒數
+     */
+    @Query(value = "SELECT b.bucket * :bucketSeconds AS bucketStart,"
+            + " CAST(o.open_scaled AS DOUBLE PRECISION) / 10000 AS openRate,"
+            + " CAST(b.high_scaled AS DOUBLE PRECISION) / 10000 AS highRate,"
+            + " CAST(b.low_scaled AS DOUBLE PRECISION) / 10000 AS lowRate,"
+            + " CAST(c.close_scaled AS DOUBLE PRECISION) / 10000 AS closeRate,"
+            + " b.weighted_sum / b.tick_count AS averageRate, b.tick_count AS tickCount"
+            + " FROM (SELECT t.bucket, MIN(t.bucket_start) AS first_start, MAX(t.bucket_start) AS last_start,"
+            + "   MAX(t.high_scaled) AS high_scaled, MIN(t.low_scaled) AS low_scaled,"
+            + "   SUM(t.average_rate * t.tick_count) AS weighted_sum, SUM(t.tick_count) AS tick_count"
+            + "   FROM (SELECT bucket_start, high_scaled, low_scaled, average_rate, tick_count,"
+            + "     bucket_start / :bucketSeconds AS bucket"
+            + "     FROM coin_desk_rollup"
+            + "     WHERE currency_type = :currencyType AND resolution = :resolution"
+            + "     AND bucket_start >= :from AND bucket_start < :to) t"
+            + "   GROUP BY t.bucket) b"
+            + " JOIN coin_desk_rollup o ON o.currency_type = :currencyType AND o.resolution = :resolution"
+            + "   AND o.bucket_start = b.first_start"
+            + " JOIN coin_desk_rollup c ON c.currency_type = :currencyType AND c.resolution = :resolution"
+            + "   AND c.bucket_start = b.last_start"
+            + " ORDER BY b.bucket",
+            nativeQuery = true)
+    List<RateCandle> findCandles(@Param("currencyType") String currencyType,
+                                 @Param("resolution") String resolution,
+                                 @Param("bucketSeconds") long bucketSeconds,
+                                 @Param("from") long from,
+                                 @Param("to") long to);
+
+    /**
+     * 依時間順序逐筆讀取指定幣別與粒度的區間起點（epoch 秒數）與收盤價，區間起點介於 [from, to]。
+     * 需在交易中使用並於結束後關閉 Stream。
+     */
+    @Query(value = "SELECT bucket_start, close_scaled FROM coin_desk_rollup"
+            + " WHERE currency_type = :currencyType AND resolution = :resolution"
+            + " AND bucket_start >= :from AND bucket_start <= :to"
+            + " ORDER BY bucket_start",
+            nativeQuery = true)
+    Stream<Object[]> streamCloses(@Param("currencyType") String currencyType,
+                                  @Param("resolution") String resolution,
+                                  @Param("from") long from,
+                                  @Param("to") long to);
+
+    /**
+     * 指定幣別與粒度中區間起點介於 (from, to]（epoch 秒數）的最後一筆區間起點與收盤價。
+     * H2 無法由索引尾端反向讀取，下限讓查詢只掃描區間內的索引。
+     */
+    @Query(value = "SELECT bucket_start, close_scaled FROM coin_desk_rollup"
+            + " WHERE currency_type = :currencyType AND resolution = :resolution"
+            + " AND bucket_start > :from AND bucket_start <= :to"
+            + " ORDER BY bucket_start DESC LIMIT 1",
+            nativeQuery = true)
+    List<Object[]> findLastClose(@Param("currencyType") String currencyType,
+                                 @Param("resolution") String resolution,
+                                 @Param("from") long from,
+                                 @Param("to") long to);
+}
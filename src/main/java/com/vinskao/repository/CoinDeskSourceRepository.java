@@ -0,0 +1,10 @@
+package com.vinskao.repository;
+
+import com.vinskao.domain.CoinDeskSource;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface CoinDeskSourceRepository extends JpaRepository<CoinDeskSource, Long> {
+    Optional<CoinDeskSource> findFirstByChartNameAndDisclaimer(String chartName, String disclaimer);
+}
@@ -0,0 +1,322 @@
+package com.vinskao.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.exc.StreamReadException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vinskao.exception.CoinDeskBadRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * 批次換算。
+ * 以 Jackson streaming API 直接讀寫 JSON，不為每筆資料建立物件；整批請求使用同一份交叉匯率快照。
+ * 支援兩種請求格式：
+ * <ul>
+ *     <li>逐筆：{@code [{"amount": 1.5, "from": "BTC", "to": "USD"}, ...]}，邊讀邊輸出結果</li>
+ *     <li>欄位：{@code {"amounts": [1.5, 2], "from": "BTC", "to": ["USD", "EUR"]}}，
+ *     from/to 可為單一代碼或與 amounts 等長的陣列</li>
+ * </ul>
+ * 回應為 {@code {"asOf": ..., "results": [...], "unavailable": n}}，
+ * results 依請求順序排列，未知幣別或尚無報價的項目為 null。
+ * 開始輸出前發現的格式錯誤（非陣列或物件、欄位格式缺少欄位或長度不符、逐筆格式的第一筆無法解析）回應 400；
+ * 逐筆格式在輸出開始後才讀到錯誤時，改為結束 results 並附上 {@code "error": "..."}，回應仍為完整的 JSON。
+ */
+@Service
+public class BatchConversionService {
+    private static final String TUPLES_EXPECTED = "Expected an array of {amount, from, to} objects";
+    private static final char[][] CODES = new char[CrossRateMatrix.SIZE][];
+    // 開放定址雜湊表，存放 CODES 索引 + 1（0 表示空位），查詢時間不隨幣別數量增加
+    private static final int[] SLOTS;
+    private static final int MASK;
+
+    static {
+        SLOTS = new int[Integer.highestOneBit(CrossRateMatrix.SIZE * 4 - 1) << 1];
+        MASK = SLOTS.length - 1;
+        for (int i = 0; i < CrossRateMatrix.SIZE; i++) {
+            CODES[i] = CrossRateMatrix.codeOf(i).toCharArray();
+            int slot = hash(CODES[i], 0, CODES[i].length) & MASK;
+            while (SLOTS[slot] != 0) {
+                slot = (slot + 1) & MASK;
+            }
+            SLOTS[slot] = i + 1;
+        }
+    }
+
+    @Autowired
+    private CurrencyConversionService currencyConversionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 讀取批次換算請求並將結果寫入輸出串流。
+     *
+     * @throws CoinDeskBadRequestException 開始輸出前發現請求格式不正確
+     */
+    public void convert(InputStream in, OutputStream out) throws IOException {
+        CrossRateMatrix matrix = currencyConversionService.getMatrix();
+        JsonFactory factory = objectMapper.getFactory();
+        try (JsonParser parser = factory.createParser(in)) {
+            Columns columns = null;
+            Tuple first = null;
+            try {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY) {
+                    // 第一筆在開始輸出前完整讀取，整份請求格式錯誤時仍可回應 400
+                    token = parser.nextToken();
+                    if (token == JsonToken.START_OBJECT) {
+                        first = readTuple(parser, new Tuple());
+                    } else if (token != JsonToken.END_ARRAY) {
+                        throw new CoinDeskBadRequestException(TUPLES_EXPECTED);
+                    }
+                } else if (token == JsonToken.START_OBJECT) {
+                    columns = readColumns(parser);
+                } else {
+                    throw new CoinDeskBadRequestException("Expected a JSON array or object");
+                }
+            } catch (StreamReadException e) {
+                throw new CoinDeskBadRequestException("Malformed JSON request: " + e.getOriginalMessage(), e);
+            }
+            try (JsonGenerator generator = factory.createGenerator(out)) {
+                if (columns != null) {
+                    convertColumns(columns, matrix, generator);
+                } else {
+                    convertTuples(parser, first, matrix, generator);
+                }
+            }
+        }
+    }
+
+    /**
+     * 逐筆換算並輸出，first 為開始輸出前已讀取的第一筆，空陣列時為 null；
+     * 之後讀到的格式錯誤寫入結尾的 error 欄位。
+     */
+    private void convertTuples(JsonParser parser, Tuple first, CrossRateMatrix matrix,
+                               JsonGenerator generator) throws IOException {
+        writeStart(generator, matrix);
+        if (first == null) {
+            writeEnd(generator, 0);
+            return;
+        }
+        int unavailable = 0;
+        Tuple tuple = first;
+        JsonToken token;
+        try {
+            do {
+                if (!writeResult(generator, matrix, tuple.amount, tuple.from, tuple.to)) {
+                    unavailable++;
+                }
+                token = parser.nextToken();
+                if (token == JsonToken.START_OBJECT) {
+                    readTuple(parser, tuple);
+                }
+            } while (token == JsonToken.START_OBJECT);
+        } catch (StreamReadException e) {
+            writeError(generator, unavailable, "Malformed JSON request: " + e.getOriginalMessage());
+            return;
+        }
+        if (token != JsonToken.END_ARRAY) {
+            writeError(generator, unavailable, TUPLES_EXPECTED);
+            return;
+        }
+        writeEnd(generator, unavailable);
+    }
+
+    /**
+     * 讀取目前 START_OBJECT 開始的一筆 {amount, from, to}，沿用同一個 tuple 以免每筆配置物件。
+     */
+    private static Tuple readTuple(JsonParser parser, Tuple tuple) throws IOException {
+        tuple.amount = Double.NaN;
+        tuple.from = -1;
+        tuple.to = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            // 欄位名稱由 Jackson 正規化，不會為每筆資料配置新字串
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("amount".equals(field)) {
+                tuple.amount = parser.getValueAsDouble(Double.NaN);
+            } else if ("from".equals(field)) {
+                tuple.from = indexOf(parser);
+            } else if ("to".equals(field)) {
+                tuple.to = indexOf(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return tuple;
+    }
+
+    private void convertColumns(Columns columns, CrossRateMatrix matrix, JsonGenerator generator) throws IOException {
+        int count = columns.amountCount;
+        int[] from = columns.from;
+        int[] to = columns.to;
+        writeStart(generator, matrix);
+        int unavailable = 0;
+        for (int i = 0; i < count; i++) {
+            int fromIndex = from.length == 1 ? from[0] : from[i];
+            int toIndex = to.length == 1 ? to[0] : to[i];
+            if (!writeResult(generator, matrix, columns.amounts[i], fromIndex, toIndex)) {
+                unavailable++;
+            }
+        }
+        writeEnd(generator, unavailable);
+    }
+
+    private Columns readColumns(JsonParser parser) throws IOException {
+        Columns columns = new Columns();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("amounts".equals(field)) {
+                if (value != JsonToken.START_ARRAY) {
+                    throw new CoinDeskBadRequestException("amounts must be an array");
+                }
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    columns.addAmount(parser.getValueAsDouble(Double.NaN));
+                }
+            } else if ("from".equals(field)) {
+                columns.from = readCodes(parser);
+            } else if ("to".equals(field)) {
+                columns.to = readCodes(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (columns.from == null || columns.to == null) {
+            throw new CoinDeskBadRequestException("from and to are required");
+        }
+        checkLength("from", columns.from, columns.amountCount);
+        checkLength("to", columns.to, columns.amountCount);
+        return columns;
+    }
+
+    private static int[] readCodes(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            return new int[]{indexOf(parser)};
+        }
+        int[] codes = new int[16];
+        int count = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (count == codes.length) {
+                codes = Arrays.copyOf(codes, count * 2);
+            }
+            codes[count++] = indexOf(parser);
+        }
+        return Arrays.copyOf(codes, count);
+    }
+
+    private static void checkLength(String field, int[] codes, int amountCount) {
+        if (codes.length != 1 && codes.length != amountCount) {
+            throw new CoinDeskBadRequestException(field + " must be a single code or have the same length as amounts");
+        }
+    }
+
+    /**
+     * 比對目前字串值與已知幣別代碼，直接使用 parser 的字元緩衝區而不建立字串。
+     *
+     * @return 矩陣索引，未知代碼或非字串時回傳 -1
+     */
+    static int indexOf(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return -1;
+        }
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        int slot = hash(text, offset, length) & MASK;
+        int entry;
+        while ((entry = SLOTS[slot]) != 0) {
+            char[] code = CODES[entry - 1];
+            if (code.length == length) {
+                int j = 0;
+                while (j < length && text[offset + j] == code[j]) {
+                    j++;
+                }
+                if (j == length) {
+                    return entry - 1;
+                }
+            }
+            slot = (slot + 1) & MASK;
+        }
+        return -1;
+    }
+
+    private static int hash(char[] text, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + text[offset + i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static void writeStart(JsonGenerator generator, CrossRateMatrix matrix) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("asOf", matrix.getAsOf());
+        generator.writeArrayFieldStart("results");
+    }
+
+    private static void writeEnd(JsonGenerator generator, int unavailable) throws IOException {
+        generator.writeEndArray();
+        generator.writeNumberField("unavailable", unavailable);
+        generator.writeEndObject();
+    }
+
+    /**
+     * 輸出開始後讀到格式錯誤時結束回應：已輸出的結果保留，並以 error 欄位說明原因。
+     */
+    private static void writeError(JsonGenerator generator, int unavailable, String message) throws IOException {
+        generator.writeEndArray();
+        generator.writeNumberField("unavailable", unavailable);
+        generator.writeStringField("error", message);
+        generator.writeEndObject();
+    }
+
+    /**
+     * @return 是否成功換算；失敗時寫入 null
+     */
+    private static boolean writeResult(JsonGenerator generator, CrossRateMatrix matrix,
+                                       double amount, int from, int to) throws IOException {
+        double result = from < 0 || to < 0 ? Double.NaN : amount * matrix.rate(from, to);
+        if (Double.isNaN(result) || Double.isInfinite(result)) {
+            generator.writeNull();
+            return false;
+        }
+        generator.writeNumber(result);
+        return true;
+    }
+
+    /**
+     * 逐筆格式中目前讀取的一筆。
+     */
+    private static final class Tuple {
+        private double amount;
+        private int from;
+        private int to;
+    }
+
+    /**
+     * 欄位格式請求的解析結果，金額以可成長的 double 陣列保存。
+     */
+    private static final class Columns {
+        private double[] amounts = new double[256];
+        private int amountCount;
+        private int[] from;
+        private int[] to;
+
+        void addAmount(double amount) {
+            if (amountCount == amounts.length) {
+                amounts = Arrays.copyOf(amounts, amountCount * 2);
+            }
+            amounts[amountCount++] = amount;
+        }
+    }
+}
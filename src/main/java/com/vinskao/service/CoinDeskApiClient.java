@@ -0,0 +1,171 @@
+package com.vinskao.service;
+
+import com.vinskao.dto.CoinDeskResponse;
+import com.vinskao.source.FetchedRates;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 上游 CoinDesk API 的條件式擷取。
+ * 記住上次回應的 ETag / Last-Modified，上游內容未變更（304）時不解析也不寫入；
+ * 新的驗證資訊隨回應一併回傳，要等呼叫端確認該次回應已寫入並呼叫 FetchedRates.commit 才會生效；
+ * 寫入失敗或回應因逾時被捨棄時下一次擷取仍帶舊的驗證資訊，上游會再回應完整內容而不是 304。
+ * 每次請求的延遲同時記錄於 coindesk.fetch 計時器。
+ * 連線失敗、逾時、5xx 與 429 會以指數退避重試最多 coindesk.api.max-retries 次，
+ * 重試期間被中斷（超過 RateSourceAggregator 的期限）時不再重試。
+ */
+@Component
+public class CoinDeskApiClient {
+    private static final Logger logger = LoggerFactory.getLogger(CoinDeskApiClient.class);
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${coindesk.api.url}")
+    private String apiUrl;
+
+    @Value("${coindesk.api.max-retries:2}")
+    private int maxRetries;
+
+    @Value("${coindesk.api.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    private volatile Validators committed = Validators.NONE;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+    private final AtomicLong lastNanos = new AtomicLong();
+
+    /**
+     * 擷取最新資料，暫時性的錯誤會重試。
+     *
+     * @return 上游回應與其驗證資訊；內容自上次確認的擷取後未變更時回傳 null
+     */
+    public FetchedRates fetch() {
+        long backoffMs = retryBackoffMs;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return fetchOnce();
+            } catch (RestClientException e) {
+                if (attempt >= maxRetries || !isRetryable(e)) {
+                    throw e;
+                }
+                logger.info("CoinDesk fetch failed ({}), retrying in {} ms", e.getMessage(), backoffMs);
+                retries.increment();
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                backoffMs *= 2;
+            }
+        }
+    }
+
+    static boolean isRetryable(RestClientException e) {
+        if (e instanceof ResourceAccessException || e instanceof HttpServerErrorException) {
+            return true;
+        }
+        return e instanceof HttpClientErrorException
+                && ((HttpClientErrorException) e).getStatusCode() == HttpStatus.TOO_MANY_REQUESTS;
+    }
+
+    private FetchedRates fetchOnce() {
+        logger.info("Fetching data from API URL: {}", apiUrl);
+        HttpHeaders headers = new HttpHeaders();
+        Validators validators = committed;
+        if (validators.etag != null) {
+            headers.setIfNoneMatch(validators.etag);
+        }
+        if (validators.lastModified != null) {
+            headers.set(HttpHeaders.IF_MODIFIED_SINCE, validators.lastModified);
+        }
+        long start = System.nanoTime();
+        String status = "error";
+        try {
+            ResponseEntity<CoinDeskResponse> response = restTemplate.exchange(
+                    apiUrl, HttpMethod.GET, new HttpEntity<>(headers), CoinDeskResponse.class);
+            if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                status = "not_modified";
+                notModified.increment();
+                logger.info("CoinDesk data not modified since last fetch");
+                return null;
+            }
+            if (response.getBody() == null) {
+                logger.error("Failed to fetch data from API");
+                throw new RuntimeException("Failed to fetch data from API");
+            }
+            status = "ok";
+            Validators received = new Validators(response.getHeaders().getETag(),
+                    response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED));
+            return new FetchedRates(response.getBody(), () -> committed = received);
+        } catch (RestClientException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            record(System.nanoTime() - start, status);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long count = requests.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", count);
+        stats.put("notModified", notModified.sum());
+        stats.put("failures", failures.sum());
+        stats.put("retries", retries.sum());
+        stats.put("lastLatencyMs", TimeUnit.NANOSECONDS.toMillis(lastNanos.get()));
+        stats.put("maxLatencyMs", TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+        stats.put("avgLatencyMs", count == 0 ? 0L : TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() / count));
+        return stats;
+    }
+
+    private void record(long elapsedNanos, String status) {
+        meterRegistry.timer("coindesk.fetch", "status", status).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        requests.increment();
+        totalNanos.add(elapsedNanos);
+        maxNanos.accumulate(elapsedNanos);
+        lastNanos.set(elapsedNanos);
+    }
+
+    private static final class Validators {
+        private static final Validators NONE = new Validators(null, null);
+
+        private final String etag;
+        private final String lastModified;
+
+        Validators(String etag, String lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+}
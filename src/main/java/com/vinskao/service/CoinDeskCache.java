@@ -0,0 +1,123 @@
+package com.vinskao.service;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.enums.CurrencyType;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 各幣別最新一筆幣價的記憶體快取。
+ * 以 CurrencyType.ordinal() 為索引存放於 AtomicReferenceArray，讀取無鎖且不配置物件。
+ */
+@Component
+public class CoinDeskCache {
+    private final AtomicReferenceArray<CoinDesk> latest = new AtomicReferenceArray<>(CurrencyType.size());
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 讀取指定幣別的最新幣價，並累計命中/未命中次數。
+     *
+     * @return 最新幣價，尚未快取時回傳 null
+     */
+    public CoinDesk get(CurrencyType currencyType) {
+        CoinDesk coinDesk = latest.get(currencyType.ordinal());
+        if (coinDesk == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return coinDesk;
+    }
+
+    /**
+     * 讀取指定幣別的最新幣價但不計入命中統計，供內部使用（例如監控指標）。
+     */
+    public CoinDesk peek(CurrencyType currencyType) {
+        return latest.get(currencyType.ordinal());
+    }
+
+    /**
+     * 無條件放入最新幣價，供 API 擷取流程使用。
+     */
+    public void put(CoinDesk coinDesk) {
+        if (coinDesk.getCurrencyType() != null) {
+            latest.set(coinDesk.getCurrencyType().ordinal(), coinDesk);
+        }
+    }
+
+    /**
+     * 依 CRUD 寫入結果更新快取：僅在資料不比目前快取舊時取代，
+     * 若該筆資料原本快取在其他幣別下（幣別被修改），則一併移除。
+     */
+    public void refresh(CoinDesk coinDesk) {
+        if (coinDesk.getId() != null) {
+            for (int i = 0; i < latest.length(); i++) {
+                CoinDesk current = latest.get(i);
+                if (current != null && coinDesk.getId().equals(current.getId())
+                        && coinDesk.getCurrencyType() != current.getCurrencyType()) {
+                    latest.compareAndSet(i, current, null);
+                }
+            }
+        }
+        if (coinDesk.getCurrencyType() == null) {
+            return;
+        }
+        int index = coinDesk.getCurrencyType().ordinal();
+        while (true) {
+            CoinDesk current = latest.get(index);
+            if (current != null && !isNewerOrSame(coinDesk, current)) {
+                return;
+            }
+            if (latest.compareAndSet(index, current, coinDesk)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 移除指定 ID 的快取資料，下次讀取時會重新由資料庫載入。
+     */
+    public void evict(Long id) {
+        for (int i = 0; i < latest.length(); i++) {
+            CoinDesk current = latest.get(i);
+            if (current != null && id.equals(current.getId())) {
+                latest.compareAndSet(i, current, null);
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < latest.length(); i++) {
+            if (latest.get(i) != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 依建立時間判斷新舊，相同或未知時才比較 ID；匯入的歷史資料 ID 較大但建立時間較早。
+     */
+    private static boolean isNewerOrSame(CoinDesk candidate, CoinDesk current) {
+        if (candidate.getCreatedAt() != null && current.getCreatedAt() != null
+                && !candidate.getCreatedAt().isEqual(current.getCreatedAt())) {
+            return candidate.getCreatedAt().isAfter(current.getCreatedAt());
+        }
+        if (candidate.getId() == null || current.getId() == null) {
+            return true;
+        }
+        return candidate.getId() >= current.getId();
+    }
+}
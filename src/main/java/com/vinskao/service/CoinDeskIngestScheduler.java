@@ -0,0 +1,217 @@
+package com.vinskao.service;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.enums.CurrencyType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * CoinDesk API 背景輪詢排程。
+ * 使用獨立的單執行緒 executor，不與請求處理共用執行緒；應用程式啟動完成後才開始第一次擷取。
+ * 每次排程時向 Environment 查詢 coindesk.ingest.* 設定（設定檔只在啟動時載入），失敗時以指數退避延長間隔，並加入隨機抖動。
+ * 第一次擷取前會先以資料庫中的最新資料預熱快取，即使停用擷取也會執行。
+ * 上游無法連線時讀取端持續取得上次已知的幣價，並以 getSnapshotAgeMillis 標示其時間；
+ * 超過 coindesk.ingest.stale-after-ms 時讀取端可呼叫 revalidate 在背景提前補一次擷取（stale-while-revalidate）。
+ */
+@Component
+public class CoinDeskIngestScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(CoinDeskIngestScheduler.class);
+
+    @Autowired
+    private CoinDeskService coinDeskService;
+
+    @Autowired
+    private CoinDeskCache coinDeskCache;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "coindesk-ingest");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 只會在 ingest 執行緒上讀寫
+    private int consecutiveFailures;
+
+    // 最近一次確認快取與上游一致的時間（epoch 毫秒）：擷取成功（含未變更）時更新，預熱時為最新一筆的建立時間
+    private volatile long verifiedAtMillis;
+    private volatile long lastAttemptMillis;
+    private final AtomicBoolean revalidating = new AtomicBoolean();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("coindesk.snapshot.age", this, CoinDeskIngestScheduler::snapshotAgeSeconds)
+                .description("Seconds since the served rates were last confirmed against the upstream")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.execute(this::warmUp);
+        if (!isEnabled()) {
+            logger.info("CoinDesk ingest scheduler is disabled");
+            return;
+        }
+        long initialDelayMs = environment.getProperty("coindesk.ingest.initial-delay-ms", Long.class, 0L);
+        logger.info("Starting CoinDesk ingest scheduler, first fetch in {} ms", initialDelayMs);
+        schedule(initialDelayMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    void warmUp() {
+        try {
+            coinDeskService.warmUp();
+            for (CurrencyType currencyType : CurrencyType.values()) {
+                CoinDesk coinDesk = coinDeskCache.peek(currencyType);
+                if (coinDesk != null && coinDesk.getCreatedAt() != null) {
+                    verifiedAtMillis = Math.max(verifiedAtMillis, toEpochMillis(coinDesk.getCreatedAt()));
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("CoinDesk cache warm-up failed: {}", e.getMessage());
+        }
+    }
+
+    void runOnce() {
+        try {
+            fetchOnce();
+        } finally {
+            schedule(nextDelayMs());
+        }
+    }
+
+    private void fetchOnce() {
+        lastAttemptMillis = System.currentTimeMillis();
+        try {
+            coinDeskService.fetchAndSaveFromApi();
+            consecutiveFailures = 0;
+            verifiedAtMillis = System.currentTimeMillis();
+        } catch (RuntimeException e) {
+            consecutiveFailures++;
+            logger.warn("CoinDesk ingest failed ({} consecutive failures): {}", consecutiveFailures, e.getMessage());
+        }
+    }
+
+    /**
+     * 讀取端發現快照過期時呼叫：在 ingest 執行緒上提前補一次擷取，不改變原本的排程，也不阻塞呼叫端。
+     * 同時最多一次，且距上次擷取不足 coindesk.ingest.revalidate-min-interval-ms 時略過；
+     * 上游持續失敗時由斷路器直接回絕，不會對上游送出請求。
+     */
+    public void revalidate() {
+        long minIntervalMs = environment.getProperty("coindesk.ingest.revalidate-min-interval-ms", Long.class, 10000L);
+        if (!isEnabled() || System.currentTimeMillis() - lastAttemptMillis < minIntervalMs
+                || !revalidating.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    fetchOnce();
+                } finally {
+                    revalidating.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            revalidating.set(false);
+        }
+    }
+
+    /**
+     * 快照距今的毫秒數：由最近一次確認與上游一致的時間起算，快照本身較新時以其建立時間起算。
+     *
+     * @param createdAt 快照的建立時間，可為 null
+     * @return 無從得知時回傳 -1
+     */
+    public long getSnapshotAgeMillis(LocalDateTime createdAt) {
+        long verifiedAt = verifiedAtMillis;
+        if (createdAt != null) {
+            verifiedAt = Math.max(verifiedAt, toEpochMillis(createdAt));
+        }
+        return verifiedAt == 0 ? -1 : Math.max(0L, System.currentTimeMillis() - verifiedAt);
+    }
+
+    private double snapshotAgeSeconds() {
+        long ageMillis = getSnapshotAgeMillis(null);
+        return ageMillis < 0 ? Double.NaN : ageMillis / 1000.0;
+    }
+
+    public boolean isStale(long ageMillis) {
+        return ageMillis > environment.getProperty("coindesk.ingest.stale-after-ms", Long.class, 180000L);
+    }
+
+    private boolean isEnabled() {
+        return environment.getProperty("coindesk.ingest.enabled", Boolean.class, true);
+    }
+
+    // createdAt 由 LocalDateTime.now() 產生，以系統時區換算
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    long nextDelayMs() {
+        long intervalMs = environment.getProperty("coindesk.ingest.interval-ms", Long.class, 60000L);
+        long maxBackoffMs = environment.getProperty("coindesk.ingest.max-backoff-ms", Long.class, 600000L);
+        long jitterMs = environment.getProperty("coindesk.ingest.jitter-ms", Long.class, 1000L);
+        return computeDelayMs(intervalMs, maxBackoffMs, consecutiveFailures)
+                + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0L);
+    }
+
+    /**
+     * 計算下一次擷取前的延遲（不含抖動）：成功時為固定間隔，
+     * 連續失敗時每次加倍，最多到 maxBackoffMs。
+     */
+    static long computeDelayMs(long intervalMs, long maxBackoffMs, int consecutiveFailures) {
+        if (consecutiveFailures <= 0) {
+            return intervalMs;
+        }
+        int shift = Math.min(consecutiveFailures, 30);
+        long backoff = intervalMs << shift;
+        if (backoff < intervalMs || backoff > maxBackoffMs) {
+            return Math.max(intervalMs, maxBackoffMs);
+        }
+        return backoff;
+    }
+
+    private void schedule(long delayMs) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        try {
+            executor.schedule(this::runOnce, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("CoinDesk ingest scheduler already stopped");
+        }
+    }
+}
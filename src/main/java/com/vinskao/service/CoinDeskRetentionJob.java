@@ -0,0 +1,146 @@
+package com.vinskao.service;
+
+import com.vinskao.enums.RollupResolution;
+import com.vinskao.repository.CoinDeskIdempotencyKeyRepository;
+import com.vinskao.repository.CoinDeskRepository;
+import com.vinskao.repository.CoinDeskRollupRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 原始幣價的保留與彙總排程。
+ * 建立時間早於保留期限（以日為單位對齊午夜）的資料，先依分鐘、小時、日彙總寫入 coin_desk_rollup，
+ * 再以每次最多 delete-chunk-size 筆的短交易分批刪除，避免長時間持有鎖；各幣別最新的一筆不論建立時間皆保留。
+ * 同時刪除超過 coindesk.idempotency.ttl-hours 的 Idempotency-Key。
+ * 使用獨立的單執行緒 executor，不影響擷取與請求處理。
+ */
+@Component
+public class CoinDeskRetentionJob {
+    private static final Logger logger = LoggerFactory.getLogger(CoinDeskRetentionJob.class);
+
+    @Autowired
+    private CoinDeskRepository coinDeskRepository;
+
+    @Autowired
+    private CoinDeskRollupRepository coinDeskRollupRepository;
+
+    @Autowired
+    private CoinDeskIdempotencyKeyRepository coinDeskIdempotencyKeyRepository;
+
+    @Autowired
+    private SerializedPayloadCache serializedPayloadCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${coindesk.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${coindesk.retention.raw-days:7}")
+    private int rawDays;
+
+    @Value("${coindesk.retention.initial-delay-ms:60000}")
+    private long initialDelayMs;
+
+    @Value("${coindesk.retention.interval-ms:3600000}")
+    private long intervalMs;
+
+    @Value("${coindesk.retention.delete-chunk-size:1000}")
+    private int deleteChunkSize;
+
+    @Value("${coindesk.idempotency.ttl-hours:24}")
+    private int idempotencyTtlHours;
+
+    private volatile LocalDateTime rolledUpBefore;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "coindesk-retention");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            logger.info("CoinDesk retention job is disabled");
+            return;
+        }
+        logger.info("Starting CoinDesk retention job, keeping {} days of raw ticks", rawDays);
+        executor.scheduleWithFixedDelay(this::runSafely, initialDelayMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private void runSafely() {
+        try {
+            run(getRawCutoff());
+            int expiredKeys = coinDeskIdempotencyKeyRepository.deleteCreatedBefore(
+                    LocalDateTime.now().minusHours(idempotencyTtlHours));
+            logger.debug("Deleted {} expired idempotency keys", expiredKeys);
+        } catch (RuntimeException e) {
+            logger.warn("CoinDesk retention run failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 目前的保留分界：早於此時間的原始資料已經或即將被彙總並刪除。停用時回傳 null。
+     */
+    public LocalDateTime getRawCutoff() {
+        return enabled ? LocalDate.now().minusDays(rawDays).atStartOfDay() : null;
+    }
+
+    /**
+     * 彙總與原始資料的分界：早於此時間的區段已彙總，其原始資料除各幣別最新一筆外皆已刪除，
+     * 查詢應改用彙總資料。為本次啟動最近一輪完成時的保留分界，尚未完成任何一輪時為目前的保留分界；停用時回傳 null。
+     */
+    public LocalDateTime getRolledUpBefore() {
+        if (!enabled) {
+            return null;
+        }
+        LocalDateTime completed = rolledUpBefore;
+        return completed != null ? completed : getRawCutoff();
+    }
+
+    /**
+     * 彙總並刪除建立時間早於 cutoff 的原始資料。
+     *
+     * @return 刪除的原始資料筆數
+     */
+    long run(LocalDateTime cutoff) {
+        for (RollupResolution resolution : RollupResolution.values()) {
+            int inserted = coinDeskRollupRepository.rollUp(resolution.name(), resolution.getSeconds(), cutoff);
+            logger.debug("Rolled up {} {} buckets before {}", inserted, resolution, cutoff);
+        }
+
+        long deleted = 0;
+        int chunk;
+        do {
+            chunk = coinDeskRepository.deleteChunkCreatedBefore(cutoff, deleteChunkSize);
+            deleted += chunk;
+        } while (chunk >= deleteChunkSize);
+
+        rolledUpBefore = cutoff;
+        meterRegistry.counter("coindesk.retention.deleted.rows").increment(deleted);
+        if (deleted > 0) {
+            serializedPayloadCache.invalidateAll();
+            logger.info("Rolled up and deleted {} CoinDesk rows created before {}", deleted, cutoff);
+        }
+        return deleted;
+    }
+}
@@ -1,58 +1,217 @@
 package com.vinskao.service;
 
 import com.vinskao.domain.CoinDesk;
+import com.vinskao.domain.CoinDeskIdempotencyKey;
+import com.vinskao.domain.CoinDeskSource;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vinskao.dto.CoinDeskPage;
+import com.vinskao.dto.CoinDeskPatch;
 import com.vinskao.dto.CoinDeskResponse;
+import com.vinskao.dto.CoinDeskSummary;
+import com.vinskao.dto.RateCandle;
+import com.vinskao.dto.SerializedPayload;
+import com.vinskao.enums.CandleInterval;
+import com.vinskao.exception.CoinDeskBadRequestException;
+import com.vinskao.exception.CoinDeskConflictException;
+import com.vinskao.exception.CoinDeskGoneException;
+import com.vinskao.exception.CoinDeskRateUnavailableException;
+import com.vinskao.mapper.CoinDeskMapper;
+import com.vinskao.repository.CoinDeskIdempotencyKeyRepository;
 import com.vinskao.repository.CoinDeskRepository;
+import com.vinskao.repository.CoinDeskRollupRepository;
+import com.vinskao.source.FetchedRates;
+import com.vinskao.source.RateSourceAggregator;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.web.client.RestTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import org.springframework.beans.BeanUtils;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
 import com.vinskao.enums.CurrencyType;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 
 @Service
 public class CoinDeskService {
     private static final Logger logger = LoggerFactory.getLogger(CoinDeskService.class);
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
     
     @Autowired
     private CoinDeskRepository coinDeskRepository;
     
     @Autowired
-    private RestTemplate restTemplate;
+    private CoinDeskRollupRepository coinDeskRollupRepository;
+
+    @Autowired
+    private CoinDeskIdempotencyKeyRepository coinDeskIdempotencyKeyRepository;
+
+    @Autowired
+    private CoinDeskApiClient coinDeskApiClient;
+
+    @Autowired
+    private RateSourceAggregator rateSourceAggregator;
+
+    @Autowired
+    private CoinDeskCache coinDeskCache;
+
+    @Autowired
+    private CoinDeskWriteBuffer coinDeskWriteBuffer;
+
+    @Autowired
+    private CoinDeskSourceRegistry coinDeskSourceRegistry;
+
+    @Autowired
+    private IngestChangeDetector ingestChangeDetector;
+
+    @Autowired
+    private CoinDeskRetentionJob coinDeskRetentionJob;
+
+    @Autowired
+    private CurrencyConversionService currencyConversionService;
+
+    @Autowired
+    private RateHistoryIndex rateHistoryIndex;
+
+    @Autowired
+    private RateUpdateBroadcaster rateUpdateBroadcaster;
+
+    @Autowired
+    private SerializedPayloadCache serializedPayloadCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
     
-    @Value("${coindesk.api.url}")
-    private String apiUrl;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CoinDeskMapper coinDeskMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${coindesk.payload.all-max-rows:10000}")
+    private int allMaxRows = 10000;
 
     @PostConstruct
-    public void init() {
-        logger.info("Application starting up, fetching initial CoinDesk data...");
-        fetchAndSaveFromApi();
+    void registerWriteBufferListener() {
+        coinDeskWriteBuffer.setFlushListener(this::publishSaved);
     }
 
+    /**
+     * 擷取並保存最新資料，與上次寫入相同的幣別資料會被略過。
+     * 每次執行的耗時依結果（written / noop / error）記錄於 coindesk.ingest 計時器。
+     *
+     * @return 最後一筆保存的資料（啟用寫入緩衝時為尚未寫入的資料）；上游內容未變更、沒有 bpi 報價或沒有任何幣別變動時回傳 null
+     */
     CoinDesk fetchAndSaveFromApi() {
-        logger.info("Fetching data from API URL: {}", apiUrl);
-        CoinDeskResponse response = restTemplate.getForObject(apiUrl, CoinDeskResponse.class);
-        if (response == null) {
-            logger.error("Failed to fetch data from API");
-            throw new RuntimeException("Failed to fetch data from API");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            CoinDesk saved = doFetchAndSaveFromApi();
+            outcome = saved == null ? "noop" : "written";
+            return saved;
+        } finally {
+            sample.stop(meterRegistry.timer("coindesk.ingest", "outcome", outcome));
         }
+    }
 
-        // 創建 USD 記錄
-        CoinDesk usdCoinDesk = createCoinDeskFromResponse(response, CurrencyType.USD, response.getBpi().getUSD());
-        coinDeskRepository.save(usdCoinDesk);
+    private CoinDesk doFetchAndSaveFromApi() {
+        FetchedRates fetched = rateSourceAggregator.fetch();
+        if (fetched == null) {
+            ingestChangeDetector.recordNoOp();
+            return null;
+        }
+        CoinDeskResponse response = fetched.getResponse();
+        if (response.getBpi() == null || response.getBpi().isEmpty()) {
+            // 不確認這次的回應，下一輪仍會重新取得完整內容
+            logger.warn("Rate sources returned no bpi quotes, nothing to persist");
+            ingestChangeDetector.recordNoOp();
+            return null;
+        }
 
-        // 創建 GBP 記錄
-        CoinDesk gbpCoinDesk = createCoinDeskFromResponse(response, CurrencyType.GBP, response.getBpi().getGBP());
-        coinDeskRepository.save(gbpCoinDesk);
+        // 各幣別中有變動的記錄於同一交易中批次寫入，不在幣別清單中的代碼略過
+        List<CoinDesk> coinDesks = new ArrayList<>(response.getBpi().size());
+        for (Map.Entry<String, CoinDeskResponse.Currency> entry : response.getBpi().entrySet()) {
+            CurrencyType currencyType = CurrencyType.find(entry.getKey());
+            if (currencyType == null) {
+                logger.debug("Skipping unknown currency code {}", entry.getKey());
+                continue;
+            }
+            addIfChanged(coinDesks, createCoinDeskFromResponse(response, currencyType, entry.getValue()));
+        }
+        if (coinDesks.isEmpty()) {
+            logger.info("CoinDesk quotes unchanged since {}, nothing to persist", response.getTime().getUpdatedISO());
+            ingestChangeDetector.recordNoOp();
+            fetched.commit();
+            return null;
+        }
 
-        // 創建 EUR 記錄
-        CoinDesk eurCoinDesk = createCoinDeskFromResponse(response, CurrencyType.EUR, response.getBpi().getEUR());
-        return coinDeskRepository.save(eurCoinDesk);
+        if (coinDeskWriteBuffer.isEnabled()) {
+            // 緩衝中的資料尚未寫入、沒有 ID，寫入後才由 publishSaved 更新快取並推播；
+            // 先記錄為比對基準，避免下次輪詢重複加入相同報價
+            coinDesks.forEach(ingestChangeDetector::record);
+            coinDeskWriteBuffer.append(coinDesks);
+            // 緩衝寫入失敗時保留資料重試，交給緩衝後即可視為已接收
+            fetched.commit();
+            return coinDesks.get(coinDesks.size() - 1);
+        }
+        List<CoinDesk> saved = coinDeskRepository.saveAll(coinDesks);
+        // 寫入成功後才確認各來源的報價（例如上游的 ETag / Last-Modified），寫入失敗時下一輪會重新取得完整內容
+        fetched.commit();
+        saved.forEach(ingestChangeDetector::record);
+        publishSaved(saved);
+        return saved.get(saved.size() - 1);
+    }
+
+    /**
+     * 擷取的資料寫入資料庫後，更新最新幣價快取、時間索引、換算矩陣與預先序列化的回應，再推播給訂閱者。
+     * 啟用寫入緩衝時由 CoinDeskWriteBuffer 於批次寫入成功後呼叫。
+     */
+    void publishSaved(List<CoinDesk> saved) {
+        for (CoinDesk coinDesk : saved) {
+            coinDeskCache.put(coinDesk);
+            rateHistoryIndex.append(coinDesk);
+        }
+        currencyConversionService.rebuild();
+        serializedPayloadCache.invalidateAll();
+        for (CoinDesk coinDesk : saved) {
+            rateUpdateBroadcaster.publish(coinDesk);
+        }
+    }
+
+    private void addIfChanged(List<CoinDesk> coinDesks, CoinDesk coinDesk) {
+        if (ingestChangeDetector.isChanged(coinDesk)) {
+            coinDesks.add(coinDesk);
+        }
     }
 
     CoinDesk createCoinDeskFromResponse(CoinDeskResponse response, CurrencyType currencyType, CoinDeskResponse.Currency currency) {
@@ -60,22 +219,92 @@ public class CoinDeskService {
         coinDesk.setUpdated(response.getTime().getUpdated());
         coinDesk.setUpdatedISO(response.getTime().getUpdatedISO());
         coinDesk.setUpdateduk(response.getTime().getUpdateduk());
-        coinDesk.setDisclaimer(response.getDisclaimer());
-        coinDesk.setChartName(response.getChartName());
+        coinDesk.setSource(coinDeskSourceRegistry.resolve(response.getChartName(), response.getDisclaimer()));
         coinDesk.setCreatedAt(LocalDateTime.now());
         coinDesk.setUpdatedAt(LocalDateTime.now());
         
         coinDesk.setCurrencyType(currencyType);
-        coinDesk.setRate(currency.getRate());
-        coinDesk.setRateFloat(currency.getRate_float());
-        coinDesk.setCurrencyName(currency.getDescription());
-        coinDesk.setChineseName(currencyType.getChineseName());
+        coinDesk.setRateScaled(currency.getRate_float() != null
+                ? CoinDesk.toScaled(currency.getRate_float())
+                : CoinDesk.parseRate(currency.getRate()));
         
         return coinDesk;
     }
 
     public CoinDesk saveCoinDesk(CoinDesk coinDesk) {
-        return coinDeskRepository.save(coinDesk);
+        return saveCoinDesk(coinDesk, null);
+    }
+
+    /**
+     * 建立幣價資訊。帶有 idempotencyKey 時，相同 key 的重送請求回傳當初建立的資料而不重複寫入；
+     * 資料與 key 於同一交易寫入，同時送出的相同請求由 key 的主鍵約束擋下，只有一筆會成功。
+     *
+     * @throws CoinDeskBadRequestException key 為空字串或超過長度上限
+     * @throws CoinDeskConflictException key 已用於內容不同的請求
+     * @throws CoinDeskGoneException key 當初建立的資料已被刪除
+     */
+    public CoinDesk saveCoinDesk(CoinDesk coinDesk, String idempotencyKey) {
+        // 建立時忽略請求帶入的 ID 與版本，避免覆寫既有資料
+        coinDesk.setId(null);
+        coinDesk.setVersion(null);
+        attachSource(coinDesk);
+        CoinDesk saved;
+        if (idempotencyKey == null) {
+            defaultCreatedAt(coinDesk);
+            saved = coinDeskRepository.save(coinDesk);
+        } else {
+            if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+                throw new CoinDeskBadRequestException("Idempotency-Key must be 1 to "
+                        + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+            }
+            String requestHash = requestHash(coinDesk);
+            Optional<CoinDeskIdempotencyKey> existing = coinDeskIdempotencyKeyRepository.findById(idempotencyKey);
+            if (existing.isPresent()) {
+                return replay(existing.get(), requestHash);
+            }
+            defaultCreatedAt(coinDesk);
+            try {
+                saved = transactionTemplate.execute(status -> {
+                    CoinDesk inserted = coinDeskRepository.save(coinDesk);
+                    coinDeskIdempotencyKeyRepository.insert(idempotencyKey, requestHash, inserted.getId(), LocalDateTime.now());
+                    return inserted;
+                });
+            } catch (DataIntegrityViolationException e) {
+                // 相同 key 的請求同時送出，另一個交易已先寫入
+                return replay(coinDeskIdempotencyKeyRepository.findById(idempotencyKey).orElseThrow(() -> e), requestHash);
+            }
+        }
+        coinDeskCache.refresh(saved);
+        rateHistoryIndex.append(saved);
+        currencyConversionService.rebuild();
+        serializedPayloadCache.invalidateAll();
+        return saved;
+    }
+
+    /**
+     * 最新一筆以建立時間判斷，未帶入建立時間的資料以寫入時間為準；於計算請求雜湊之後設定，不影響重送比對。
+     */
+    private static void defaultCreatedAt(CoinDesk coinDesk) {
+        if (coinDesk.getCreatedAt() == null) {
+            coinDesk.setCreatedAt(LocalDateTime.now());
+        }
+    }
+
+    private CoinDesk replay(CoinDeskIdempotencyKey key, String requestHash) {
+        if (!key.getRequestHash().equals(requestHash)) {
+            throw new CoinDeskConflictException("Idempotency-Key was already used for a different request");
+        }
+        return coinDeskRepository.findById(key.getCoinDeskId())
+                .orElseThrow(() -> new CoinDeskGoneException("CoinDesk " + key.getCoinDeskId()
+                        + " created with this Idempotency-Key has been deleted"));
+    }
+
+    private String requestHash(CoinDesk coinDesk) {
+        try {
+            return DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(coinDesk));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unable to serialize CoinDesk request", e);
+        }
     }
 
     public CoinDesk getCoinDeskById(Long id) {
@@ -83,17 +312,290 @@ public class CoinDeskService {
                 .orElseThrow(() -> new RuntimeException("CoinDesk not found"));
     }
 
+    /**
+     * 以請求內容取代整筆資料。請求帶有 version 時以該版本為條件，否則以讀取時的版本為條件；
+     * 期間資料已被其他請求修改時不覆寫，而是回應衝突。
+     *
+     * @throws CoinDeskConflictException 版本已過期
+     */
     public CoinDesk updateCoinDesk(Long id, CoinDesk coinDesk) {
         CoinDesk existingCoinDesk = getCoinDeskById(id);
-        BeanUtils.copyProperties(coinDesk, existingCoinDesk, "id");
-        return coinDeskRepository.save(existingCoinDesk);
+        CurrencyType previousCurrencyType = existingCoinDesk.getCurrencyType();
+        Long expectedVersion = coinDesk.getVersion() != null ? coinDesk.getVersion() : existingCoinDesk.getVersion();
+        coinDeskMapper.copy(coinDesk, existingCoinDesk);
+        existingCoinDesk.setVersion(expectedVersion);
+        attachSource(existingCoinDesk);
+        CoinDesk saved;
+        try {
+            saved = coinDeskRepository.save(existingCoinDesk);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new CoinDeskConflictException("CoinDesk " + id + " was modified concurrently");
+        }
+        coinDeskCache.refresh(saved);
+        rateHistoryIndex.invalidate(previousCurrencyType);
+        if (!Objects.equals(saved.getCurrencyType(), previousCurrencyType)) {
+            rateHistoryIndex.invalidate(saved.getCurrencyType());
+            reloadLatest(previousCurrencyType);
+        }
+        currencyConversionService.rebuild();
+        serializedPayloadCache.invalidateAll();
+        return saved;
+    }
+
+    /**
+     * 部分更新：以單一條件式 UPDATE 只寫入請求中有值的欄位，條件為 ID 與 version 相符，
+     * 不先讀取整筆資料也不持有鎖；版本不符時回應衝突。
+     *
+     * @throws CoinDeskBadRequestException 未帶入 version 或 rate 不是有效的數字
+     * @throws CoinDeskConflictException 版本已過期
+     */
+    public CoinDesk patchCoinDesk(Long id, CoinDeskPatch patch) {
+        if (patch.getVersion() == null) {
+            throw new CoinDeskBadRequestException("version is required");
+        }
+        // 先解析請求中的匯率，格式錯誤時不建立更新語句
+        Long rateScaled = null;
+        if (patch.getRateFloat() != null) {
+            rateScaled = CoinDesk.toScaled(patch.getRateFloat());
+        } else if (patch.getRate() != null) {
+            rateScaled = parseRequestRate(patch.getRate());
+        }
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<CoinDesk> update = builder.createCriteriaUpdate(CoinDesk.class);
+        Root<CoinDesk> root = update.from(CoinDesk.class);
+        if (patch.getCurrencyType() != null) {
+            update.set(root.get("currencyType"), patch.getCurrencyType());
+        }
+        if (rateScaled != null) {
+            update.set(root.<Long>get("rateScaled"), rateScaled);
+        }
+        if (patch.getUpdated() != null) {
+            update.set(root.<String>get("updated"), patch.getUpdated());
+        }
+        if (patch.getUpdatedISO() != null) {
+            update.set(root.<String>get("updatedISO"), patch.getUpdatedISO());
+        }
+        if (patch.getUpdateduk() != null) {
+            update.set(root.<String>get("updateduk"), patch.getUpdateduk());
+        }
+        update.set(root.<LocalDateTime>get("updatedAt"), LocalDateTime.now());
+        update.set(root.<Long>get("version"), builder.sum(root.<Long>get("version"), 1L));
+        update.where(builder.equal(root.get("id"), id), builder.equal(root.get("version"), patch.getVersion()));
+
+        // 變更幣別時於同一交易中以相同版本條件讀取原幣別，更新成功即表示讀到的是被更新前的值
+        CurrencyType[] previousCurrencyType = new CurrencyType[1];
+        Integer updated = transactionTemplate.execute(status -> {
+            if (patch.getCurrencyType() != null) {
+                previousCurrencyType[0] = coinDeskRepository.findCurrencyTypeByIdAndVersion(id, patch.getVersion())
+                        .orElse(null);
+            }
+            return entityManager.createQuery(update).executeUpdate();
+        });
+        if (updated == null || updated == 0) {
+            if (!coinDeskRepository.existsById(id)) {
+                throw new RuntimeException("CoinDesk not found");
+            }
+            throw new CoinDeskConflictException("CoinDesk " + id + " was modified concurrently");
+        }
+        CoinDesk saved = getCoinDeskById(id);
+        coinDeskCache.refresh(saved);
+        rateHistoryIndex.invalidate(saved.getCurrencyType());
+        if (previousCurrencyType[0] != null && !previousCurrencyType[0].equals(saved.getCurrencyType())) {
+            rateHistoryIndex.invalidate(previousCurrencyType[0]);
+            reloadLatest(previousCurrencyType[0]);
+        }
+        currencyConversionService.rebuild();
+        serializedPayloadCache.invalidateAll();
+        return saved;
+    }
+
+    private static long parseRequestRate(String rate) {
+        try {
+            return CoinDesk.parseRate(rate);
+        } catch (IllegalArgumentException e) {
+            throw new CoinDeskBadRequestException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 將請求內容帶入的未儲存來源描述替換為共用的既有來源。
+     */
+    private void attachSource(CoinDesk coinDesk) {
+        CoinDeskSource source = coinDesk.getSource();
+        if (source != null && source.getId() == null) {
+            coinDesk.setSource(coinDeskSourceRegistry.resolve(source.getChartName(), source.getDisclaimer()));
+        }
     }
 
     public void deleteCoinDesk(Long id) {
+        CurrencyType currencyType = coinDeskRepository.findCurrencyTypeById(id).orElse(null);
         coinDeskRepository.deleteById(id);
+        coinDeskCache.evict(id);
+        rateHistoryIndex.invalidate(currencyType);
+        reloadLatest(currencyType);
+        serializedPayloadCache.invalidateAll();
+    }
+
+    /**
+     * 快取中的最新一筆被刪除或改為其他幣別後，由資料庫補上該幣別目前的最新一筆並更新換算矩陣中該幣別的匯率。
+     * 於寫入路徑上執行，讓讀取最新幣價時不需查詢資料庫。
+     */
+    private void reloadLatest(CurrencyType currencyType) {
+        if (currencyType == null || coinDeskCache.peek(currencyType) != null) {
+            return;
+        }
+        coinDeskRepository.findLatest(currencyType.getCode()).ifPresent(coinDeskCache::refresh);
+        currencyConversionService.refresh(currencyType);
+    }
+
+    /**
+     * 取得指定幣別的最新幣價，只讀取記憶體快取。快取於啟動預熱時載入各幣別最新一筆，
+     * 之後由擷取與 CRUD 寫入路徑維持，因此未命中表示該幣別尚無資料（或預熱尚未完成）。
+     *
+     * @throws CoinDeskRateUnavailableException 該幣別尚無報價
+     */
+    public CoinDesk getLatestCoinDesk(CurrencyType currencyType) {
+        CoinDesk cached = coinDeskCache.get(currencyType);
+        if (cached == null) {
+            throw new CoinDeskRateUnavailableException("No rate available for " + currencyType.getCode());
+        }
+        return cached;
+    }
+
+    /**
+     * 取得指定幣別最新幣價的精簡檢視。
+     */
+    public CoinDeskSummary getLatestSummary(CurrencyType currencyType) {
+        return coinDeskMapper.toSummary(getLatestCoinDesk(currencyType));
+    }
+
+    /**
+     * 指定幣別最新幣價精簡檢視的預先序列化內容，Last-Modified 為其 updatedISO，createdAt 為該筆的建立時間。
+     */
+    public SerializedPayload getLatestPayload(CurrencyType currencyType) {
+        return serializedPayloadCache.get("latest/" + currencyType.getCode(), () -> getLatestSummary(currencyType),
+                summary -> SerializedPayloadCache.epochMillis(summary.getUpdatedISO()), CoinDeskSummary::getCreatedAt);
+    }
+
+    /**
+     * 以資料庫中各幣別最新一筆資料預熱快取、換算矩陣與變更偵測，
+     * 讓第一次擷取完成前即可提供上次已知的幣價；之後再載入這些幣別的歷史時間索引。
+     *
+     * @return 載入的幣別數
+     */
+    public int warmUp() {
+        List<CoinDesk> latest = coinDeskRepository.findLatestPerCurrency();
+        for (CoinDesk coinDesk : latest) {
+            coinDeskCache.refresh(coinDesk);
+            ingestChangeDetector.seed(coinDesk);
+        }
+        currencyConversionService.rebuild();
+        serializedPayloadCache.invalidateAll();
+        logger.info("Warmed up latest CoinDesk cache with {} currencies", latest.size());
+        for (CoinDesk coinDesk : latest) {
+            rateHistoryIndex.load(coinDesk.getCurrencyType());
+        }
+        logger.info("Loaded {} historical rates into the as-of index", rateHistoryIndex.size());
+        return latest.size();
+    }
+
+    public Map<String, Object> getFetchStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(coinDeskApiClient.getStats());
+        stats.putAll(ingestChangeDetector.getStats());
+        Map<String, Object> breakers = new LinkedHashMap<>();
+        rateSourceAggregator.getCircuitBreakers().forEach((name, breaker) -> breakers.put(name, breaker.getState()));
+        stats.put("circuitBreakers", breakers);
+        return stats;
+    }
+
+    public Map<String, Long> getCacheStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) coinDeskCache.size());
+        stats.put("hits", coinDeskCache.getHits());
+        stats.put("misses", coinDeskCache.getMisses());
+        return stats;
     }
 
-    public List<CoinDesk> getAllCoinDesks() {
-        return coinDeskRepository.findAll();
+    /**
+     * 以精簡檢視依 ID 順序讀取幣價資訊，最多 coindesk.payload.all-max-rows 筆；
+     * 需要完整欄位或其餘資料時使用分頁或串流輸出。
+     */
+    public List<CoinDeskSummary> getAllCoinDesks() {
+        return coinDeskRepository.findAllSummaries(PageRequest.of(0, allMaxRows));
+    }
+
+    /**
+     * 幣價精簡檢視的預先序列化內容，資料寫入後的第一次讀取才重新查詢與序列化；
+     * Last-Modified 為各筆 updatedISO 的最大值。內容最多 coindesk.payload.all-max-rows 筆，大小不隨資料表成長，
+     * 達到上限時 nextAfterId 為最後一筆的 ID，其餘資料由 /page 自該處讀取。
+     */
+    public SerializedPayload getAllCoinDesksPayload() {
+        return serializedPayloadCache.get("all", this::getAllCoinDesks, summaries -> summaries.stream()
+                        .mapToLong(summary -> SerializedPayloadCache.epochMillis(summary.getUpdatedISO()))
+                        .max()
+                        .orElse(-1L),
+                summaries -> null,
+                summaries -> summaries.size() == allMaxRows ? summaries.get(summaries.size() - 1).getId() : null);
+    }
+
+    /**
+     * 以 ID 為游標分頁讀取幣價資訊，可依幣別與建立時間區間 [from, to) 篩選。
+     */
+    public CoinDeskPage getCoinDeskPage(Long afterId, int size, CurrencyType currencyType,
+                                        LocalDateTime from, LocalDateTime to) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<CoinDesk> items = coinDeskRepository.findPage(afterId == null ? 0L : afterId,
+                currencyType, from, to, PageRequest.of(0, pageSize));
+        Long nextAfterId = items.size() == pageSize ? items.get(items.size() - 1).getId() : null;
+        return new CoinDeskPage(items, nextAfterId);
+    }
+
+    /**
+     * 依建立時間排序讀取指定幣別於 [from, to) 區間內的歷史幣價，最多 limit 筆。
+     */
+    public List<CoinDeskSummary> getHistory(CurrencyType currencyType, LocalDateTime from, LocalDateTime to, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return coinDeskRepository.findSummaries(currencyType, from, to, PageRequest.of(0, pageSize));
+    }
+
+    /**
+     * 以固定區間計算指定幣別於 [from, to) 內的 OHLC K 線。保留排程的分界之前的區段已被彙總並刪除，
+     * 改由能組成此區間的最粗彙總粒度計算，其餘區段仍由原始資料計算。
+     * 分界前仍保留的各幣別最新一筆也已計入彙總，不另外由原始資料計算。
+     */
+    public List<RateCandle> getCandles(CurrencyType currencyType, CandleInterval interval,
+                                       LocalDateTime from, LocalDateTime to) {
+        // 分界對齊午夜，不會有 K 線跨越分界；停用保留排程時沒有彙總資料
+        LocalDateTime split = coinDeskRetentionJob.getRolledUpBefore();
+        if (split == null || !from.isBefore(split)) {
+            return coinDeskRepository.findCandles(currencyType.name(), interval.getSeconds(), from, to);
+        }
+        LocalDateTime rollupEnd = to.isBefore(split) ? to : split;
+        List<RateCandle> candles = new ArrayList<>(coinDeskRollupRepository.findCandles(currencyType.name(),
+                interval.getRollupResolution().name(), interval.getSeconds(),
+                from.toEpochSecond(ZoneOffset.UTC), rollupEnd.toEpochSecond(ZoneOffset.UTC)));
+        if (to.isAfter(split)) {
+            candles.addAll(coinDeskRepository.findCandles(currencyType.name(), interval.getSeconds(), split, to));
+        }
+        return candles;
+    }
+
+    /**
+     * 以 NDJSON（每行一筆 JSON）將符合條件的幣價資訊串流寫出。
+     * 逐筆由資料庫游標讀取並在寫出後自持久化內容移除，記憶體用量不隨資料量成長。
+     */
+    @Transactional(readOnly = true)
+    public void streamCoinDesks(CurrencyType currencyType, LocalDateTime from, LocalDateTime to,
+                                OutputStream out) throws IOException {
+        try (Stream<CoinDesk> rows = coinDeskRepository.streamAll(0L, currencyType, from, to)) {
+            Iterator<CoinDesk> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                CoinDesk coinDesk = iterator.next();
+                out.write(objectMapper.writeValueAsBytes(coinDesk));
+                out.write('\n');
+                entityManager.detach(coinDesk);
+            }
+        }
+        out.flush();
     }
 } 
\ No newline at end of file
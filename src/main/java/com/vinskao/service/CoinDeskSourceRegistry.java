@@ -0,0 +1,44 @@
+package com.vinskao.service;
+
+import com.vinskao.domain.CoinDeskSource;
+import com.vinskao.repository.CoinDeskSourceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 將 (chartName, disclaimer) 解析為共用的 CoinDeskSource，並快取於記憶體，
+ * 一般情況下每次擷取都不需查詢資料庫。
+ */
+@Component
+public class CoinDeskSourceRegistry {
+    @Autowired
+    private CoinDeskSourceRepository coinDeskSourceRepository;
+
+    private final Map<List<String>, CoinDeskSource> sources = new ConcurrentHashMap<>();
+
+    public CoinDeskSource resolve(String chartName, String disclaimer) {
+        if (chartName == null && disclaimer == null) {
+            return null;
+        }
+        return sources.computeIfAbsent(Arrays.asList(chartName, disclaimer), key -> findOrCreate(chartName, disclaimer));
+    }
+
+    private CoinDeskSource findOrCreate(String chartName, String disclaimer) {
+        return coinDeskSourceRepository.findFirstByChartNameAndDisclaimer(chartName, disclaimer)
+                .orElseGet(() -> {
+                    try {
+                        return coinDeskSourceRepository.save(new CoinDeskSource(null, chartName, disclaimer));
+                    } catch (DataIntegrityViolationException e) {
+                        // 其他執行個體已同時建立相同來源
+                        return coinDeskSourceRepository.findFirstByChartNameAndDisclaimer(chartName, disclaimer)
+                                .orElseThrow(() -> e);
+                    }
+                });
+    }
+}
@@ -0,0 +1,264 @@
+package com.vinskao.service;
+
+import com.vinskao.enums.CurrencyType;
+import com.vinskao.enums.HistoryFormat;
+import com.vinskao.exception.CoinDeskBadRequestException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 歷史幣價的大量匯入與匯出，格式見 {@link HistoryFormat}。
+ * 匯出以 JDBC 游標逐筆讀取並經由 NIO 通道寫出，匯入以 JDBC 批次寫入，兩者皆不經過 JPA 實體，記憶體用量固定。
+ * 檔案只包含 currency_type、created_at、rate 與 updated_iso 四個欄位。
+ * 匯入時幣別與建立時間皆相同的資料視為重複並略過，重複匯入同一檔案不會產生重複資料。
+ */
+@Service
+public class CoinDeskTransferService {
+    private static final Logger logger = LoggerFactory.getLogger(CoinDeskTransferService.class);
+    private static final int FETCH_SIZE = 1000;
+    private static final int IMPORT_CHUNK_SIZE = 10000;
+    /**
+     * 與 CoinDesk 的 @SequenceGenerator allocationSize 相同：序列每次取值保留其前 50 個 ID。
+     */
+    private static final int SEQUENCE_ALLOCATION_SIZE = 50;
+    private static final String INSERT_SQL = "INSERT INTO coin_desk (id, currency_type, rate_scaled, created_at,"
+            + " updated_iso) SELECT ?, ?, ?, ?, ? WHERE NOT EXISTS"
+            + " (SELECT 1 FROM coin_desk WHERE currency_type = ? AND created_at = ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RateHistoryIndex rateHistoryIndex;
+
+    @Autowired
+    private CoinDeskService coinDeskService;
+
+    @Autowired
+    private CoinDeskRetentionJob coinDeskRetentionJob;
+
+    private String sequenceNextValSql;
+
+    /**
+     * 依幣別、建立時間排序匯出歷史幣價，條件皆為選填，時間區間包含兩端。
+     *
+     * @return 匯出的資料筆數
+     */
+    public long exportHistory(HistoryFormat format, CurrencyType currencyType, LocalDateTime from, LocalDateTime to,
+                              OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder("SELECT currency_type, created_at, rate_scaled, updated_iso"
+                + " FROM coin_desk WHERE currency_type IS NOT NULL AND created_at IS NOT NULL");
+        List<Object> args = new ArrayList<>();
+        if (currencyType != null) {
+            sql.append(" AND currency_type = ?");
+            args.add(currencyType.getCode());
+        }
+        if (from != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(from);
+        }
+        if (to != null) {
+            sql.append(" AND created_at <= ?");
+            args.add(to);
+        }
+        sql.append(" ORDER BY currency_type, created_at, id");
+
+        WritableByteChannel channel = Channels.newChannel(out);
+        HistoryTickWriter writer = format == HistoryFormat.BINARY
+                ? new ColumnarHistoryFormat.Writer(channel) : new CsvHistoryFormat.Writer(channel);
+        long[] count = new long[1];
+        try {
+            // PostgreSQL 只在交易中依 fetch size 分批讀取
+            transactionTemplate.execute(status -> {
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql.toString());
+                    statement.setFetchSize(FETCH_SIZE);
+                    for (int i = 0; i < args.size(); i++) {
+                        statement.setObject(i + 1, args.get(i));
+                    }
+                    return statement;
+                }, rs -> {
+                    try {
+                        writer.write(CurrencyType.fromCode(rs.getString(1)),
+                                toEpochMillis(rs.getObject(2, LocalDateTime.class)), rs.getLong(3), rs.getString(4));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    count[0]++;
+                });
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+        out.flush();
+        logger.info("Exported {} historical rates as {}", count[0], format);
+        return count[0];
+    }
+
+    /**
+     * 匯入歷史幣價，每 IMPORT_CHUNK_SIZE 筆以一次 JDBC 批次寫入並提交；檔案格式錯誤時已提交的批次會保留。
+     * 已存在相同幣別與建立時間的資料略過不寫入。早於保留分界的資料所屬區間可能已經彙總，
+     * 彙總不會重新計算，因此拒絕匯入。完成後重新載入時間索引與最新幣價快取。
+     *
+     * @return 實際寫入的資料筆數
+     * @throws CoinDeskBadRequestException 檔案格式錯誤、含有未知的幣別代碼或早於保留分界的資料
+     */
+    public long importHistory(HistoryFormat format, InputStream in) throws IOException {
+        LocalDateTime cutoff = coinDeskRetentionJob.getRawCutoff();
+        ImportBatch batch = new ImportBatch(cutoff != null ? toEpochMillis(cutoff) : Long.MIN_VALUE);
+        long count;
+        try {
+            count = format == HistoryFormat.BINARY
+                    ? ColumnarHistoryFormat.read(Channels.newChannel(in), batch)
+                    : CsvHistoryFormat.read(in, batch);
+            batch.flush();
+        } catch (IllegalArgumentException e) {
+            throw e instanceof CoinDeskBadRequestException ? e : new CoinDeskBadRequestException(e.getMessage(), e);
+        } finally {
+            if (batch.inserted > 0) {
+                rateHistoryIndex.invalidateAll();
+                coinDeskService.warmUp();
+            }
+        }
+        logger.info("Imported {} historical rates from {}, skipped {} duplicates",
+                batch.inserted, format, count - batch.inserted);
+        return batch.inserted;
+    }
+
+    private String getSequenceNextValSql() {
+        if (sequenceNextValSql == null) {
+            sequenceNextValSql = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect().getSequenceNextValString("coin_desk_seq");
+        }
+        return sequenceNextValSql;
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000L),
+                (int) Math.floorMod(epochMillis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * 累積解析出的資料，滿一批時取得 ID 並寫入。
+     */
+    private final class ImportBatch implements HistoryTickSink {
+        private final String[] codes = new String[IMPORT_CHUNK_SIZE];
+        private final long[] times = new long[IMPORT_CHUNK_SIZE];
+        private final long[] rates = new long[IMPORT_CHUNK_SIZE];
+        private final String[] isos = new String[IMPORT_CHUNK_SIZE];
+        private final long[] ids = new long[IMPORT_CHUNK_SIZE];
+        private final long cutoffMillis;
+        private int size;
+        private long nextId;
+        private long lastId = -1;
+        private long inserted;
+
+        ImportBatch(long cutoffMillis) {
+            this.cutoffMillis = cutoffMillis;
+        }
+
+        @Override
+        public void accept(CurrencyType currencyType, long createdAtMillis, long rateScaled, String updatedIso) {
+            if (createdAtMillis < cutoffMillis) {
+                throw new CoinDeskBadRequestException("Rate of " + currencyType.getCode() + " at "
+                        + toLocalDateTime(createdAtMillis) + " is older than the retention cutoff "
+                        + toLocalDateTime(cutoffMillis));
+            }
+            codes[size] = currencyType.getCode();
+            times[size] = createdAtMillis;
+            rates[size] = rateScaled;
+            isos[size] = updatedIso;
+            size++;
+            if (size == IMPORT_CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (size == 0) {
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                ids[i] = nextId();
+            }
+            int rows = size;
+            int[] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(INSERT_SQL,
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            LocalDateTime createdAt = toLocalDateTime(times[i]);
+                            ps.setLong(1, ids[i]);
+                            ps.setString(2, codes[i]);
+                            ps.setLong(3, rates[i]);
+                            ps.setObject(4, createdAt);
+                            if (isos[i] == null) {
+                                ps.setNull(5, Types.VARCHAR);
+                            } else {
+                                ps.setString(5, isos[i]);
+                            }
+                            ps.setString(6, codes[i]);
+                            ps.setObject(7, createdAt);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return rows;
+                        }
+                    }));
+            for (int updated : counts) {
+                // 驅動程式未回報筆數時視為已寫入
+                if (updated > 0 || updated == Statement.SUCCESS_NO_INFO) {
+                    inserted++;
+                }
+            }
+            size = 0;
+        }
+
+        /**
+         * 與 Hibernate 的 pooled 最佳化相同的配置方式，匯入與一般寫入取得的 ID 不會重疊。
+         */
+        private long nextId() {
+            if (nextId > lastId) {
+                long value = jdbcTemplate.queryForObject(getSequenceNextValSql(), Long.class);
+                nextId = Math.max(1, value - SEQUENCE_ALLOCATION_SIZE + 1);
+                lastId = value;
+            }
+            return nextId++;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.vinskao.service;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.repository.CoinDeskRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * API 擷取資料的寫入緩衝。
+ * 啟用時會累積多次輪詢的資料，達到輪詢次數或等待時間上限後，以單一交易的 saveAll 批次寫入。
+ * 報價未變動的輪詢不會加入資料，因此等待時間另由背景執行緒每秒檢查；寫入成功後才通知 flushListener，
+ * 快取與推播只會看到已取得 ID 的資料。
+ */
+@Component
+public class CoinDeskWriteBuffer {
+    private static final Logger logger = LoggerFactory.getLogger(CoinDeskWriteBuffer.class);
+    private static final long MAX_CHECK_INTERVAL_MS = 1000L;
+
+    @Autowired
+    private CoinDeskRepository coinDeskRepository;
+
+    @Value("${coindesk.ingest.write-buffer.enabled:false}")
+    private boolean enabled;
+
+    @Value("${coindesk.ingest.write-buffer.max-polls:5}")
+    private int maxPolls;
+
+    @Value("${coindesk.ingest.write-buffer.max-delay-ms:300000}")
+    private long maxDelayMs;
+
+    private final List<CoinDesk> pending = new ArrayList<>();
+    private int pendingPolls;
+    private long oldestPendingAt;
+    private volatile Consumer<List<CoinDesk>> flushListener = rows -> { };
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "coindesk-write-buffer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            long interval = Math.max(1L, Math.min(maxDelayMs, MAX_CHECK_INTERVAL_MS));
+            executor.scheduleWithFixedDelay(this::flushIfDue, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        flush();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 設定寫入成功後的通知，參數為已寫入（已取得 ID）的資料。
+     */
+    public void setFlushListener(Consumer<List<CoinDesk>> flushListener) {
+        this.flushListener = flushListener;
+    }
+
+    /**
+     * 加入一次輪詢的資料，必要時觸發寫入。
+     */
+    public synchronized void append(List<CoinDesk> rows) {
+        if (pending.isEmpty()) {
+            oldestPendingAt = System.currentTimeMillis();
+        }
+        pending.addAll(rows);
+        pendingPolls++;
+        if (pendingPolls >= maxPolls || isDue()) {
+            flush();
+        }
+    }
+
+    /**
+     * 以單一交易批次寫入所有緩衝中的資料，寫入失敗時保留資料待下次重試。
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        logger.info("Flushing {} buffered CoinDesk rows from {} polls", pending.size(), pendingPolls);
+        List<CoinDesk> saved = coinDeskRepository.saveAll(new ArrayList<>(pending));
+        pending.clear();
+        pendingPolls = 0;
+        flushListener.accept(saved);
+    }
+
+    synchronized void flushIfDue() {
+        try {
+            if (isDue()) {
+                flush();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Flushing buffered CoinDesk rows failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    private boolean isDue() {
+        return !pending.isEmpty() && System.currentTimeMillis() - oldestPendingAt >= maxDelayMs;
+    }
+
+    synchronized int getPendingSize() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,410 @@
+package com.vinskao.service;
+
+import com.vinskao.enums.CurrencyType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 歷史幣價的二進位欄式格式。檔頭為 "CDH1"，其後為多個區塊，每個區塊為同一幣別最多 BLOCK_ROWS 筆：
+ * <pre>
+ * 幣別代碼長度、代碼（ASCII）、筆數
+ * created_at 欄：與前一筆的差值（epoch 毫秒，第一筆與 0 比較）
+ * rate 欄：與前一筆 rateScaled 的差值
+ * updated_iso 欄：編碼方式，其後為
+ *   0：字典大小、各字串（長度、UTF-8），再接各筆的字典位置（0 代表無值，其餘為位置加 1）
+ *   1：各值皆為 yyyy-MM-ddTHH:mm:ss±HH:MM 且時區相同時使用；時區秒數，
+ *      再接各筆與 created_at 的秒數差（0 代表無值，其餘為 zigzag 編碼後加 1）
+ * </pre>
+ * 所有整數皆為 varint，差值先以 zigzag 編碼；代碼長度為 0 代表結束。
+ * 依時間排序的資料差值多為一至兩個位元組，來源時間接近建立時間時一筆約 5 個位元組。
+ */
+final class ColumnarHistoryFormat {
+    static final byte[] MAGIC = {'C', 'D', 'H', '1'};
+    static final int BLOCK_ROWS = 4096;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_STRING_BYTES = 1024 * 1024;
+    private static final int ISO_DICTIONARY = 0;
+    private static final int ISO_SECONDS = 1;
+    private static final int NOT_ISO_SECONDS = Integer.MIN_VALUE;
+    private static final int MAX_OFFSET_SECONDS = 18 * 3600;
+
+    private ColumnarHistoryFormat() {
+    }
+
+    /**
+     * 依序累積同一幣別的資料，滿一個區塊或幣別改變時編碼寫出；記憶體用量固定為一個區塊。
+     */
+    static final class Writer implements HistoryTickWriter {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final long[] times = new long[BLOCK_ROWS];
+        private final long[] rates = new long[BLOCK_ROWS];
+        private final String[] isos = new String[BLOCK_ROWS];
+        private CurrencyType currencyType;
+        private int size;
+
+        Writer(WritableByteChannel channel) {
+            this.channel = channel;
+            buffer.put(MAGIC);
+        }
+
+        @Override
+        public void write(CurrencyType currencyType, long createdAtMillis, long rateScaled, String updatedIso)
+                throws IOException {
+            if (size == BLOCK_ROWS || (size > 0 && currencyType != this.currencyType)) {
+                flushBlock();
+            }
+            this.currencyType = currencyType;
+            times[size] = createdAtMillis;
+            rates[size] = rateScaled;
+            isos[size] = updatedIso;
+            size++;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (size > 0) {
+                flushBlock();
+            }
+            ensure(1);
+            putVarint(0);
+            drain();
+        }
+
+        private void flushBlock() throws IOException {
+            byte[] code = currencyType.getCode().getBytes(StandardCharsets.US_ASCII);
+            ensure(20 + code.length);
+            putVarint(code.length);
+            buffer.put(code);
+            putVarint(size);
+            writeDeltas(times);
+            writeDeltas(rates);
+
+            int offset = isoSecondsOffset();
+            if (offset != NOT_ISO_SECONDS) {
+                ensure(15);
+                putVarint(ISO_SECONDS);
+                putVarint(zigzag(offset));
+                for (int i = 0; i < size; i++) {
+                    ensure(10);
+                    putVarint(isos[i] == null ? 0
+                            : zigzag(parseIsoSecond(isos[i]) - Math.floorDiv(times[i], 1000L)) + 1);
+                }
+            } else {
+                writeDictionary();
+            }
+            Arrays.fill(isos, 0, size, null);
+            size = 0;
+        }
+
+        /**
+         * 區塊內所有非 null 的 updated_iso 皆為 yyyy-MM-ddTHH:mm:ss±HH:MM 且時區相同時回傳該時區的秒數。
+         */
+        private int isoSecondsOffset() {
+            int offset = NOT_ISO_SECONDS;
+            for (int i = 0; i < size; i++) {
+                if (isos[i] != null) {
+                    int current = parseIsoOffset(isos[i]);
+                    if (current == NOT_ISO_SECONDS || (offset != NOT_ISO_SECONDS && current != offset)) {
+                        return NOT_ISO_SECONDS;
+                    }
+                    offset = current;
+                }
+            }
+            return offset;
+        }
+
+        private void writeDictionary() throws IOException {
+            Map<String, Integer> dictionary = new HashMap<>();
+            int[] indexes = new int[size];
+            for (int i = 0; i < size; i++) {
+                if (isos[i] != null) {
+                    Integer index = dictionary.get(isos[i]);
+                    if (index == null) {
+                        index = dictionary.size() + 1;
+                        dictionary.put(isos[i], index);
+                    }
+                    indexes[i] = index;
+                }
+            }
+            String[] entries = new String[dictionary.size()];
+            dictionary.forEach((value, index) -> entries[index - 1] = value);
+            ensure(15);
+            putVarint(ISO_DICTIONARY);
+            putVarint(entries.length);
+            for (String entry : entries) {
+                byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+                ensure(10);
+                putVarint(bytes.length);
+                putBytes(bytes);
+            }
+            for (int i = 0; i < size; i++) {
+                ensure(5);
+                putVarint(indexes[i]);
+            }
+        }
+
+        private void writeDeltas(long[] values) throws IOException {
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                ensure(10);
+                putVarint(zigzag(values[i] - previous));
+                previous = values[i];
+            }
+        }
+
+        private void putVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        private void putBytes(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.capacity()) {
+                drain();
+                ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+                return;
+            }
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * 逐區塊解碼並交給 sink。
+     *
+     * @return 解析的資料筆數
+     * @throws IllegalArgumentException 檔頭、幣別代碼不正確或檔案不完整
+     */
+    static long read(ReadableByteChannel channel, HistoryTickSink sink) throws IOException {
+        Reader reader = new Reader(channel);
+        for (byte expected : MAGIC) {
+            if (reader.readByte() != expected) {
+                throw new IllegalArgumentException("Not a binary coin desk history file");
+            }
+        }
+        long[] times = new long[BLOCK_ROWS];
+        long[] rates = new long[BLOCK_ROWS];
+        long count = 0;
+        int codeLength;
+        while ((codeLength = reader.readSize(16)) != 0) {
+            CurrencyType currencyType = CurrencyType.fromCode(
+                    new String(reader.readBytes(codeLength), StandardCharsets.US_ASCII));
+            int size = reader.readSize(BLOCK_ROWS);
+            reader.readDeltas(times, size);
+            reader.readDeltas(rates, size);
+            String[] isos = reader.readSize(ISO_SECONDS) == ISO_SECONDS
+                    ? reader.readIsoSeconds(times, size) : reader.readDictionary(size);
+            for (int i = 0; i < size; i++) {
+                sink.accept(currencyType, times[i], rates[i], isos[i]);
+            }
+            count += size;
+        }
+        return count;
+    }
+
+    private static final class Reader {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Reader(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.flip();
+        }
+
+        byte readByte() throws IOException {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                int read;
+                do {
+                    read = channel.read(buffer);
+                } while (read == 0);
+                buffer.flip();
+                if (read < 0) {
+                    throw new IllegalArgumentException("Truncated binary coin desk history file");
+                }
+            }
+            return buffer.get();
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in binary coin desk history file");
+        }
+
+        int readSize(int max) throws IOException {
+            long value = readVarint();
+            if (value < 0 || value > max) {
+                throw new IllegalArgumentException("Malformed binary coin desk history file");
+            }
+            return (int) value;
+        }
+
+        byte[] readBytes(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = readByte();
+            }
+            return bytes;
+        }
+
+        String[] readDictionary(int size) throws IOException {
+            String[] entries = new String[readSize(size)];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = new String(readBytes(readSize(MAX_STRING_BYTES)), StandardCharsets.UTF_8);
+            }
+            String[] isos = new String[size];
+            for (int i = 0; i < size; i++) {
+                int index = readSize(entries.length);
+                isos[i] = index == 0 ? null : entries[index - 1];
+            }
+            return isos;
+        }
+
+        String[] readIsoSeconds(long[] times, int size) throws IOException {
+            long offset = unzigzag(readVarint());
+            if (Math.abs(offset) > MAX_OFFSET_SECONDS) {
+                throw new IllegalArgumentException("Malformed binary coin desk history file");
+            }
+            IsoFormatter formatter = new IsoFormatter((int) offset);
+            String[] isos = new String[size];
+            for (int i = 0; i < size; i++) {
+                long value = readVarint();
+                isos[i] = value == 0 ? null
+                        : formatter.format(Math.floorDiv(times[i], 1000L) + unzigzag(value - 1));
+            }
+            return isos;
+        }
+
+        void readDeltas(long[] values, int size) throws IOException {
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                previous += unzigzag(readVarint());
+                values[i] = previous;
+            }
+        }
+    }
+
+    /**
+     * 回傳 yyyy-MM-ddTHH:mm:ss±HH:MM 的時區秒數，不是此寫法（或無法原樣還原，例如 -00:00）時回傳 NOT_ISO_SECONDS。
+     */
+    static int parseIsoOffset(String text) {
+        if (text.length() != 25 || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+                || text.charAt(13) != ':' || text.charAt(16) != ':' || text.charAt(22) != ':') {
+            return NOT_ISO_SECONDS;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (i != 4 && i != 7 && i != 10 && i != 13 && i != 16 && i != 19 && i != 22 && (c < '0' || c > '9')) {
+                return NOT_ISO_SECONDS;
+            }
+        }
+        char sign = text.charAt(19);
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int offsetHours = digits(text, 20, 2);
+        int offsetMinutes = digits(text, 23, 2);
+        if ((sign != '+' && sign != '-') || month < 1 || month > 12 || day < 1
+                || day > YearMonth.of(year, month).lengthOfMonth() || digits(text, 11, 2) > 23
+                || digits(text, 14, 2) > 59 || digits(text, 17, 2) > 59 || offsetMinutes > 59) {
+            return NOT_ISO_SECONDS;
+        }
+        int offset = offsetHours * 3600 + offsetMinutes * 60;
+        if (offset > MAX_OFFSET_SECONDS || (sign == '-' && offset == 0)) {
+            return NOT_ISO_SECONDS;
+        }
+        return sign == '-' ? -offset : offset;
+    }
+
+    /**
+     * 已通過 parseIsoOffset 檢查的 yyyy-MM-ddTHH:mm:ss±HH:MM 對應的 epoch 秒數。
+     */
+    static long parseIsoSecond(String text) {
+        long epochDay = LocalDate.of(digits(text, 0, 4), digits(text, 5, 2), digits(text, 8, 2)).toEpochDay();
+        return epochDay * 86400L + digits(text, 11, 2) * 3600L + digits(text, 14, 2) * 60L + digits(text, 17, 2)
+                - parseIsoOffset(text);
+    }
+
+    private static int digits(String text, int offset, int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    /**
+     * 以固定時區輸出 yyyy-MM-ddTHH:mm:ss±HH:MM，同一日的日期部分重複使用。
+     */
+    private static final class IsoFormatter {
+        private final int offset;
+        private final String suffix;
+        private long cachedDay = Long.MIN_VALUE;
+        private String cachedDate;
+
+        IsoFormatter(int offset) {
+            this.offset = offset;
+            int abs = Math.abs(offset);
+            this.suffix = String.format("%c%02d:%02d", offset < 0 ? '-' : '+', abs / 3600, abs / 60 % 60);
+        }
+
+        String format(long epochSecond) {
+            long local = epochSecond + offset;
+            long day = Math.floorDiv(local, 86400L);
+            if (day != cachedDay) {
+                cachedDay = day;
+                cachedDate = LocalDate.ofEpochDay(day) + "T";
+            }
+            int secondOfDay = (int) Math.floorMod(local, 86400L);
+            char[] time = {
+                    (char) ('0' + secondOfDay / 36000), (char) ('0' + secondOfDay / 3600 % 10), ':',
+                    (char) ('0' + secondOfDay / 600 % 6), (char) ('0' + secondOfDay / 60 % 10), ':',
+                    (char) ('0' + secondOfDay % 60 / 10), (char) ('0' + secondOfDay % 10)};
+            return cachedDate + new String(time) + suffix;
+        }
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,102 @@
+package com.vinskao.service;
+
+import com.vinskao.enums.CurrencyType;
+import com.vinskao.exception.CoinDeskBadRequestException;
+
+import java.util.Arrays;
+
+/**
+ * 不可變的交叉匯率矩陣。
+ * 索引 0..n-1 對應 CurrencyType.ordinal()，索引 n 為 BTC；
+ * rate(from, to) 為 1 單位 from 可換得的 to 數量，尚無報價的組合為 NaN。
+ */
+public final class CrossRateMatrix {
+    public static final String BTC = "BTC";
+    public static final int BTC_INDEX = CurrencyType.size();
+    public static final int SIZE = BTC_INDEX + 1;
+
+    static final CrossRateMatrix EMPTY = of(emptyQuotes(), null);
+
+    private final double[] rates;
+    private final String asOf;
+
+    private CrossRateMatrix(double[] rates, String asOf) {
+        this.rates = rates;
+        this.asOf = asOf;
+    }
+
+    /**
+     * 由各幣別的 BTC 報價建立矩陣。
+     *
+     * @param btcQuotes 以 CurrencyType.ordinal() 為索引、1 BTC 可換得的該幣別數量，無報價時為 NaN
+     * @param asOf      報價時間（updatedISO）
+     */
+    static CrossRateMatrix of(double[] btcQuotes, String asOf) {
+        // units[k]：1 BTC 可換得的 k 數量，BTC 本身為 1
+        double[] units = Arrays.copyOf(btcQuotes, SIZE);
+        units[BTC_INDEX] = 1d;
+        double[] rates = new double[SIZE * SIZE];
+        for (int from = 0; from < SIZE; from++) {
+            for (int to = 0; to < SIZE; to++) {
+                rates[from * SIZE + to] = from == to ? 1d : units[to] / units[from];
+            }
+        }
+        return new CrossRateMatrix(rates, asOf);
+    }
+
+    /**
+     * 以單一幣別的新報價建立新矩陣，只重新計算該幣別所在的列與欄，其餘組合沿用目前的匯率。
+     *
+     * @param index    幣別的 CurrencyType.ordinal()
+     * @param btcQuote 1 BTC 可換得的該幣別數量，無報價時為 NaN
+     * @param quoteAsOf 該報價的時間（updatedISO），較目前的 asOf 晚時取代之
+     */
+    CrossRateMatrix withQuote(int index, double btcQuote, String quoteAsOf) {
+        double[] copy = rates.clone();
+        for (int other = 0; other < SIZE; other++) {
+            if (other == index) {
+                continue;
+            }
+            // rate(BTC, other) 即 1 BTC 可換得的 other 數量
+            double units = rates[BTC_INDEX * SIZE + other];
+            copy[index * SIZE + other] = units / btcQuote;
+            copy[other * SIZE + index] = btcQuote / units;
+        }
+        boolean later = quoteAsOf != null && (asOf == null || quoteAsOf.compareTo(asOf) > 0);
+        return new CrossRateMatrix(copy, later ? quoteAsOf : asOf);
+    }
+
+    static double[] emptyQuotes() {
+        double[] quotes = new double[BTC_INDEX];
+        Arrays.fill(quotes, Double.NaN);
+        return quotes;
+    }
+
+    /**
+     * 將幣別代碼轉為矩陣索引。
+     *
+     * @throws CoinDeskBadRequestException 未知的幣別代碼
+     */
+    public static int indexOf(String code) {
+        if (BTC.equals(code)) {
+            return BTC_INDEX;
+        }
+        CurrencyType currencyType = CurrencyType.find(code);
+        if (currencyType == null) {
+            throw new CoinDeskBadRequestException("Unknown currency code: " + code);
+        }
+        return currencyType.ordinal();
+    }
+
+    public static String codeOf(int index) {
+        return index == BTC_INDEX ? BTC : CurrencyType.byOrdinal(index).getCode();
+    }
+
+    public double rate(int from, int to) {
+        return rates[from * SIZE + to];
+    }
+
+    public String getAsOf() {
+        return asOf;
+    }
+}
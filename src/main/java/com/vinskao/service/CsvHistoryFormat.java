@@ -0,0 +1,189 @@
+package com.vinskao.service;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.enums.CurrencyType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 歷史幣價的 CSV 格式：currency_type,created_at,rate,updated_iso。
+ * created_at 為 yyyy-MM-ddTHH:mm:ss.SSS（以 UTC 解讀），rate 固定 4 位小數，updated_iso 無值時留空。
+ */
+final class CsvHistoryFormat {
+    static final String HEADER = "currency_type,created_at,rate,updated_iso";
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private CsvHistoryFormat() {
+    }
+
+    /**
+     * 以固定大小的緩衝區寫出至通道，記憶體用量不隨資料量成長。
+     */
+    static final class Writer implements HistoryTickWriter {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        private long cachedDay = Long.MIN_VALUE;
+        private byte[] cachedDate;
+
+        Writer(WritableByteChannel channel) throws IOException {
+            this.channel = channel;
+            buffer.put((HEADER + "\n").getBytes(StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public void write(CurrencyType currencyType, long createdAtMillis, long rateScaled, String updatedIso)
+                throws IOException {
+            byte[] iso = updatedIso == null ? null : updatedIso.getBytes(StandardCharsets.UTF_8);
+            if (buffer.remaining() < 96 + (iso == null ? 0 : iso.length)) {
+                drain();
+            }
+            buffer.put(currencyType.getCode().getBytes(StandardCharsets.US_ASCII)).put((byte) ',');
+            writeTime(createdAtMillis);
+            buffer.put((byte) ',');
+            writeRate(rateScaled);
+            buffer.put((byte) ',');
+            if (iso != null) {
+                buffer.put(iso);
+            }
+            buffer.put((byte) '\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            drain();
+        }
+
+        private void writeTime(long millis) {
+            long day = Math.floorDiv(millis, MILLIS_PER_DAY);
+            if (day != cachedDay) {
+                cachedDay = day;
+                cachedDate = (LocalDate.ofEpochDay(day) + "T").getBytes(StandardCharsets.US_ASCII);
+            }
+            buffer.put(cachedDate);
+            int millisOfDay = (int) Math.floorMod(millis, MILLIS_PER_DAY);
+            writeDigits(millisOfDay / 3_600_000, 2);
+            buffer.put((byte) ':');
+            writeDigits(millisOfDay / 60_000 % 60, 2);
+            buffer.put((byte) ':');
+            writeDigits(millisOfDay / 1000 % 60, 2);
+            buffer.put((byte) '.');
+            writeDigits(millisOfDay % 1000, 3);
+        }
+
+        private void writeRate(long rateScaled) {
+            if (rateScaled < 0) {
+                buffer.put((byte) '-');
+            }
+            long abs = Math.abs(rateScaled);
+            buffer.put(Long.toString(abs / CoinDesk.RATE_SCALE).getBytes(StandardCharsets.US_ASCII));
+            buffer.put((byte) '.');
+            writeDigits((int) (abs % CoinDesk.RATE_SCALE), 4);
+        }
+
+        private void writeDigits(int value, int width) {
+            for (int divisor = width == 4 ? 1000 : width == 3 ? 100 : 10; divisor > 0; divisor /= 10) {
+                buffer.put((byte) ('0' + value / divisor % 10));
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * 逐行解析 CSV 並交給 sink，第一行必須為標題列。
+     *
+     * @return 解析的資料筆數
+     * @throws IllegalArgumentException 標題列、幣別代碼或欄位格式不正確
+     */
+    static long read(InputStream in, HistoryTickSink sink) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        String header = reader.readLine();
+        if (header == null || !HEADER.equals(header.trim())) {
+            throw new IllegalArgumentException("CSV header must be: " + HEADER);
+        }
+        long count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            int first = line.indexOf(',');
+            int second = line.indexOf(',', first + 1);
+            int third = line.indexOf(',', second + 1);
+            if (first < 0 || second < 0 || third < 0) {
+                throw new IllegalArgumentException("Malformed CSV line " + (count + 2) + ": " + line);
+            }
+            sink.accept(CurrencyType.fromCode(line.substring(0, first)),
+                    parseTime(line.substring(first + 1, second)),
+                    parseRate(line.substring(second + 1, third)),
+                    third + 1 == line.length() ? null : line.substring(third + 1));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 解析 yyyy-MM-ddTHH:mm:ss[.SSS]，其他 ISO-8601 寫法交由 LocalDateTime.parse。
+     */
+    static long parseTime(String text) {
+        if (text.length() == 23 && text.charAt(10) == 'T' && text.charAt(19) == '.') {
+            long epochDay = LocalDate.of(digits(text, 0, 4), digits(text, 5, 2), digits(text, 8, 2)).toEpochDay();
+            return epochDay * MILLIS_PER_DAY + digits(text, 11, 2) * 3_600_000L + digits(text, 14, 2) * 60_000L
+                    + digits(text, 17, 2) * 1000L + digits(text, 20, 3);
+        }
+        return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * 解析最多 4 位小數的匯率，其他寫法（千分位、更多小數位）交由 CoinDesk.parseRate。
+     */
+    static long parseRate(String text) {
+        int dot = text.indexOf('.');
+        int start = text.startsWith("-") ? 1 : 0;
+        if (dot <= start || text.length() - dot - 1 > 4 || dot - start > 14) {
+            return CoinDesk.parseRate(text);
+        }
+        long value = 0;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (i == dot) {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return CoinDesk.parseRate(text);
+            }
+            value = value * 10 + (c - '0');
+        }
+        for (int i = text.length() - dot - 1; i < 4; i++) {
+            value *= 10;
+        }
+        return start == 1 ? -value : value;
+    }
+
+    private static int digits(String text, int offset, int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Malformed created_at: " + text);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
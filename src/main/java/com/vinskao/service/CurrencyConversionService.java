@@ -0,0 +1,127 @@
+package com.vinskao.service;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.dto.ConversionResult;
+import com.vinskao.enums.CurrencyType;
+import com.vinskao.exception.CoinDeskBadRequestException;
+import com.vinskao.exception.CoinDeskRateUnavailableException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * 換匯服務，支援 BTC 與法幣、法幣與法幣之間的換算。
+ * 交叉匯率於每次最新幣價變動後由快取重新計算為不可變矩陣並整體替換，
+ * 換算時只讀取目前的矩陣，不存取資料庫。
+ */
+@Service
+public class CurrencyConversionService {
+
+    @Autowired
+    private CoinDeskCache coinDeskCache;
+
+    @Autowired
+    private RateHistoryIndex rateHistoryIndex;
+
+    private volatile CrossRateMatrix matrix = CrossRateMatrix.EMPTY;
+
+    /**
+     * 依快取中的各幣別最新幣價重新計算交叉匯率矩陣。
+     */
+    public synchronized void rebuild() {
+        double[] quotes = CrossRateMatrix.emptyQuotes();
+        String asOf = null;
+        for (CurrencyType currencyType : CurrencyType.values()) {
+            CoinDesk coinDesk = coinDeskCache.peek(currencyType);
+            if (coinDesk == null || coinDesk.getRateScaled() <= 0) {
+                continue;
+            }
+            quotes[currencyType.ordinal()] = coinDesk.getRateFloat();
+            if (asOf == null || (coinDesk.getUpdatedISO() != null && coinDesk.getUpdatedISO().compareTo(asOf) > 0)) {
+                asOf = coinDesk.getUpdatedISO();
+            }
+        }
+        matrix = CrossRateMatrix.of(quotes, asOf);
+    }
+
+    /**
+     * 只以快取中指定幣別的最新幣價更新矩陣中該幣別的列與欄，其他幣別的匯率不重新計算。
+     */
+    public synchronized void refresh(CurrencyType currencyType) {
+        CoinDesk coinDesk = coinDeskCache.peek(currencyType);
+        boolean quoted = coinDesk != null && coinDesk.getRateScaled() > 0;
+        matrix = matrix.withQuote(currencyType.ordinal(), quoted ? coinDesk.getRateFloat() : Double.NaN,
+                quoted ? coinDesk.getUpdatedISO() : null);
+    }
+
+    /**
+     * 目前的交叉匯率快照；需要以同一組匯率計算多筆時應取得一次後重複使用。
+     */
+    public CrossRateMatrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * 以矩陣索引換算金額，尚無報價時回傳 NaN。
+     */
+    public double convert(double amount, int from, int to) {
+        return amount * matrix.rate(from, to);
+    }
+
+    /**
+     * 以幣別代碼（含 BTC）換算金額。
+     *
+     * @throws CoinDeskBadRequestException      未知的幣別代碼
+     * @throws CoinDeskRateUnavailableException 尚無該組合的報價
+     */
+    public ConversionResult convert(double amount, String from, String to) {
+        CrossRateMatrix snapshot = matrix;
+        int fromIndex = CrossRateMatrix.indexOf(from);
+        int toIndex = CrossRateMatrix.indexOf(to);
+        double rate = snapshot.rate(fromIndex, toIndex);
+        if (Double.isNaN(rate)) {
+            throw new CoinDeskRateUnavailableException("Rate not available: " + from + " -> " + to);
+        }
+        return new ConversionResult(from, to, amount, rate, amount * rate, snapshot.getAsOf());
+    }
+
+    /**
+     * 以 at（含）之前各幣別最後一筆報價換算金額，asOf 為所用報價中較晚的時間。
+     *
+     * @throws CoinDeskBadRequestException      未知的幣別代碼
+     * @throws CoinDeskRateUnavailableException 該時間點之前尚無報價
+     */
+    public ConversionResult convertAsOf(double amount, String from, String to, LocalDateTime at) {
+        int fromIndex = CrossRateMatrix.indexOf(from);
+        int toIndex = CrossRateMatrix.indexOf(to);
+        RateHistoryIndex.RateTick fromTick = quoteAsOf(fromIndex, at);
+        RateHistoryIndex.RateTick toTick = quoteAsOf(toIndex, at);
+        double rate = fromIndex == toIndex ? 1d : units(toTick) / units(fromTick);
+        RateHistoryIndex.RateTick latest = fromTick == null
+                || (toTick != null && toTick.getEpochMillis() > fromTick.getEpochMillis()) ? toTick : fromTick;
+        String asOf = latest == null ? null : latest.getTime().toString();
+        return new ConversionResult(from, to, amount, rate, amount * rate, asOf);
+    }
+
+    /**
+     * 指定矩陣索引於 at 之前的報價，BTC 本身回傳 null。
+     */
+    private RateHistoryIndex.RateTick quoteAsOf(int index, LocalDateTime at) {
+        if (index == CrossRateMatrix.BTC_INDEX) {
+            return null;
+        }
+        RateHistoryIndex.RateTick tick = rateHistoryIndex.find(CurrencyType.byOrdinal(index), at);
+        if (tick == null || tick.getRateScaled() <= 0) {
+            throw new CoinDeskRateUnavailableException("Rate not available as of " + at + ": " + CrossRateMatrix.codeOf(index));
+        }
+        return tick;
+    }
+
+    /**
+     * 1 BTC 可換得的數量，BTC 本身為 1。
+     */
+    private static double units(RateHistoryIndex.RateTick tick) {
+        return tick == null ? 1d : (double) tick.getRateScaled() / CoinDesk.RATE_SCALE;
+    }
+}
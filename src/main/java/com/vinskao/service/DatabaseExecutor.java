@@ -0,0 +1,95 @@
+package com.vinskao.service;
+
+import com.vinskao.enums.ExecutionMode;
+import com.vinskao.exception.CoinDeskBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 執行會阻塞於 JDBC 的請求處理，執行緒依 coindesk.web.execution-mode 決定。
+ * PLATFORM 與 VIRTUAL 直接在請求執行緒上執行，回傳已完成的 CompletableFuture；
+ * ASYNC 交給固定大小的 coindesk-db 執行緒池，執行緒數預設與連線池大小相同（更多執行緒只會在連線池上等待），
+ * 等待佇列滿時回應 503。
+ */
+@Component
+public class DatabaseExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseExecutor.class);
+
+    @Value("${coindesk.web.execution-mode:PLATFORM}")
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+    @Value("${coindesk.web.db-threads:${spring.datasource.hikari.maximum-pool-size:10}}")
+    private int threads;
+
+    @Value("${coindesk.web.db-queue-capacity:2000}")
+    private int queueCapacity;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ThreadPoolExecutor executor;
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        logger.info("Request execution mode: {}", executionMode);
+        if (executionMode != ExecutionMode.ASYNC) {
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "coindesk-db-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        new ExecutorServiceMetrics(executor, "coindesk-db", Collections.emptyList()).bindTo(meterRegistry);
+        rejected = meterRegistry.counter("coindesk.db.rejected");
+        logger.info("Database executor: {} threads, queue capacity {}", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 執行 task；PLATFORM 與 VIRTUAL 模式下 task 的例外直接拋出，ASYNC 模式下由回傳的 CompletableFuture 傳遞。
+     *
+     * @throws CoinDeskBusyException ASYNC 模式下等待佇列已滿
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        if (executor == null) {
+            return CompletableFuture.completedFuture(task.get());
+        }
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new CoinDeskBusyException("Database executor queue is full (" + queueCapacity + " pending requests)");
+        }
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+}
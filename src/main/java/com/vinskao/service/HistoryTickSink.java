@@ -0,0 +1,15 @@
+package com.vinskao.service;
+
+import com.vinskao.enums.CurrencyType;
+
+/**
+ * 接收匯入格式解析出的歷史報價。
+ */
+interface HistoryTickSink {
+
+    /**
+     * @param createdAtMillis 建立時間（以 UTC 解讀的 epoch 毫秒）
+     * @param updatedIso      來源時間，可為 null
+     */
+    void accept(CurrencyType currencyType, long createdAtMillis, long rateScaled, String updatedIso);
+}
@@ -0,0 +1,22 @@
+package com.vinskao.service;
+
+import com.vinskao.enums.CurrencyType;
+
+import java.io.IOException;
+
+/**
+ * 依序寫出歷史報價的匯出格式；同一幣別的資料需依時間排序連續寫入。
+ */
+interface HistoryTickWriter {
+
+    /**
+     * @param createdAtMillis 建立時間（以 UTC 解讀的 epoch 毫秒）
+     * @param updatedIso      來源時間，可為 null
+     */
+    void write(CurrencyType currencyType, long createdAtMillis, long rateScaled, String updatedIso) throws IOException;
+
+    /**
+     * 寫出尚未輸出的資料與結尾，不關閉底層通道。
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,96 @@
+package com.vinskao.service;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.enums.CurrencyType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 擷取資料的變更偵測。
+ * 於記憶體中記錄各幣別最後一次寫入的 updatedISO 與匯率，與上次相同的資料不再寫入資料庫。
+ * 啟用 coindesk.ingest.collapse-unchanged-rates 時，即使 updatedISO 更新但匯率未變也視為相同。
+ */
+@Component
+public class IngestChangeDetector {
+
+    @Value("${coindesk.ingest.collapse-unchanged-rates:false}")
+    private boolean collapseUnchangedRates;
+
+    private final String[] lastUpdatedIso = new String[CurrencyType.size()];
+    private final long[] lastRateScaled = new long[CurrencyType.size()];
+    private final boolean[] seen = new boolean[CurrencyType.size()];
+
+    private final LongAdder noOpFetches = new LongAdder();
+    private final LongAdder skippedRows = new LongAdder();
+    private final LongAdder writtenRows = new LongAdder();
+
+    /**
+     * 判斷資料是否與該幣別最後一次寫入的資料不同；相同時累計略過筆數。
+     */
+    public synchronized boolean isChanged(CoinDesk coinDesk) {
+        int index = coinDesk.getCurrencyType().ordinal();
+        boolean changed = !seen[index]
+                || lastRateScaled[index] != coinDesk.getRateScaled()
+                || (!collapseUnchangedRates && !Objects.equals(lastUpdatedIso[index], coinDesk.getUpdatedISO()));
+        if (!changed) {
+            skippedRows.increment();
+        }
+        return changed;
+    }
+
+    /**
+     * 記錄已寫入的資料，作為下次比對的基準。
+     */
+    public synchronized void record(CoinDesk coinDesk) {
+        int index = coinDesk.getCurrencyType().ordinal();
+        lastUpdatedIso[index] = coinDesk.getUpdatedISO();
+        lastRateScaled[index] = coinDesk.getRateScaled();
+        seen[index] = true;
+        writtenRows.increment();
+    }
+
+    /**
+     * 以資料庫中既有的最新資料作為比對基準但不計入寫入筆數，
+     * 避免重新啟動後第一次擷取重複寫入未變更的資料。
+     */
+    public synchronized void seed(CoinDesk coinDesk) {
+        int index = coinDesk.getCurrencyType().ordinal();
+        if (!seen[index]) {
+            lastUpdatedIso[index] = coinDesk.getUpdatedISO();
+            lastRateScaled[index] = coinDesk.getRateScaled();
+            seen[index] = true;
+        }
+    }
+
+    /**
+     * 記錄一次沒有任何資料需要寫入的擷取（包含上游回應 304）。
+     */
+    public void recordNoOp() {
+        noOpFetches.increment();
+    }
+
+    public long getNoOpFetches() {
+        return noOpFetches.sum();
+    }
+
+    public long getSkippedRows() {
+        return skippedRows.sum();
+    }
+
+    public long getWrittenRows() {
+        return writtenRows.sum();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("noOpFetches", getNoOpFetches());
+        stats.put("skippedRows", getSkippedRows());
+        stats.put("writtenRows", getWrittenRows());
+        return stats;
+    }
+}
@@ -0,0 +1,337 @@
+package com.vinskao.service;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.enums.CurrencyType;
+import com.vinskao.enums.RollupResolution;
+import com.vinskao.repository.CoinDeskRepository;
+import com.vinskao.repository.CoinDeskRollupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 各幣別歷史匯率的時間索引，供指定時間點（as-of）的換算使用。
+ * 每個幣別以依時間排序的 epoch 毫秒與 rateScaled 原始型別陣列保存，以二分搜尋找出時間點（含）之前的最後一筆報價。
+ * 第一次查詢或預熱時載入最近 coindesk.asof.index-days 日的資料，已被保留排程刪除的區段以分鐘彙總的收盤價代替，
+ * 時間記為該分鐘結束時；之後每次寫入新資料時附加於尾端，早於新資料 coindesk.asof.index-days 日的部分累積到一定數量後
+ * 自前端移除並將索引起點往後移，索引大小不隨執行時間成長。早於索引起點的時間點才查詢資料庫。
+ * 時間一律以 UTC 解讀 createdAt，與 K 線分桶相同。
+ */
+@Component
+public class RateHistoryIndex {
+    private static final RollupResolution COLD_RESOLUTION = RollupResolution.MINUTE;
+    private static final long COLD_LOOKBACK_SECONDS = 86400L;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final long DAY_MILLIS = 86_400_000L;
+    /**
+     * 過期的報價至少累積這麼多筆（且不少於索引的八分之一）才移除，避免每次附加都複製陣列。
+     */
+    private static final int MIN_TRIM = 1024;
+
+    @Autowired
+    private CoinDeskRepository coinDeskRepository;
+
+    @Autowired
+    private CoinDeskRollupRepository coinDeskRollupRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${coindesk.asof.index-days:365}")
+    private int indexDays;
+
+    private final Series[] series = new Series[CurrencyType.size()];
+
+    private final LongAdder indexHits = new LongAdder();
+    private final LongAdder databaseLookups = new LongAdder();
+
+    public RateHistoryIndex() {
+        for (int i = 0; i < series.length; i++) {
+            series[i] = new Series();
+        }
+    }
+
+    /**
+     * 查詢指定幣別於 at（含）之前的最後一筆報價，索引尚未載入時先行載入。
+     *
+     * @return 報價；at 之前沒有任何資料時回傳 null
+     */
+    public RateTick find(CurrencyType currencyType, LocalDateTime at) {
+        long atMillis = toEpochMillis(at);
+        Series target = series[currencyType.ordinal()];
+        View view = target.view;
+        if (!view.loaded) {
+            load(currencyType);
+            view = target.view;
+        }
+        int index = view.floor(atMillis);
+        if (index >= 0) {
+            indexHits.increment();
+            return new RateTick(view.times[index], view.rates[index]);
+        }
+        databaseLookups.increment();
+        // 先查詢時間點之前一日內的資料，資料中斷超過一日時才查詢整個範圍
+        RateTick tick = findInDatabase(currencyType, at.minusSeconds(COLD_LOOKBACK_SECONDS), at);
+        return tick != null ? tick : findInDatabase(currencyType, EPOCH, at);
+    }
+
+    /**
+     * 將新寫入的資料附加至索引；索引尚未載入或時間早於索引起點時略過，由載入或資料庫查詢取得。
+     */
+    public void append(CoinDesk coinDesk) {
+        if (coinDesk.getCurrencyType() == null || coinDesk.getCreatedAt() == null) {
+            return;
+        }
+        long time = toEpochMillis(coinDesk.getCreatedAt());
+        Series target = series[coinDesk.getCurrencyType().ordinal()];
+        synchronized (target) {
+            View view = target.view;
+            if (view.loaded && time >= view.from) {
+                target.view = view.with(time, coinDesk.getRateScaled())
+                        .trimmed(time - indexDays * DAY_MILLIS, MIN_TRIM);
+            }
+        }
+    }
+
+    /**
+     * 由資料庫載入指定幣別的索引，已載入時不重複載入。
+     */
+    public void load(CurrencyType currencyType) {
+        Series target = series[currencyType.ordinal()];
+        synchronized (target) {
+            if (target.view.loaded) {
+                return;
+            }
+            LocalDateTime from = LocalDateTime.now().minusDays(indexDays);
+            long fromSecond = from.toEpochSecond(ZoneOffset.UTC);
+            LocalDateTime oldestRaw = coinDeskRepository.findOldestCreatedAt(currencyType);
+            long rolledUpTo = oldestRaw == null ? Long.MAX_VALUE
+                    : oldestRaw.toEpochSecond(ZoneOffset.UTC) - COLD_RESOLUTION.getSeconds();
+            Builder builder = new Builder();
+            transactionTemplate.execute(status -> {
+                try (Stream<Object[]> closes = coinDeskRollupRepository.streamCloses(currencyType.getCode(),
+                        COLD_RESOLUTION.name(), fromSecond, rolledUpTo)) {
+                    closes.forEach(row -> builder.add(
+                            (((Number) row[0]).longValue() + COLD_RESOLUTION.getSeconds()) * 1000L,
+                            ((Number) row[1]).longValue()));
+                }
+                try (Stream<Object[]> ticks = coinDeskRepository.streamTicks(currencyType, from)) {
+                    ticks.forEach(row -> builder.add(toEpochMillis((LocalDateTime) row[0]), (Long) row[1]));
+                }
+                return null;
+            });
+            target.view = builder.build(fromSecond * 1000L);
+        }
+    }
+
+    /**
+     * 清除指定幣別的索引，於該幣別的既有資料被修改或刪除後呼叫；下次查詢時重新載入。
+     */
+    public void invalidate(CurrencyType currencyType) {
+        if (currencyType == null) {
+            return;
+        }
+        Series target = series[currencyType.ordinal()];
+        synchronized (target) {
+            target.view = View.UNLOADED;
+        }
+    }
+
+    /**
+     * 清除全部索引，於匯入等影響多個幣別的寫入後呼叫；下次查詢時重新載入。
+     */
+    public void invalidateAll() {
+        for (CurrencyType currencyType : CurrencyType.values()) {
+            invalidate(currencyType);
+        }
+    }
+
+    /**
+     * 以資料庫索引查詢 (from, at] 之間的最後一筆報價，原始資料已刪除時使用分鐘彙總。
+     */
+    private RateTick findInDatabase(CurrencyType currencyType, LocalDateTime from, LocalDateTime at) {
+        List<Object[]> ticks = coinDeskRepository.findTicksAtOrBefore(currencyType, from, at, PageRequest.of(0, 1));
+        if (!ticks.isEmpty()) {
+            return new RateTick(toEpochMillis((LocalDateTime) ticks.get(0)[0]), (Long) ticks.get(0)[1]);
+        }
+        long fromSecond = Math.floorDiv(toEpochMillis(from), 1000L) - COLD_RESOLUTION.getSeconds();
+        long atSecond = Math.floorDiv(toEpochMillis(at), 1000L) - COLD_RESOLUTION.getSeconds();
+        List<Object[]> closes = coinDeskRollupRepository.findLastClose(currencyType.getCode(),
+                COLD_RESOLUTION.name(), fromSecond, atSecond);
+        if (closes.isEmpty()) {
+            return null;
+        }
+        return new RateTick((((Number) closes.get(0)[0]).longValue() + COLD_RESOLUTION.getSeconds()) * 1000L,
+                ((Number) closes.get(0)[1]).longValue());
+    }
+
+    public long getIndexHits() {
+        return indexHits.sum();
+    }
+
+    public long getDatabaseLookups() {
+        return databaseLookups.sum();
+    }
+
+    /**
+     * 目前索引中的報價總筆數。
+     */
+    public long size() {
+        long size = 0;
+        for (Series target : series) {
+            size += target.view.size;
+        }
+        return size;
+    }
+
+    static long toEpochMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * 單筆報價：時間（epoch 毫秒）與放大 RATE_SCALE 倍的匯率。
+     */
+    public static final class RateTick {
+        private final long epochMillis;
+        private final long rateScaled;
+
+        RateTick(long epochMillis, long rateScaled) {
+            this.epochMillis = epochMillis;
+            this.rateScaled = rateScaled;
+        }
+
+        public long getEpochMillis() {
+            return epochMillis;
+        }
+
+        public long getRateScaled() {
+            return rateScaled;
+        }
+
+        public LocalDateTime getTime() {
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000L),
+                    (int) Math.floorMod(epochMillis, 1000L) * 1_000_000, ZoneOffset.UTC);
+        }
+    }
+
+    /**
+     * 單一幣別的索引，寫入時持有其鎖，讀取只讀 volatile 的 view。
+     */
+    private static final class Series {
+        private volatile View view = View.UNLOADED;
+    }
+
+    /**
+     * 發布給讀取端的快照。尾端附加直接寫入陣列中 size 之後的位置再發布新的 view，
+     * 舊 view 可見的範圍不會被改動；插入或擴充容量時則複製為新陣列。
+     */
+    private static final class View {
+        static final View UNLOADED = new View(new long[0], new long[0], 0, Long.MAX_VALUE, false);
+
+        final long[] times;
+        final long[] rates;
+        final int size;
+        final long from;
+        final boolean loaded;
+
+        View(long[] times, long[] rates, int size, long from, boolean loaded) {
+            this.times = times;
+            this.rates = rates;
+            this.size = size;
+            this.from = from;
+            this.loaded = loaded;
+        }
+
+        /**
+         * 時間不晚於 at 的最後一筆的位置，沒有時回傳 -1。
+         */
+        int floor(long at) {
+            int index = Arrays.binarySearch(times, 0, size, at);
+            if (index < 0) {
+                return -index - 2;
+            }
+            while (index + 1 < size && times[index + 1] == at) {
+                index++;
+            }
+            return index;
+        }
+
+        /**
+         * 移除早於 cutoff 的報價並將索引起點移至 cutoff；可移除的筆數少於 minTrim 或索引的八分之一時維持原狀。
+         */
+        View trimmed(long cutoff, int minTrim) {
+            if (cutoff <= from) {
+                return this;
+            }
+            int expired = floor(cutoff - 1) + 1;
+            if (expired < Math.max(minTrim, size >> 3)) {
+                return this;
+            }
+            int remaining = size - expired;
+            int capacity = Math.max(16, remaining + (remaining >> 1));
+            long[] newTimes = new long[capacity];
+            long[] newRates = new long[capacity];
+            System.arraycopy(times, expired, newTimes, 0, remaining);
+            System.arraycopy(rates, expired, newRates, 0, remaining);
+            return new View(newTimes, newRates, remaining, cutoff, true);
+        }
+
+        View with(long time, long rate) {
+            int position = size;
+            while (position > 0 && times[position - 1] > time) {
+                position--;
+            }
+            // 載入與寫入同時進行時，同一筆資料可能已由資料庫載入
+            if (position > 0 && times[position - 1] == time && rates[position - 1] == rate) {
+                return this;
+            }
+            if (position == size && size < times.length) {
+                times[size] = time;
+                rates[size] = rate;
+                return new View(times, rates, size + 1, from, true);
+            }
+            int capacity = size < times.length ? times.length : Math.max(16, size + (size >> 1));
+            long[] newTimes = new long[capacity];
+            long[] newRates = new long[capacity];
+            System.arraycopy(times, 0, newTimes, 0, position);
+            System.arraycopy(rates, 0, newRates, 0, position);
+            newTimes[position] = time;
+            newRates[position] = rate;
+            System.arraycopy(times, position, newTimes, position + 1, size - position);
+            System.arraycopy(rates, position, newRates, position + 1, size - position);
+            return new View(newTimes, newRates, size + 1, from, true);
+        }
+    }
+
+    /**
+     * 載入時依時間順序累積報價。
+     */
+    private static final class Builder {
+        private long[] times = new long[1024];
+        private long[] rates = new long[1024];
+        private int size;
+
+        void add(long time, long rate) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size + (size >> 1));
+                rates = Arrays.copyOf(rates, size + (size >> 1));
+            }
+            times[size] = time;
+            rates[size] = rate;
+            size++;
+        }
+
+        View build(long from) {
+            return new View(times, rates, size, from, true);
+        }
+    }
+}
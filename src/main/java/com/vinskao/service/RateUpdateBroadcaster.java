@@ -0,0 +1,343 @@
+package com.vinskao.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.dto.RateDelta;
+import com.vinskao.enums.CurrencyType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 以 Server-Sent Events 推播幣價變動。
+ * 每筆新寫入的幣價只序列化一次，放入各訂閱者的有界佇列（滿時丟棄最舊的一筆），
+ * 再由 coindesk-push-writer 執行緒池送出；每個訂閱者同時最多只有一個寫出工作，維持事件順序，
+ * 某個連線寫出緩慢時只會佔住一條寫出執行緒，不影響其他訂閱者。
+ * 排程執行緒 coindesk-push 只負責定期排入心跳以清除已斷線的連線，以及移除單次寫出超過
+ * coindesk.push.send-timeout-ms 的訂閱者；被移除的連線其寫出執行緒在容器的寫出逾時後才會釋放。
+ */
+@Component
+public class RateUpdateBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(RateUpdateBroadcaster.class);
+    private static final String EVENT_NAME = "rate";
+
+    @Autowired
+    private CoinDeskCache coinDeskCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${coindesk.push.queue-capacity:16}")
+    private int queueCapacity;
+
+    @Value("${coindesk.push.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${coindesk.push.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    @Value("${coindesk.push.send-timeout-ms:5000}")
+    private long sendTimeoutMs = 5000;
+
+    @Value("${coindesk.push.writer-threads:4}")
+    private int writerThreads = 4;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "coindesk-push");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile ExecutorService writers;
+
+    @PostConstruct
+    public void start() {
+        writers();
+        if (heartbeatMs > 0) {
+            executor.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        }
+        if (sendTimeoutMs > 0) {
+            long interval = Math.max(1L, Math.min(sendTimeoutMs, 1000L));
+            executor.scheduleWithFixedDelay(this::evictStalled, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        if (writers != null) {
+            writers.shutdownNow();
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    /**
+     * 新增訂閱者，並先送出目前快取中的最新幣價。
+     *
+     * @param currencyTypes 要接收的幣別，null 或空集合表示全部
+     */
+    public SseEmitter subscribe(Collection<CurrencyType> currencyTypes) {
+        boolean[] mask = new boolean[CurrencyType.size()];
+        for (CurrencyType currencyType : CurrencyType.values()) {
+            mask[currencyType.ordinal()] = currencyTypes == null || currencyTypes.isEmpty()
+                    || currencyTypes.contains(currencyType);
+        }
+        return register(new SseEmitter(timeoutMs), mask).emitter;
+    }
+
+    Subscriber register(SseEmitter emitter, boolean[] mask) {
+        Subscriber subscriber = new Subscriber(emitter, mask, queueCapacity);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        // 先加入訂閱者再讀取快取，期間推播的資料不會遺漏；快照排在這些較新的資料之前
+        subscribers.add(subscriber);
+        CurrencyType[] currencyTypes = CurrencyType.values();
+        for (int i = currencyTypes.length - 1; i >= 0; i--) {
+            CoinDesk latest = coinDeskCache.peek(currencyTypes[i]);
+            if (latest != null) {
+                subscriber.offerFirst(currencyTypes[i].ordinal(), toJson(latest));
+            }
+        }
+        scheduleWrite(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * 推播一筆新寫入的幣價給訂閱該幣別的連線。
+     */
+    public void publish(CoinDesk coinDesk) {
+        if (subscribers.isEmpty() || coinDesk.getCurrencyType() == null) {
+            return;
+        }
+        String json = toJson(coinDesk);
+        int ordinal = coinDesk.getCurrencyType().ordinal();
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.offer(ordinal, json)) {
+                dropped.increment();
+            }
+            scheduleWrite(subscriber);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * 因單次寫出超過 coindesk.push.send-timeout-ms 而被移除的訂閱者數。
+     */
+    public long getEvicted() {
+        return evicted.sum();
+    }
+
+    private String toJson(CoinDesk coinDesk) {
+        RateDelta delta = new RateDelta(coinDesk.getCurrencyType().getCode(), coinDesk.getRateFloat(),
+                coinDesk.getUpdatedISO(), coinDesk.getId());
+        try {
+            return objectMapper.writeValueAsString(delta);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize rate delta", e);
+        }
+    }
+
+    private ExecutorService writers() {
+        ExecutorService current = writers;
+        if (current == null) {
+            synchronized (this) {
+                current = writers;
+                if (current == null) {
+                    AtomicInteger sequence = new AtomicInteger();
+                    current = Executors.newFixedThreadPool(Math.max(1, writerThreads), runnable -> {
+                        Thread thread = new Thread(runnable, "coindesk-push-writer-" + sequence.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    writers = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 訂閱者有待送資料且沒有進行中的寫出工作時，排入一次寫出工作。
+     */
+    private void scheduleWrite(Subscriber subscriber) {
+        if (subscriber.hasPending() && subscriber.writing.compareAndSet(false, true)) {
+            try {
+                writers().execute(() -> write(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.writing.set(false);
+                logger.debug("Rate push writers already stopped");
+            }
+        }
+    }
+
+    private void write(Subscriber subscriber) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while (!subscriber.closed.get() && (event = subscriber.next()) != null) {
+                if (!send(subscriber, event)) {
+                    return;
+                }
+            }
+        } finally {
+            subscriber.writing.set(false);
+        }
+        // 寫出工作結束前才放入的資料由新的工作送出
+        scheduleWrite(subscriber);
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue = true;
+            scheduleWrite(subscriber);
+        }
+    }
+
+    private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        subscriber.sendStartedNanos = System.nanoTime();
+        try {
+            subscriber.emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            if (close(subscriber)) {
+                subscriber.emitter.completeWithError(e);
+            }
+            return false;
+        } finally {
+            subscriber.sendStartedNanos = 0L;
+        }
+    }
+
+    /**
+     * 移除單次寫出超過 coindesk.push.send-timeout-ms 的訂閱者。
+     * 卡住的寫出仍持有 emitter 的鎖，結束連線交由寫出執行緒池處理，不在排程執行緒上等待。
+     */
+    void evictStalled() {
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        for (Subscriber subscriber : subscribers) {
+            long started = subscriber.sendStartedNanos;
+            if (started != 0L && now - started > timeoutNanos && close(subscriber)) {
+                evicted.increment();
+                logger.info("Evicting rate subscriber after a send blocked for more than {} ms", sendTimeoutMs);
+                TimeoutException cause = new TimeoutException("SSE send exceeded " + sendTimeoutMs + " ms");
+                try {
+                    writers().execute(() -> subscriber.emitter.completeWithError(cause));
+                } catch (RejectedExecutionException e) {
+                    logger.debug("Rate push writers already stopped");
+                }
+            }
+        }
+    }
+
+    private boolean close(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return false;
+        }
+        subscribers.remove(subscriber);
+        return true;
+    }
+
+    /**
+     * 訂閱者的幣別篩選與有界佇列。
+     */
+    static final class Subscriber {
+        private final SseEmitter emitter;
+        private final boolean[] currencies;
+        private final int capacity;
+        private final ArrayDeque<String> queue;
+        private final AtomicBoolean writing = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        private volatile long sendStartedNanos;
+
+        Subscriber(SseEmitter emitter, boolean[] currencies, int capacity) {
+            this.emitter = emitter;
+            this.currencies = currencies;
+            this.capacity = Math.max(1, capacity);
+            this.queue = new ArrayDeque<>(this.capacity);
+        }
+
+        /**
+         * 放入一筆推播資料，未訂閱的幣別直接忽略。
+         *
+         * @return 佇列已滿而丟棄最舊一筆時回傳 false
+         */
+        synchronized boolean offer(int ordinal, String json) {
+            if (!currencies[ordinal]) {
+                return true;
+            }
+            boolean full = queue.size() >= capacity;
+            if (full) {
+                queue.pollFirst();
+            }
+            queue.addLast(json);
+            return !full;
+        }
+
+        /**
+         * 將訂閱時的快取快照放到佇列最前面；佇列已滿表示已有較新的資料，不再放入。
+         */
+        synchronized void offerFirst(int ordinal, String json) {
+            if (currencies[ordinal] && queue.size() < capacity) {
+                queue.addFirst(json);
+            }
+        }
+
+        synchronized boolean hasPending() {
+            return !queue.isEmpty() || heartbeatDue;
+        }
+
+        /**
+         * 下一個要送出的事件；佇列中沒有資料而心跳到期時送出心跳註解。
+         */
+        synchronized SseEmitter.SseEventBuilder next() {
+            String json = queue.pollFirst();
+            if (json != null) {
+                heartbeatDue = false;
+                return SseEmitter.event().name(EVENT_NAME).data(json, MediaType.APPLICATION_JSON);
+            }
+            if (heartbeatDue) {
+                heartbeatDue = false;
+                return SseEmitter.event().comment("");
+            }
+            return null;
+        }
+    }
+}
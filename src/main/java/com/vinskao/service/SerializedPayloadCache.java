@@ -0,0 +1,189 @@
+package com.vinskao.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vinskao.dto.SerializedPayload;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 讀取端點的預先序列化回應，每個檢視（view）保存一份 JSON 位元組，內容夠大時另存 gzip 壓縮版本。
+ * 寫入端在資料與最新幣價快取更新之後呼叫 invalidateAll，之後每個檢視在下一次讀取時重新查詢並序列化一次，
+ * 其餘讀取直接回傳同一份位元組；同一檢視同時只有一個執行緒重建，重建期間又有寫入時該結果不會被視為最新。
+ * ETag 為內容的 MD5，Last-Modified 取自資料的 updatedISO；內容改變但 updatedISO 未前進時（例如修改匯率），
+ * Last-Modified 至少前進一秒，避免只帶 If-Modified-Since 的用戶端誤判為未修改。
+ */
+@Component
+public class SerializedPayloadCache {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${coindesk.payload.gzip.enabled:true}")
+    private boolean gzipEnabled = true;
+
+    @Value("${coindesk.payload.gzip.min-bytes:1024}")
+    private int gzipMinBytes = 1024;
+
+    @Value("${coindesk.payload.max-bytes:67108864}")
+    private long maxBytes = 64L * 1024 * 1024;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder builds = new LongAdder();
+
+    /**
+     * 取得檢視的序列化內容，自上次寫入後尚未建立時以 loader 查詢並序列化。
+     * 超過 coindesk.payload.max-bytes 的內容照常回傳但不保存，下一次讀取會重新建立。
+     *
+     * @param lastModified 由查詢結果推得最後修改時間（epoch 毫秒），無法推得時回傳 -1
+     */
+    public <T> SerializedPayload get(String view, Supplier<T> loader, ToLongFunction<T> lastModified) {
+        return get(view, loader, lastModified, value -> null);
+    }
+
+    /**
+     * 同 {@link #get(String, Supplier, ToLongFunction)}，另以 createdAt 由同一份查詢結果取出建立時間一併保存，
+     * 讓呼叫端不必為了 Age 標頭再查詢一次。
+     */
+    public <T> SerializedPayload get(String view, Supplier<T> loader, ToLongFunction<T> lastModified,
+                                     Function<T, LocalDateTime> createdAt) {
+        return get(view, loader, lastModified, createdAt, value -> null);
+    }
+
+    /**
+     * 同 {@link #get(String, Supplier, ToLongFunction, Function)}，另以 nextAfterId 由查詢結果取出截斷處的游標一併保存。
+     */
+    public <T> SerializedPayload get(String view, Supplier<T> loader, ToLongFunction<T> lastModified,
+                                     Function<T, LocalDateTime> createdAt, Function<T, Long> nextAfterId) {
+        Entry entry = entries.get(view);
+        if (entry != null && entry.generation == generation.get()) {
+            hits.increment();
+            return entry.payload;
+        }
+        synchronized (locks.computeIfAbsent(view, key -> new Object())) {
+            long current = generation.get();
+            entry = entries.get(view);
+            if (entry != null && entry.generation == current) {
+                hits.increment();
+                return entry.payload;
+            }
+            T value = loader.get();
+            SerializedPayload payload = build(value, lastModified.applyAsLong(value), createdAt.apply(value),
+                    nextAfterId.apply(value), entry != null ? entry.payload : null);
+            builds.increment();
+            if (payload.getBody().length <= maxBytes) {
+                entries.put(view, new Entry(current, payload));
+            } else {
+                entries.remove(view);
+            }
+            return payload;
+        }
+    }
+
+    /**
+     * 使所有檢視失效；必須在寫入的資料可被讀取之後呼叫。
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+    }
+
+    private SerializedPayload build(Object value, long lastModified, LocalDateTime createdAt, Long nextAfterId,
+                                    SerializedPayload previous) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize response payload", e);
+        }
+        String eTag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        if (previous != null) {
+            if (previous.getETag().equals(eTag) && Objects.equals(previous.getCreatedAt(), createdAt)
+                    && Objects.equals(previous.getNextAfterId(), nextAfterId)) {
+                // 寫入未影響此檢視，沿用既有內容與壓縮結果
+                return previous;
+            }
+            if (lastModified <= previous.getLastModified()) {
+                lastModified = Math.max(previous.getLastModified() + 1000L, System.currentTimeMillis() / 1000L * 1000L);
+            }
+        }
+        byte[] gzipBody = gzipEnabled && body.length >= gzipMinBytes ? gzip(body) : null;
+        return new SerializedPayload(body, gzipBody, eTag, lastModified, createdAt, nextAfterId);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 將 updatedISO 轉為 epoch 毫秒，null 或無法解析時回傳 -1。
+     */
+    public static long epochMillis(String updatedIso) {
+        if (updatedIso == null) {
+            return -1L;
+        }
+        try {
+            return OffsetDateTime.parse(updatedIso).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1L;
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getBuilds() {
+        return builds.sum();
+    }
+
+    /**
+     * 目前保存的內容大小（含壓縮版本）。
+     */
+    public long getBytes() {
+        long bytes = 0;
+        for (Entry entry : entries.values()) {
+            bytes += entry.payload.getBody().length;
+            if (entry.payload.getGzipBody() != null) {
+                bytes += entry.payload.getGzipBody().length;
+            }
+        }
+        return bytes;
+    }
+
+    private static final class Entry {
+        private final long generation;
+        private final SerializedPayload payload;
+
+        Entry(long generation, SerializedPayload payload) {
+            this.generation = generation;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.vinskao.source;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 單一報價來源的斷路器。
+ * 連續失敗 failureThreshold 次後開啟，openMs 內的擷取直接略過而不呼叫來源；
+ * 期滿後進入半開狀態，每 openMs 只放行一次試探，成功則關閉，失敗則重新開啟。
+ * 由 RateSourceAggregator 在其同步的 fetch() 中使用，狀態另供指標讀取。
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private final LongAdder rejected = new LongAdder();
+
+    public CircuitBreaker(int failureThreshold, long openMs) {
+        this(failureThreshold, openMs, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, long openMs, LongSupplier nanoClock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * 是否放行本次擷取；開啟期滿時轉為半開並放行一次試探。
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        // 半開的試探沒有回報結果（例如擷取被中斷）時，期滿後再放行一次
+        long now = nanoClock.getAsLong();
+        if (now - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            openedAt = now;
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 因斷路器開啟而略過的擷取次數。
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,25 @@
+package com.vinskao.source;
+
+import com.vinskao.service.CoinDeskApiClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 以 coindesk.api.url 為來源的 CoinDesk HTTP API。
+ */
+@Component
+public class CoinDeskApiRateSource implements RateSource {
+
+    @Autowired
+    private CoinDeskApiClient coinDeskApiClient;
+
+    @Override
+    public String getName() {
+        return "coindesk";
+    }
+
+    @Override
+    public FetchedRates fetch() {
+        return coinDeskApiClient.fetch();
+    }
+}
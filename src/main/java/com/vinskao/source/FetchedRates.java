@@ -0,0 +1,32 @@
+package com.vinskao.source;
+
+import com.vinskao.dto.CoinDeskResponse;
+import lombok.Getter;
+
+/**
+ * 一次擷取取得的報價，以及確認採用後才執行的動作（例如記住上游回應的 ETag / Last-Modified）。
+ * 逾時或合併後未寫入的報價不呼叫 commit，來源下一次擷取仍會取得完整內容。
+ */
+public class FetchedRates {
+    private static final Runnable NOOP = () -> { };
+
+    @Getter
+    private final CoinDeskResponse response;
+    private final Runnable onCommit;
+
+    public FetchedRates(CoinDeskResponse response, Runnable onCommit) {
+        this.response = response;
+        this.onCommit = onCommit;
+    }
+
+    public FetchedRates(CoinDeskResponse response) {
+        this(response, NOOP);
+    }
+
+    /**
+     * 報價已寫入資料庫、交給寫入緩衝或確認無變動後呼叫。
+     */
+    public void commit() {
+        onCommit.run();
+    }
+}
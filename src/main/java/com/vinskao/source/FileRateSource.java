@@ -0,0 +1,65 @@
+package com.vinskao.source;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vinskao.dto.CoinDeskResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * 由本機檔案或 classpath 讀取 CoinDesk 格式報價的來源，供測試與離線環境使用。
+ * 位置由 coindesk.source.file.location 設定（例如 file:/data/coindesk.json 或 classpath:coindesk.json），
+ * 檔案修改時間與上次確認採用時相同時視為內容未變更。
+ */
+@Component
+public class FileRateSource implements RateSource {
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${coindesk.source.file.location:}")
+    private String location;
+
+    private volatile long lastModified = -1;
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public FetchedRates fetch() {
+        if (location.isEmpty()) {
+            throw new IllegalStateException("coindesk.source.file.location is not configured");
+        }
+        Resource resource = resourceLoader.getResource(location);
+        long modified = lastModified(resource);
+        if (modified > 0 && modified == lastModified) {
+            return null;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            CoinDeskResponse response = objectMapper.readValue(in, CoinDeskResponse.class);
+            return new FetchedRates(response, () -> lastModified = modified);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read rates from " + location, e);
+        }
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            // 例如 jar 內的 classpath 資源，每次都重新讀取
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.vinskao.source;
+
+/**
+ * 幣價報價來源。
+ * 實作為 Spring bean，並以 getName() 的名稱列於 coindesk.sources 設定中啟用。
+ */
+public interface RateSource {
+
+    /**
+     * 來源名稱，對應 coindesk.sources 設定中的項目。
+     */
+    String getName();
+
+    /**
+     * 擷取最新報價。可能在擷取執行緒池上與其他來源同時呼叫，逾時時會被中斷。
+     * 回傳的報價被寫入後才會呼叫其 commit，判斷內容是否變更應以已確認的報價為準，而非最後一次取得的報價。
+     *
+     * @return 報價；內容自上次確認的擷取後未變更時回傳 null
+     */
+    FetchedRates fetch();
+}
@@ -0,0 +1,289 @@
+package com.vinskao.source;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.dto.CoinDeskResponse;
+import com.vinskao.enums.RateMergeStrategy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 依 coindesk.sources 設定同時向多個報價來源擷取，並合併為單一份報價。
+ * 所有來源共用 coindesk.sources.deadline-ms 的期限，總耗時取決於最慢且未逾時的來源，而非各來源耗時的總和；
+ * 逾時或失敗的來源不參與本次合併，回傳未變更（null）的來源則沿用其上次確認採用的報價。
+ * 合併結果寫入後呼叫其 commit，才確認各來源本次取得的報價；逾時後才完成的擷取不會被確認，下一次仍會重新取得完整內容。
+ * 每個來源各有一個斷路器（coindesk.sources.breaker.*），持續失敗的來源在開啟期間直接略過，不佔用期限也不對上游送出請求。
+ */
+@Component
+public class RateSourceAggregator {
+    private static final Logger logger = LoggerFactory.getLogger(RateSourceAggregator.class);
+
+    @Autowired
+    private List<RateSource> rateSources;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${coindesk.sources:coindesk}")
+    private String[] sourceNames;
+
+    @Value("${coindesk.sources.deadline-ms:5000}")
+    private long deadlineMs;
+
+    @Value("${coindesk.sources.merge:FIRST_WINS}")
+    private RateMergeStrategy mergeStrategy;
+
+    @Value("${coindesk.sources.breaker.failure-threshold:3}")
+    private int breakerFailureThreshold;
+
+    @Value("${coindesk.sources.breaker.open-ms:30000}")
+    private long breakerOpenMs;
+
+    private List<RateSource> selected;
+    private AtomicReferenceArray<CoinDeskResponse> lastResponses;
+    private CircuitBreaker[] breakers;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        selected = new ArrayList<>(sourceNames.length);
+        for (String name : sourceNames) {
+            selected.add(rateSources.stream()
+                    .filter(source -> source.getName().equals(name.trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Unknown rate source: " + name)));
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalStateException("coindesk.sources must list at least one rate source");
+        }
+        lastResponses = new AtomicReferenceArray<>(selected.size());
+        breakers = new CircuitBreaker[selected.size()];
+        for (int i = 0; i < breakers.length; i++) {
+            breakers[i] = new CircuitBreaker(breakerFailureThreshold, breakerOpenMs);
+            Gauge.builder("coindesk.source.breaker.state", breakers[i], breaker -> breaker.getState().ordinal())
+                    .description("Circuit breaker state per rate source: 0 closed, 1 open, 2 half-open")
+                    .tag("source", selected.get(i).getName())
+                    .register(meterRegistry);
+            FunctionCounter.builder("coindesk.source.breaker.rejected", breakers[i], CircuitBreaker::getRejected)
+                    .description("Fetches skipped because the rate source's circuit breaker was open")
+                    .tag("source", selected.get(i).getName())
+                    .register(meterRegistry);
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(selected.size(), runnable -> {
+            Thread thread = new Thread(runnable, "coindesk-source-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Rate sources: {} (merge {}, deadline {} ms)", Arrays.toString(sourceNames), mergeStrategy, deadlineMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 擷取並合併所有來源的報價。
+     *
+     * @return 合併後的報價，寫入後呼叫 commit 確認參與合併的各來源報價；所有來源皆未變更時回傳 null
+     * @throws RuntimeException 所有來源皆失敗、逾時或斷路器開啟
+     */
+    public synchronized FetchedRates fetch() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        List<Future<FetchedRates>> futures = new ArrayList<>(selected.size());
+        for (int i = 0; i < selected.size(); i++) {
+            futures.add(breakers[i].allowRequest() ? executor.submit(selected.get(i)::fetch) : null);
+        }
+
+        CoinDeskResponse[] responses = new CoinDeskResponse[selected.size()];
+        FetchedRates[] fetched = new FetchedRates[selected.size()];
+        boolean changed = false;
+        int failures = 0;
+        Throwable lastFailure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            Future<FetchedRates> future = futures.get(i);
+            String name = selected.get(i).getName();
+            if (future == null) {
+                failures++;
+                if (lastFailure == null) {
+                    lastFailure = new IllegalStateException("Circuit breaker open for rate source " + name);
+                }
+                logger.debug("Rate source {} skipped, circuit breaker is open", name);
+                continue;
+            }
+            try {
+                fetched[i] = future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (fetched[i] != null) {
+                    changed = true;
+                }
+                responses[i] = fetched[i] != null ? fetched[i].getResponse() : lastResponses.get(i);
+                recordSuccess(i);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                recordFailure(i);
+                failures++;
+                lastFailure = e;
+                logger.warn("Rate source {} exceeded the {} ms deadline", name, deadlineMs);
+            } catch (ExecutionException e) {
+                recordFailure(i);
+                failures++;
+                lastFailure = e.getCause();
+                logger.warn("Rate source {} failed: {}", name, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> {
+                    if (pending != null) {
+                        pending.cancel(true);
+                    }
+                });
+                throw new RuntimeException("Interrupted while fetching rates", e);
+            }
+        }
+        if (failures == selected.size()) {
+            throw new RuntimeException("Failed to fetch data from API", lastFailure);
+        }
+        if (!changed) {
+            return null;
+        }
+        return new FetchedRates(merge(responses, mergeStrategy), () -> commit(fetched));
+    }
+
+    /**
+     * 合併結果已寫入，確認本次有新報價的來源，之後未變更時沿用這些報價。
+     */
+    private void commit(FetchedRates[] fetched) {
+        for (int i = 0; i < fetched.length; i++) {
+            if (fetched[i] != null) {
+                fetched[i].commit();
+                lastResponses.set(i, fetched[i].getResponse());
+            }
+        }
+    }
+
+    private void recordSuccess(int index) {
+        if (breakers[index].getState() != CircuitBreaker.State.CLOSED) {
+            logger.info("Circuit breaker closed for rate source {}", selected.get(index).getName());
+        }
+        breakers[index].recordSuccess();
+    }
+
+    private void recordFailure(int index) {
+        boolean wasOpen = breakers[index].getState() == CircuitBreaker.State.OPEN;
+        breakers[index].recordFailure();
+        if (!wasOpen && breakers[index].getState() == CircuitBreaker.State.OPEN) {
+            logger.warn("Circuit breaker opened for rate source {}, skipping it for {} ms",
+                    selected.get(index).getName(), breakerOpenMs);
+        }
+    }
+
+    /**
+     * 各來源的斷路器，依 coindesk.sources 設定順序。
+     */
+    public Map<String, CircuitBreaker> getCircuitBreakers() {
+        Map<String, CircuitBreaker> result = new LinkedHashMap<>();
+        for (int i = 0; i < selected.size(); i++) {
+            result.put(selected.get(i).getName(), breakers[i]);
+        }
+        return result;
+    }
+
+    /**
+     * 合併各來源的報價；時間、圖表名稱與免責聲明取自第一個有回應的來源。
+     *
+     * @param responses 依設定順序排列，無回應的來源為 null
+     */
+    static CoinDeskResponse merge(CoinDeskResponse[] responses, RateMergeStrategy strategy) {
+        CoinDeskResponse base = null;
+        int available = 0;
+        for (CoinDeskResponse response : responses) {
+            if (response != null) {
+                if (base == null) {
+                    base = response;
+                }
+                available++;
+            }
+        }
+        if (available <= 1) {
+            return base;
+        }
+        CoinDeskResponse merged = new CoinDeskResponse();
+        merged.setTime(base.getTime());
+        merged.setChartName(base.getChartName());
+        merged.setDisclaimer(base.getDisclaimer());
+
+        // 依來源順序收集各幣別代碼的報價
+        Map<String, List<CoinDeskResponse.Currency>> quotes = new LinkedHashMap<>();
+        for (CoinDeskResponse response : responses) {
+            if (response == null || response.getBpi() == null) {
+                continue;
+            }
+            for (Map.Entry<String, CoinDeskResponse.Currency> entry : response.getBpi().entrySet()) {
+                if (entry.getValue() != null) {
+                    quotes.computeIfAbsent(entry.getKey(), code -> new ArrayList<>(responses.length)).add(entry.getValue());
+                }
+            }
+        }
+
+        Map<String, CoinDeskResponse.Currency> bpi = new LinkedHashMap<>(quotes.size() * 2);
+        double[] rates = new double[responses.length];
+        for (Map.Entry<String, List<CoinDeskResponse.Currency>> entry : quotes.entrySet()) {
+            List<CoinDeskResponse.Currency> currencies = entry.getValue();
+            CoinDeskResponse.Currency first = currencies.get(0);
+            if (strategy == RateMergeStrategy.FIRST_WINS || currencies.size() == 1) {
+                bpi.put(entry.getKey(), first);
+                continue;
+            }
+            for (int i = 0; i < currencies.size(); i++) {
+                rates[i] = rateOf(currencies.get(i));
+            }
+            bpi.put(entry.getKey(), withRate(first, median(rates, currencies.size())));
+        }
+        merged.setBpi(bpi);
+        return merged;
+    }
+
+    static double median(double[] values, int count) {
+        double[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        int middle = count / 2;
+        return count % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static double rateOf(CoinDeskResponse.Currency currency) {
+        return currency.getRate_float() != null
+                ? currency.getRate_float()
+                : (double) CoinDesk.parseRate(currency.getRate()) / CoinDesk.RATE_SCALE;
+    }
+
+    private static CoinDeskResponse.Currency withRate(CoinDeskResponse.Currency template, double rate) {
+        CoinDeskResponse.Currency currency = new CoinDeskResponse.Currency();
+        currency.setCode(template.getCode());
+        currency.setSymbol(template.getSymbol());
+        currency.setDescription(template.getDescription());
+        currency.setRate_float(rate);
+        currency.setRate(CoinDesk.formatRate(CoinDesk.toScaled(rate)));
+        return currency;
+    }
+}
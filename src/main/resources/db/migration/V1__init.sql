@@ -0,0 +1,39 @@
+-- 初始結構。僅使用 H2 與 PostgreSQL 共同支援的語法。
+CREATE SEQUENCE coin_desk_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE coin_desk_source (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    chart_name VARCHAR(255),
+    disclaimer VARCHAR(1024),
+    CONSTRAINT uk_coin_desk_source UNIQUE (chart_name, disclaimer)
+);
+
+CREATE TABLE coin_desk (
+    id BIGINT PRIMARY KEY,
+    updated VARCHAR(255),
+    updated_iso VARCHAR(255),
+    updateduk VARCHAR(255),
+    source_id BIGINT REFERENCES coin_desk_source(id),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    currency_type VARCHAR(10),
+    rate_scaled BIGINT NOT NULL
+);
+
+CREATE INDEX idx_currency_type ON coin_desk(currency_type);
+CREATE INDEX idx_updated_iso ON coin_desk(updated_iso);
+CREATE INDEX idx_currency_created ON coin_desk(currency_type, created_at);
+CREATE INDEX idx_created_at ON coin_desk(created_at);
+
+CREATE TABLE coin_desk_rollup (
+    currency_type VARCHAR(10) NOT NULL,
+    resolution VARCHAR(6) NOT NULL,
+    bucket_start BIGINT NOT NULL,
+    open_scaled BIGINT NOT NULL,
+    high_scaled BIGINT NOT NULL,
+    low_scaled BIGINT NOT NULL,
+    close_scaled BIGINT NOT NULL,
+    average_rate DOUBLE PRECISION NOT NULL,
+    tick_count BIGINT NOT NULL,
+    PRIMARY KEY (currency_type, resolution, bucket_start)
+);
@@ -0,0 +1,10 @@
+ALTER TABLE coin_desk ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+
+CREATE TABLE coin_desk_idempotency (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    coin_desk_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_idempotency_created ON coin_desk_idempotency(created_at);
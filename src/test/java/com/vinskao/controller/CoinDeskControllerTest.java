@@ -1,22 +1,49 @@
 package com.vinskao.controller;
 
 import com.vinskao.domain.CoinDesk;
+import com.vinskao.dto.ConversionResult;
+import com.vinskao.dto.CoinDeskPage;
+import com.vinskao.dto.RateCandle;
+import com.vinskao.dto.SerializedPayload;
+import com.vinskao.enums.CandleInterval;
+import com.vinskao.enums.HistoryFormat;
+import com.vinskao.service.CoinDeskCache;
+import com.vinskao.service.CoinDeskIngestScheduler;
 import com.vinskao.service.CoinDeskService;
+import com.vinskao.service.CoinDeskTransferService;
+import com.vinskao.service.CurrencyConversionService;
+import com.vinskao.service.DatabaseExecutor;
+import com.vinskao.service.RateHistoryIndex;
+import com.vinskao.service.RateUpdateBroadcaster;
 import com.vinskao.enums.CurrencyType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
  * CoinDeskController 的單元測試類別。
@@ -26,6 +53,11 @@ import static org.junit.jupiter.api.Assertions.*;
  * - 更新幣別資料
  * - 刪除幣別資料
  * - 獲取所有幣別資料
+ * - 分頁讀取幣別資料
+ * - 讀取 K 線
+ * - 讀取最新幣價
+ * - 換算金額
+ * - 匯入與匯出歷史幣價
  */
 @ExtendWith(MockitoExtension.class)
 public class CoinDeskControllerTest {
@@ -33,6 +65,21 @@ public class CoinDeskControllerTest {
     @Mock
     private CoinDeskService coinDeskService;
 
+    @Mock
+    private CurrencyConversionService currencyConversionService;
+
+    @Mock
+    private RateUpdateBroadcaster rateUpdateBroadcaster;
+
+    @Mock
+    private CoinDeskTransferService coinDeskTransferService;
+
+    @Mock
+    private CoinDeskIngestScheduler coinDeskIngestScheduler;
+
+    @Spy
+    private DatabaseExecutor databaseExecutor = new DatabaseExecutor();
+
     @InjectMocks
     private CoinDeskController coinDeskController;
 
@@ -58,8 +105,6 @@ public class CoinDeskControllerTest {
         mockCoinDesk.setCurrencyType(CurrencyType.USD);
         mockCoinDesk.setRate("57,756.298");
         mockCoinDesk.setRateFloat(57756.2984);
-        mockCoinDesk.setCurrencyName("United States Dollar");
-        mockCoinDesk.setChineseName("美元");
         mockCoinDesk.setCreatedAt(LocalDateTime.now());
         mockCoinDesk.setUpdatedAt(LocalDateTime.now());
     }
@@ -73,14 +118,14 @@ public class CoinDeskControllerTest {
      */
     @Test
     void testCreateCoinDesk() {
-        when(coinDeskService.saveCoinDesk(any(CoinDesk.class))).thenReturn(mockCoinDesk);
+        when(coinDeskService.saveCoinDesk(any(CoinDesk.class), eq("create-1"))).thenReturn(mockCoinDesk);
 
-        ResponseEntity<CoinDesk> response = coinDeskController.createCoinDesk(mockCoinDesk);
+        ResponseEntity<CoinDesk> response = coinDeskController.createCoinDesk(mockCoinDesk, "create-1").join();
 
         assertNotNull(response.getBody());
         assertEquals(1L, response.getBody().getId());
         assertEquals(CurrencyType.USD, response.getBody().getCurrencyType());
-        assertEquals("57,756.298", response.getBody().getRate());
+        assertEquals("57,756.2984", response.getBody().getRate());
         assertEquals("美元", response.getBody().getChineseName());
     }
 
@@ -95,7 +140,7 @@ public class CoinDeskControllerTest {
     void testReadCoinDesk() {
         when(coinDeskService.getCoinDeskById(1L)).thenReturn(mockCoinDesk);
 
-        ResponseEntity<CoinDesk> response = coinDeskController.readCoinDesk(1L);
+        ResponseEntity<CoinDesk> response = coinDeskController.readCoinDesk(1L).join();
 
         assertNotNull(response.getBody());
         assertEquals(1L, response.getBody().getId());
@@ -116,7 +161,7 @@ public class CoinDeskControllerTest {
         updatedCoinDesk.setRateFloat(58000.00);
         when(coinDeskService.updateCoinDesk(eq(1L), any(CoinDesk.class))).thenReturn(updatedCoinDesk);
 
-        ResponseEntity<CoinDesk> response = coinDeskController.updateCoinDesk(1L, updatedCoinDesk);
+        ResponseEntity<CoinDesk> response = coinDeskController.updateCoinDesk(1L, updatedCoinDesk).join();
 
         assertNotNull(response.getBody());
         assertEquals("58,000.00", response.getBody().getRate());
@@ -133,7 +178,7 @@ public class CoinDeskControllerTest {
     void testDeleteCoinDesk() {
         doNothing().when(coinDeskService).deleteCoinDesk(1L);
 
-        ResponseEntity<Void> response = coinDeskController.deleteCoinDesk(1L);
+        ResponseEntity<Void> response = coinDeskController.deleteCoinDesk(1L).join();
 
         assertNotNull(response);
         verify(coinDeskService).deleteCoinDesk(1L);
@@ -142,26 +187,207 @@ public class CoinDeskControllerTest {
     /**
      * 測試獲取所有幣別資料的 API 端點。
      * 驗證：
-     * - 回應是否包含所有幣別的資料
-     * - 回應的幣別類型是否正確
-     * - 回應的數量是否符合預期
+     * - 回應是否為服務層預先序列化的內容
+     * - ETag 與 Last-Modified 標頭是否來自該內容
+     * - 沒有壓縮內容時即使用戶端接受 gzip 也回應未壓縮的位元組
      */
     @Test
     void testGetAllCoinDesks() {
-        List<CoinDesk> mockList = Arrays.asList(
-            createMockCoinDesk(1L, CurrencyType.USD),
-            createMockCoinDesk(2L, CurrencyType.GBP),
-            createMockCoinDesk(3L, CurrencyType.EUR)
-        );
-        when(coinDeskService.getAllCoinDesks()).thenReturn(mockList);
+        byte[] body = "[{\"id\":1,\"currencyType\":\"USD\",\"rateFloat\":57756.2984}]".getBytes(StandardCharsets.UTF_8);
+        when(coinDeskService.getAllCoinDesksPayload())
+            .thenReturn(new SerializedPayload(body, null, "\"5d41402a\"", 1725260840000L));
+
+        ResponseEntity<byte[]> response = coinDeskController.getAllCoinDesks("gzip").join();
+
+        assertArrayEquals(body, response.getBody());
+        assertEquals("\"5d41402a\"", response.getHeaders().getETag());
+        assertEquals(1725260840000L, response.getHeaders().getLastModified());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertNull(response.getHeaders().getFirst(HttpHeaders.LINK));
+    }
+
+    /**
+     * 測試 /all 達到筆數上限時，以 Link 標頭指向以 /page 讀取其餘資料的位置。
+     */
+    @Test
+    void testGetAllCoinDesksLinksToNextPage() {
+        byte[] body = "[{\"id\":1},{\"id\":2}]".getBytes(StandardCharsets.UTF_8);
+        when(coinDeskService.getAllCoinDesksPayload())
+            .thenReturn(new SerializedPayload(body, null, "\"5d41402a\"", -1L, null, 2L));
+
+        ResponseEntity<byte[]> response = coinDeskController.getAllCoinDesks(null).join();
+
+        assertArrayEquals(body, response.getBody());
+        assertEquals("</api/coindesk/page?afterId=2>; rel=\"next\"", response.getHeaders().getFirst(HttpHeaders.LINK));
+    }
+
+    /**
+     * 測試分頁讀取幣別資料的 API 端點。
+     * 驗證：
+     * - 回應是否包含該頁資料
+     * - 回應是否包含下一頁游標
+     */
+    @Test
+    void testGetCoinDeskPage() {
+        CoinDeskPage page = new CoinDeskPage(Arrays.asList(createMockCoinDesk(5L, CurrencyType.EUR)), 5L);
+        when(coinDeskService.getCoinDeskPage(null, 1, CurrencyType.EUR, null, null)).thenReturn(page);
 
-        ResponseEntity<List<CoinDesk>> response = coinDeskController.getAllCoinDesks();
+        ResponseEntity<CoinDeskPage> response = coinDeskController
+            .getCoinDeskPage(null, 1, CurrencyType.EUR, null, null).join();
 
         assertNotNull(response.getBody());
-        assertEquals(3, response.getBody().size());
-        assertEquals(CurrencyType.USD, response.getBody().get(0).getCurrencyType());
-        assertEquals(CurrencyType.GBP, response.getBody().get(1).getCurrencyType());
-        assertEquals(CurrencyType.EUR, response.getBody().get(2).getCurrencyType());
+        assertEquals(1, response.getBody().getItems().size());
+        assertEquals(5L, response.getBody().getNextAfterId());
+    }
+
+    /**
+     * 測試讀取 K 線的 API 端點。
+     * 驗證：
+     * - 指定區間時原樣交給服務層
+     * - 回應是否包含服務層計算的 K 線
+     */
+    @Test
+    void testGetCandles() {
+        LocalDateTime from = LocalDateTime.of(2024, 9, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 9, 2, 0, 0);
+        RateCandle candle = mock(RateCandle.class);
+        when(coinDeskService.getCandles(CurrencyType.USD, CandleInterval.H1, from, to))
+            .thenReturn(Arrays.asList(candle));
+
+        ResponseEntity<List<RateCandle>> response = coinDeskController
+            .getCandles(CurrencyType.USD, CandleInterval.H1, from, to).join();
+
+        assertNotNull(response.getBody());
+        assertEquals(1, response.getBody().size());
+    }
+
+    /**
+     * 測試讀取指定幣別最新幣價的 API 端點。
+     * 驗證：
+     * - 回應是否為服務層預先序列化的最新幣價
+     * - 用戶端接受 gzip 時回應壓縮內容與對應的 ETag，q=0 時不壓縮
+     */
+    @Test
+    void testGetLatestCoinDesk() {
+        byte[] body = "{\"id\":1,\"currencyType\":\"USD\",\"rateFloat\":57756.2984}".getBytes(StandardCharsets.UTF_8);
+        byte[] gzipBody = {31, -117, 8, 0};
+        when(coinDeskService.getLatestPayload(CurrencyType.USD))
+            .thenReturn(new SerializedPayload(body, gzipBody, "\"7d793037\"", -1L));
+
+        ResponseEntity<byte[]> response = coinDeskController.getLatestCoinDesk(CurrencyType.USD, null);
+        ResponseEntity<byte[]> gzipped = coinDeskController.getLatestCoinDesk(CurrencyType.USD, "deflate, gzip;q=0.8");
+        ResponseEntity<byte[]> refused = coinDeskController.getLatestCoinDesk(CurrencyType.USD, "gzip;q=0, br");
+
+        assertArrayEquals(body, response.getBody());
+        assertEquals("\"7d793037\"", response.getHeaders().getETag());
+        assertEquals(-1L, response.getHeaders().getLastModified());
+        assertArrayEquals(gzipBody, gzipped.getBody());
+        assertEquals("gzip", gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("\"7d793037-gzip\"", gzipped.getHeaders().getETag());
+        assertArrayEquals(body, refused.getBody());
+    }
+
+    /**
+     * 測試快照過期時仍回應最後已知幣價，附上 Age 與 Warning 標頭並觸發背景補擷取；
+     * Age 取自預先序列化內容的建立時間，不另外查詢最新幣價。
+     */
+    @Test
+    void testGetLatestCoinDeskWhenStale() {
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(5);
+        byte[] body = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        when(coinDeskService.getLatestPayload(CurrencyType.USD))
+            .thenReturn(new SerializedPayload(body, null, "\"b5b4f5f2\"", -1L, createdAt, null));
+        when(coinDeskIngestScheduler.getSnapshotAgeMillis(createdAt)).thenReturn(200500L);
+        when(coinDeskIngestScheduler.isStale(200500L)).thenReturn(true);
+
+        ResponseEntity<byte[]> response = coinDeskController.getLatestCoinDesk(CurrencyType.USD, null);
+
+        assertArrayEquals(body, response.getBody());
+        assertEquals("200", response.getHeaders().getFirst(HttpHeaders.AGE));
+        assertEquals("110 - \"Response is Stale\"", response.getHeaders().getFirst(HttpHeaders.WARNING));
+        verify(coinDeskIngestScheduler).revalidate();
+        verify(coinDeskService, never()).getLatestCoinDesk(any());
+    }
+
+    /**
+     * 測試換算金額的 API 端點。
+     */
+    @Test
+    void testConvert() {
+        ConversionResult result = new ConversionResult("BTC", "USD", 2.0, 60000.0, 120000.0, "2024-09-02T07:07:20+00:00");
+        when(currencyConversionService.convert(2.0, "BTC", "USD")).thenReturn(result);
+
+        ResponseEntity<ConversionResult> response = coinDeskController.convert(2.0, "BTC", "USD");
+
+        assertSame(result, response.getBody());
+    }
+
+    /**
+     * 測試以指定時間點換算金額的 API 端點。
+     */
+    @Test
+    void testConvertAsOf() {
+        LocalDateTime at = LocalDateTime.of(2024, 9, 2, 12, 0);
+        ConversionResult result = new ConversionResult("USD", "BTC", 30000.0, 1 / 60000.0, 0.5, "2024-09-02T11:59");
+        when(currencyConversionService.convertAsOf(30000.0, "USD", "BTC", at)).thenReturn(result);
+
+        ResponseEntity<ConversionResult> response = coinDeskController.convertAsOf(30000.0, "USD", "BTC", at).join();
+
+        assertSame(result, response.getBody());
+    }
+
+    /**
+     * 測試換算請求中的未知幣別代碼回應 400，尚無報價的組合回應 404，而不是 500。
+     */
+    @Test
+    void testConvertErrorStatus() throws Exception {
+        CurrencyConversionService conversionService = new CurrencyConversionService();
+        ReflectionTestUtils.setField(conversionService, "coinDeskCache", new CoinDeskCache());
+        RateHistoryIndex rateHistoryIndex = mock(RateHistoryIndex.class);
+        ReflectionTestUtils.setField(conversionService, "rateHistoryIndex", rateHistoryIndex);
+        ReflectionTestUtils.setField(coinDeskController, "currencyConversionService", conversionService);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(coinDeskController).build();
+
+        mockMvc.perform(post("/api/coindesk/convert").param("amount", "1").param("from", "BTC").param("to", "XYZ"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/coindesk/convert").param("amount", "1").param("from", "BTC").param("to", "USD"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/coindesk/convert/asof").param("amount", "1").param("from", "XYZ").param("to", "USD")
+                        .param("at", "2024-09-02T12:00:00"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/coindesk/convert/asof").param("amount", "1").param("from", "BTC").param("to", "USD")
+                        .param("at", "2024-09-02T12:00:00"))
+                .andExpect(status().isNotFound());
+    }
+
+    /**
+     * 測試匯出歷史幣價的 API 端點設定檔案類型與檔名。
+     */
+    @Test
+    void testExportHistory() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        coinDeskController.exportHistory(HistoryFormat.BINARY, CurrencyType.USD, null, null, response);
+
+        assertEquals("application/octet-stream", response.getContentType());
+        assertEquals("attachment; filename=coindesk-history.cdh", response.getHeader("Content-Disposition"));
+        verify(coinDeskTransferService).exportHistory(HistoryFormat.BINARY, CurrencyType.USD, null, null,
+                response.getOutputStream());
+    }
+
+    /**
+     * 測試匯入歷史幣價的 API 端點回傳匯入筆數。
+     */
+    @Test
+    void testImportHistory() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent("currency_type,created_at,rate,updated_iso\n".getBytes(StandardCharsets.UTF_8));
+        when(coinDeskTransferService.importHistory(eq(HistoryFormat.CSV), any())).thenReturn(3L);
+
+        ResponseEntity<Map<String, Object>> response = coinDeskController.importHistory(HistoryFormat.CSV, request);
+
+        assertEquals(3L, response.getBody().get("imported"));
     }
 
     /**
@@ -177,8 +403,6 @@ public class CoinDeskControllerTest {
         coinDesk.setCurrencyType(currencyType);
         coinDesk.setRate("1000.00");
         coinDesk.setRateFloat(1000.0);
-        coinDesk.setCurrencyName("Test Currency");
-        coinDesk.setChineseName("測試幣別");
         coinDesk.setCreatedAt(LocalDateTime.now());
         coinDesk.setUpdatedAt(LocalDateTime.now());
         return coinDesk;
@@ -0,0 +1,87 @@
+package com.vinskao.enums;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CurrencyType 的單元測試類別。
+ * 測試由 currencies.csv 載入的幣別清單、清單來源的檢查、代碼查詢與 JSON 轉換。
+ */
+public class CurrencyTypeTest {
+
+    /**
+     * 測試幣別清單的 ordinal 連續且依檔案順序排列，並可以代碼查詢。
+     */
+    @Test
+    void testRegistry() {
+        assertTrue(CurrencyType.size() >= 150);
+        assertEquals(0, CurrencyType.USD.ordinal());
+        assertEquals(1, CurrencyType.GBP.ordinal());
+        assertEquals(2, CurrencyType.EUR.ordinal());
+        for (int i = 0; i < CurrencyType.size(); i++) {
+            CurrencyType type = CurrencyType.byOrdinal(i);
+            assertEquals(i, type.ordinal());
+            assertSame(type, CurrencyType.fromCode(type.getCode()));
+        }
+
+        CurrencyType twd = CurrencyType.fromCode("TWD");
+        assertEquals("新臺幣", twd.getChineseName());
+        assertEquals("New Taiwan Dollar", twd.getEnglishName());
+        assertSame(twd, CurrencyType.valueOf("TWD"));
+        assertNull(CurrencyType.find("XYZ"));
+        assertThrows(IllegalArgumentException.class, () -> CurrencyType.fromCode("XYZ"));
+    }
+
+    /**
+     * 測試自訂清單缺少 USD / GBP / EUR 或代碼重複時，設定來源當下即以明確的訊息拒絕。
+     */
+    @Test
+    void testSetLocationValidatesList(@TempDir Path dir) throws IOException {
+        Path missing = Files.write(dir.resolve("missing.csv"),
+                "USD,美元,United States Dollar\nJPY,日圓,Japanese Yen\n".getBytes(StandardCharsets.UTF_8));
+        Path duplicate = Files.write(dir.resolve("duplicate.csv"),
+                "USD,,US Dollar\nGBP,,Pound\nEUR,,Euro\nUSD,,Again\n".getBytes(StandardCharsets.UTF_8));
+
+        IllegalStateException missingError = assertThrows(IllegalStateException.class,
+                () -> CurrencyType.Registry.setLocation("file:" + missing));
+        assertTrue(missingError.getMessage().contains("missing GBP, EUR"));
+        IllegalStateException duplicateError = assertThrows(IllegalStateException.class,
+                () -> CurrencyType.Registry.setLocation("file:" + duplicate));
+        assertTrue(duplicateError.getMessage().contains("Duplicate currency code USD"));
+    }
+
+    /**
+     * 測試類別載入後改用其他清單時拒絕並指出最初載入的位置，設定相同來源則不受影響。
+     */
+    @Test
+    void testSetLocationAfterLoad(@TempDir Path dir) throws IOException {
+        assertNotNull(CurrencyType.USD);
+        Path other = Files.write(dir.resolve("other.csv"),
+                "USD,,US Dollar\nGBP,,Pound\nEUR,,Euro\n".getBytes(StandardCharsets.UTF_8));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> CurrencyType.Registry.setLocation("file:" + other));
+        assertTrue(error.getMessage().contains("already loaded from " + CurrencyType.DEFAULT_LOCATION));
+        assertNotNull(error.getCause());
+        assertDoesNotThrow(() -> CurrencyType.Registry.setLocation(CurrencyType.DEFAULT_LOCATION));
+    }
+
+    /**
+     * 測試 JSON 以幣別代碼表示。
+     */
+    @Test
+    void testJson() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        assertEquals("\"EUR\"", objectMapper.writeValueAsString(CurrencyType.EUR));
+        assertSame(CurrencyType.EUR, objectMapper.readValue("\"EUR\"", CurrencyType.class));
+    }
+}
@@ -0,0 +1,148 @@
+package com.vinskao.repository;
+
+import com.vinskao.enums.CurrencyType;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.lang.reflect.Method;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Flyway 遷移與原生查詢的相容性測試。
+ * 以記憶體 H2 的預設模式與 PostgreSQL 相容模式執行遷移，並直接執行 Repository 上的原生 SQL。
+ */
+public class SchemaMigrationTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 9, 1, 0, 0);
+
+    /**
+     * 測試遷移後可彙總、分批刪除（保留各幣別最新一筆）並由彙總資料計算 K 線；ID 較大但建立時間較早的資料（匯入的歷史資料）不會成為收盤價。
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "jdbc:h2:mem:migration;DB_CLOSE_DELAY=-1",
+        "jdbc:h2:mem:migration-pg;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1"
+    })
+    void testMigrateAndRunNativeQueries(String url) throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(dataSource);
+
+        insert(jdbc, 1L, 100000000L, DAY.plusSeconds(10));
+        insert(jdbc, 2L, 110000000L, DAY.plusSeconds(59).plusNanos(700_000_000));
+        insert(jdbc, 3L, 90000000L, DAY.plusMinutes(90));
+        insert(jdbc, 4L, 120000000L, DAY.plusDays(2));
+        insert(jdbc, 5L, 95000000L, DAY.plusSeconds(5));
+
+        String rollUp = nativeQuery(CoinDeskRollupRepository.class.getMethod(
+                "rollUp", String.class, long.class, LocalDateTime.class));
+        MapSqlParameterSource hour = new MapSqlParameterSource()
+                .addValue("resolution", "HOUR")
+                .addValue("bucketSeconds", 3600L)
+                .addValue("cutoff", Timestamp.valueOf(DAY.plusDays(1)));
+        assertEquals(2, jdbc.update(rollUp, hour));
+        assertEquals(0, jdbc.update(rollUp, hour));
+
+        String findLastClose = nativeQuery(CoinDeskRollupRepository.class.getMethod(
+                "findLastClose", String.class, String.class, long.class, long.class));
+        long firstHour = DAY.toEpochSecond(ZoneOffset.UTC);
+        List<Map<String, Object>> closes = jdbc.queryForList(findLastClose, new MapSqlParameterSource()
+                .addValue("currencyType", "USD")
+                .addValue("resolution", "HOUR")
+                .addValue("from", firstHour - 86400)
+                .addValue("to", firstHour + 3599));
+        assertEquals(1, closes.size());
+        assertEquals(firstHour, ((Number) closes.get(0).get("bucket_start")).longValue());
+        assertEquals(110000000L, ((Number) closes.get(0).get("close_scaled")).longValue());
+        String streamCloses = nativeQuery(CoinDeskRollupRepository.class.getMethod(
+                "streamCloses", String.class, String.class, long.class, long.class));
+        assertEquals(2, jdbc.queryForList(streamCloses, new MapSqlParameterSource()
+                .addValue("currencyType", "USD")
+                .addValue("resolution", "HOUR")
+                .addValue("from", firstHour)
+                .addValue("to", firstHour + 3600)).size());
+
+        String deleteChunk = nativeQuery(CoinDeskRepository.class.getMethod(
+                "deleteChunkCreatedBefore", LocalDateTime.class, int.class));
+        MapSqlParameterSource chunk = new MapSqlParameterSource()
+                .addValue("cutoff", Timestamp.valueOf(DAY.plusDays(1)))
+                .addValue("limit", 2);
+        assertEquals(2, jdbc.update(deleteChunk, chunk));
+        assertEquals(2, jdbc.update(deleteChunk, chunk));
+        assertEquals(1, jdbc.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM coin_desk", Integer.class));
+        // 最新一筆即使早於保留期限也保留，報價未變動時不會有新資料取代它
+        assertEquals(0, jdbc.update(deleteChunk, new MapSqlParameterSource()
+                .addValue("cutoff", Timestamp.valueOf(DAY.plusDays(3)))
+                .addValue("limit", 2)));
+
+        String findCandles = nativeQuery(CoinDeskRollupRepository.class.getMethod(
+                "findCandles", String.class, String.class, long.class, long.class, long.class));
+        List<Map<String, Object>> candles = jdbc.queryForList(findCandles, new MapSqlParameterSource()
+                .addValue("currencyType", "USD")
+                .addValue("resolution", "HOUR")
+                .addValue("bucketSeconds", 86400L)
+                .addValue("from", DAY.toEpochSecond(ZoneOffset.UTC))
+                .addValue("to", DAY.plusDays(1).toEpochSecond(ZoneOffset.UTC)));
+        assertEquals(1, candles.size());
+        assertEquals(9500.0, ((Number) candles.get(0).get("openRate")).doubleValue(), 0.0);
+        assertEquals(9000.0, ((Number) candles.get(0).get("closeRate")).doubleValue(), 0.0);
+        assertEquals(9875.0, ((Number) candles.get(0).get("averageRate")).doubleValue(), 1e-9);
+        assertEquals(4L, ((Number) candles.get(0).get("tickCount")).longValue());
+    }
+
+    /**
+     * 測試時間戳的小數秒不會使資料被歸入下一個時間區間，開盤/收盤價依建立時間而非 ID 決定。
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "jdbc:h2:mem:bucket;DB_CLOSE_DELAY=-1",
+        "jdbc:h2:mem:bucket-pg;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1"
+    })
+    void testFractionalSecondsStayInBucket(String url) throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(dataSource);
+
+        insert(jdbc, 1L, 100000000L, DAY.plusSeconds(10));
+        insert(jdbc, 2L, 110000000L, DAY.plusSeconds(59).plusNanos(700_000_000));
+        insert(jdbc, 3L, 95000000L, DAY.plusSeconds(5));
+
+        String findCandles = nativeQuery(CoinDeskRepository.class.getMethod(
+                "findCandles", String.class, long.class, LocalDateTime.class, LocalDateTime.class));
+        List<Map<String, Object>> candles = jdbc.queryForList(findCandles, new MapSqlParameterSource()
+                .addValue("currencyType", "USD")
+                .addValue("bucketSeconds", 60L)
+                .addValue("from", Timestamp.valueOf(DAY))
+                .addValue("to", Timestamp.valueOf(DAY.plusMinutes(2))));
+        assertEquals(1, candles.size());
+        assertEquals(3L, ((Number) candles.get(0).get("tickCount")).longValue());
+        assertEquals(9500.0, ((Number) candles.get(0).get("openRate")).doubleValue(), 0.0);
+        assertEquals(11000.0, ((Number) candles.get(0).get("closeRate")).doubleValue(), 0.0);
+    }
+
+    private static void insert(NamedParameterJdbcTemplate jdbc, long id, long rateScaled, LocalDateTime createdAt) {
+        jdbc.update("INSERT INTO coin_desk (id, currency_type, rate_scaled, created_at)"
+                + " VALUES (:id, :currencyType, :rateScaled, :createdAt)", new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("currencyType", CurrencyType.USD.getCode())
+                .addValue("rateScaled", rateScaled)
+                .addValue("createdAt", Timestamp.valueOf(createdAt)));
+    }
+
+    private static String nativeQuery(Method method) {
+        Query query = method.getAnnotation(Query.class);
+        assertTrue(query.nativeQuery(), method.getName());
+        return query.value();
+    }
+}
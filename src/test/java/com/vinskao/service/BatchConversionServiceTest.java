@@ -0,0 +1,113 @@
+package com.vinskao.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.enums.CurrencyType;
+import com.vinskao.exception.CoinDeskBadRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BatchConversionService 的單元測試類別。
+ * 測試逐筆與欄位兩種請求格式的批次換算，以及輸出開始前後的錯誤處理。
+ */
+public class BatchConversionServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private BatchConversionService batchConversionService;
+
+    @BeforeEach
+    void setUp() {
+        CoinDeskCache coinDeskCache = new CoinDeskCache();
+        coinDeskCache.put(createCoinDesk(1L, CurrencyType.USD, 60000.0));
+        coinDeskCache.put(createCoinDesk(2L, CurrencyType.EUR, 50000.0));
+        CurrencyConversionService currencyConversionService = new CurrencyConversionService();
+        ReflectionTestUtils.setField(currencyConversionService, "coinDeskCache", coinDeskCache);
+        currencyConversionService.rebuild();
+
+        batchConversionService = new BatchConversionService();
+        ReflectionTestUtils.setField(batchConversionService, "currencyConversionService", currencyConversionService);
+        ReflectionTestUtils.setField(batchConversionService, "objectMapper", objectMapper);
+    }
+
+    /**
+     * 測試逐筆格式：結果依請求順序輸出，未知幣別與尚無報價者為 null。
+     */
+    @Test
+    void testConvertTuples() throws IOException {
+        JsonNode result = convert("[{\"amount\":2,\"from\":\"BTC\",\"to\":\"USD\"},"
+                + "{\"to\":\"EUR\",\"from\":\"USD\",\"amount\":60,\"note\":{\"a\":1}},"
+                + "{\"amount\":1,\"from\":\"USD\",\"to\":\"GBP\"},"
+                + "{\"amount\":1,\"from\":\"USD\",\"to\":\"XYZ\"}]");
+
+        assertEquals("2024-09-02T07:07:20+00:00", result.get("asOf").asText());
+        assertEquals(4, result.get("results").size());
+        assertEquals(120000.0, result.get("results").get(0).asDouble(), 1e-9);
+        assertEquals(50.0, result.get("results").get(1).asDouble(), 1e-9);
+        assertTrue(result.get("results").get(2).isNull());
+        assertTrue(result.get("results").get(3).isNull());
+        assertEquals(2, result.get("unavailable").asInt());
+    }
+
+    /**
+     * 測試欄位格式：單一代碼會套用到所有金額。
+     */
+    @Test
+    void testConvertColumns() throws IOException {
+        JsonNode result = convert("{\"from\":\"BTC\",\"to\":[\"USD\",\"EUR\",\"BTC\"],\"amounts\":[1,2,3]}");
+
+        assertEquals(3, result.get("results").size());
+        assertEquals(60000.0, result.get("results").get(0).asDouble(), 1e-9);
+        assertEquals(100000.0, result.get("results").get(1).asDouble(), 1e-9);
+        assertEquals(3.0, result.get("results").get(2).asDouble(), 0.0);
+        assertEquals(0, result.get("unavailable").asInt());
+
+        assertThrows(CoinDeskBadRequestException.class,
+                () -> convert("{\"amounts\":[1,2,3],\"from\":[\"BTC\",\"USD\"],\"to\":\"EUR\"}"));
+        assertThrows(CoinDeskBadRequestException.class, () -> convert("\"BTC\""));
+        assertThrows(CoinDeskBadRequestException.class, () -> convert("{\"amounts\":[1,"));
+    }
+
+    /**
+     * 測試逐筆格式：第一個元素之前的錯誤回應 400，輸出開始後的錯誤改以結尾的 error 欄位回報，已換算的結果保留。
+     */
+    @Test
+    void testConvertTuplesErrors() throws IOException {
+        assertThrows(CoinDeskBadRequestException.class, () -> convert("[1,2]"));
+        assertThrows(CoinDeskBadRequestException.class, () -> convert("[{"));
+
+        JsonNode wrongElement = convert("[{\"amount\":2,\"from\":\"BTC\",\"to\":\"USD\"},\"x\"]");
+        assertEquals(1, wrongElement.get("results").size());
+        assertEquals(120000.0, wrongElement.get("results").get(0).asDouble(), 1e-9);
+        assertEquals("Expected an array of {amount, from, to} objects", wrongElement.get("error").asText());
+
+        JsonNode truncated = convert("[{\"amount\":2,\"from\":\"BTC\",\"to\":\"USD\"},{\"amount\":");
+        assertEquals(1, truncated.get("results").size());
+        assertEquals(0, truncated.get("unavailable").asInt());
+        assertTrue(truncated.get("error").asText().startsWith("Malformed JSON request"));
+    }
+
+    private JsonNode convert(String request) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batchConversionService.convert(new ByteArrayInputStream(request.getBytes(StandardCharsets.UTF_8)), out);
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    private CoinDesk createCoinDesk(Long id, CurrencyType currencyType, double rate) {
+        CoinDesk coinDesk = new CoinDesk();
+        coinDesk.setId(id);
+        coinDesk.setCurrencyType(currencyType);
+        coinDesk.setRateFloat(rate);
+        coinDesk.setUpdatedISO("2024-09-02T07:07:20+00:00");
+        return coinDesk;
+    }
+}
@@ -0,0 +1,129 @@
+package com.vinskao.service;
+
+import com.vinskao.source.FetchedRates;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+/**
+ * CoinDeskApiClient 的單元測試類別。
+ * 測試條件式請求（ETag / If-Modified-Since）、重試與延遲統計。
+ */
+public class CoinDeskApiClientTest {
+
+    private static final String TEST_API_URL = "https://api.coindesk.com/v1/bpi/currentprice.json";
+    private static final String BODY = "{\"time\":{\"updatedISO\":\"2024-09-02T07:07:20+00:00\"},"
+            + "\"chartName\":\"Bitcoin\",\"bpi\":{\"USD\":{\"code\":\"USD\",\"rate\":\"57,756.298\",\"rate_float\":57756.2984}}}";
+
+    private MockRestServiceServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private CoinDeskApiClient coinDeskApiClient;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        meterRegistry = new SimpleMeterRegistry();
+        coinDeskApiClient = new CoinDeskApiClient();
+        ReflectionTestUtils.setField(coinDeskApiClient, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(coinDeskApiClient, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(coinDeskApiClient, "apiUrl", TEST_API_URL);
+    }
+
+    /**
+     * 測試確認寫入後，第二次擷取會帶上前次的驗證資訊，上游回應 304 時回傳 null。
+     */
+    @Test
+    void testConditionalFetch() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"v1\"");
+        headers.set(HttpHeaders.LAST_MODIFIED, "Mon, 02 Sep 2024 07:07:20 GMT");
+        server.expect(requestTo(TEST_API_URL))
+            .andExpect(method(HttpMethod.GET))
+            .andRespond(withSuccess(BODY, MediaType.APPLICATION_JSON).headers(headers));
+        server.expect(requestTo(TEST_API_URL))
+            .andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+            .andExpect(header(HttpHeaders.IF_MODIFIED_SINCE, "Mon, 02 Sep 2024 07:07:20 GMT"))
+            .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+        FetchedRates first = coinDeskApiClient.fetch();
+        first.commit();
+        FetchedRates second = coinDeskApiClient.fetch();
+
+        server.verify();
+        assertNotNull(first);
+        assertEquals(57756.2984, first.getResponse().getBpi().get("USD").getRate_float());
+        assertNull(second);
+        assertEquals(2L, coinDeskApiClient.getStats().get("requests"));
+        assertEquals(1L, coinDeskApiClient.getStats().get("notModified"));
+        assertEquals(1L, meterRegistry.get("coindesk.fetch").tag("status", "ok").timer().count());
+        assertEquals(1L, meterRegistry.get("coindesk.fetch").tag("status", "not_modified").timer().count());
+    }
+
+    /**
+     * 測試未確認寫入的回應不更新驗證資訊，下一次擷取仍取得完整內容。
+     */
+    @Test
+    void testValidatorsNotCommittedUntilPersisted() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"v1\"");
+        server.expect(requestTo(TEST_API_URL))
+            .andRespond(withSuccess(BODY, MediaType.APPLICATION_JSON).headers(headers));
+        server.expect(requestTo(TEST_API_URL))
+            .andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+            .andRespond(withServerError());
+        server.expect(requestTo(TEST_API_URL))
+            .andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+            .andRespond(withSuccess(BODY, MediaType.APPLICATION_JSON));
+
+        assertNotNull(coinDeskApiClient.fetch());
+        assertThrows(RuntimeException.class, () -> coinDeskApiClient.fetch());
+        assertNotNull(coinDeskApiClient.fetch());
+
+        server.verify();
+    }
+
+    /**
+     * 測試暫時性錯誤以退避重試，用戶端錯誤不重試。
+     */
+    @Test
+    void testRetriesTransientFailures() {
+        ReflectionTestUtils.setField(coinDeskApiClient, "maxRetries", 2);
+        ReflectionTestUtils.setField(coinDeskApiClient, "retryBackoffMs", 1L);
+        server.expect(requestTo(TEST_API_URL)).andRespond(withServerError());
+        server.expect(requestTo(TEST_API_URL)).andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS));
+        server.expect(requestTo(TEST_API_URL)).andRespond(withSuccess(BODY, MediaType.APPLICATION_JSON));
+        server.expect(requestTo(TEST_API_URL)).andRespond(withStatus(HttpStatus.NOT_FOUND));
+
+        assertNotNull(coinDeskApiClient.fetch());
+        assertThrows(RuntimeException.class, () -> coinDeskApiClient.fetch());
+
+        server.verify();
+        assertEquals(2L, coinDeskApiClient.getStats().get("retries"));
+        assertEquals(3L, coinDeskApiClient.getStats().get("failures"));
+    }
+
+    /**
+     * 測試上游錯誤時拋出例外並累計失敗次數。
+     */
+    @Test
+    void testFetchFailure() {
+        server.expect(requestTo(TEST_API_URL)).andRespond(withServerError());
+
+        assertThrows(RuntimeException.class, () -> coinDeskApiClient.fetch());
+
+        assertEquals(1L, coinDeskApiClient.getStats().get("failures"));
+        assertEquals(1L, meterRegistry.get("coindesk.fetch").tag("status", "error").timer().count());
+    }
+}
@@ -0,0 +1,108 @@
+package com.vinskao.service;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.enums.CurrencyType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CoinDeskCache 的單元測試類別。
+ * 測試最新幣價快取的放入、更新、失效與統計功能。
+ */
+public class CoinDeskCacheTest {
+
+    private CoinDeskCache coinDeskCache;
+
+    @BeforeEach
+    void setUp() {
+        coinDeskCache = new CoinDeskCache();
+    }
+
+    /**
+     * 測試快取命中與未命中的計數。
+     */
+    @Test
+    void testHitAndMissCounters() {
+        assertNull(coinDeskCache.get(CurrencyType.USD));
+        coinDeskCache.put(createCoinDesk(1L, CurrencyType.USD));
+        assertNotNull(coinDeskCache.get(CurrencyType.USD));
+
+        assertEquals(1L, coinDeskCache.getHits());
+        assertEquals(1L, coinDeskCache.getMisses());
+        assertEquals(1, coinDeskCache.size());
+    }
+
+    /**
+     * 測試 CRUD 更新較舊資料時不會覆蓋較新的快取。
+     */
+    @Test
+    void testRefreshKeepsNewerEntry() {
+        CoinDesk newer = createCoinDesk(5L, CurrencyType.EUR);
+        coinDeskCache.put(newer);
+
+        coinDeskCache.refresh(createCoinDesk(3L, CurrencyType.EUR));
+        assertSame(newer, coinDeskCache.get(CurrencyType.EUR));
+
+        CoinDesk newest = createCoinDesk(6L, CurrencyType.EUR);
+        coinDeskCache.refresh(newest);
+        assertSame(newest, coinDeskCache.get(CurrencyType.EUR));
+    }
+
+    /**
+     * 測試 ID 較大但建立時間較早的資料（匯入的歷史資料）不會取代最新幣價。
+     */
+    @Test
+    void testRefreshComparesCreatedAt() {
+        CoinDesk live = createCoinDesk(5L, CurrencyType.USD);
+        live.setCreatedAt(LocalDateTime.of(2024, 9, 2, 7, 0));
+        coinDeskCache.put(live);
+
+        CoinDesk imported = createCoinDesk(900L, CurrencyType.USD);
+        imported.setCreatedAt(LocalDateTime.of(2024, 9, 1, 0, 0));
+        coinDeskCache.refresh(imported);
+        assertSame(live, coinDeskCache.get(CurrencyType.USD));
+
+        CoinDesk later = createCoinDesk(3L, CurrencyType.USD);
+        later.setCreatedAt(LocalDateTime.of(2024, 9, 2, 8, 0));
+        coinDeskCache.refresh(later);
+        assertSame(later, coinDeskCache.get(CurrencyType.USD));
+    }
+
+    /**
+     * 測試資料的幣別被修改時，舊幣別下的快取會被移除。
+     */
+    @Test
+    void testRefreshMovesEntryBetweenCurrencies() {
+        coinDeskCache.put(createCoinDesk(5L, CurrencyType.USD));
+
+        coinDeskCache.refresh(createCoinDesk(5L, CurrencyType.GBP));
+
+        assertNull(coinDeskCache.get(CurrencyType.USD));
+        assertEquals(5L, coinDeskCache.get(CurrencyType.GBP).getId());
+    }
+
+    /**
+     * 測試依 ID 使快取失效。
+     */
+    @Test
+    void testEvict() {
+        coinDeskCache.put(createCoinDesk(5L, CurrencyType.USD));
+        coinDeskCache.put(createCoinDesk(6L, CurrencyType.GBP));
+
+        coinDeskCache.evict(5L);
+
+        assertNull(coinDeskCache.get(CurrencyType.USD));
+        assertNotNull(coinDeskCache.get(CurrencyType.GBP));
+    }
+
+    private CoinDesk createCoinDesk(Long id, CurrencyType currencyType) {
+        CoinDesk coinDesk = new CoinDesk();
+        coinDesk.setId(id);
+        coinDesk.setCurrencyType(currencyType);
+        return coinDesk;
+    }
+}
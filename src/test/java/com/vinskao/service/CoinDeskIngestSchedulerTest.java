@@ -0,0 +1,139 @@
+package com.vinskao.service;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.enums.CurrencyType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CoinDeskIngestScheduler 的單元測試類別。
+ * 測試背景輪詢的延遲計算、失敗退避、抖動範圍與快照過期後的背景補擷取。
+ */
+@ExtendWith(MockitoExtension.class)
+public class CoinDeskIngestSchedulerTest {
+
+    @Mock
+    private CoinDeskService coinDeskService;
+
+    @Mock
+    private CoinDeskCache coinDeskCache;
+
+    @Spy
+    private MockEnvironment environment = new MockEnvironment();
+
+    @InjectMocks
+    private CoinDeskIngestScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        environment.setProperty("coindesk.ingest.interval-ms", "1000");
+        environment.setProperty("coindesk.ingest.max-backoff-ms", "5000");
+        environment.setProperty("coindesk.ingest.jitter-ms", "0");
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.stop();
+    }
+
+    /**
+     * 測試延遲計算：成功時為固定間隔，失敗時指數成長並受上限限制。
+     */
+    @Test
+    void testComputeDelayMs() {
+        assertEquals(1000L, CoinDeskIngestScheduler.computeDelayMs(1000L, 5000L, 0));
+        assertEquals(2000L, CoinDeskIngestScheduler.computeDelayMs(1000L, 5000L, 1));
+        assertEquals(4000L, CoinDeskIngestScheduler.computeDelayMs(1000L, 5000L, 2));
+        assertEquals(5000L, CoinDeskIngestScheduler.computeDelayMs(1000L, 5000L, 3));
+        assertEquals(5000L, CoinDeskIngestScheduler.computeDelayMs(1000L, 5000L, 100));
+    }
+
+    /**
+     * 測試擷取失敗會累計連續失敗次數並延長下一次延遲，成功後歸零。
+     */
+    @Test
+    void testRunOnceBacksOffOnFailure() {
+        when(coinDeskService.fetchAndSaveFromApi())
+            .thenThrow(new RuntimeException("Failed to fetch data from API"))
+            .thenReturn(null);
+
+        scheduler.runOnce();
+        assertEquals(1, scheduler.getConsecutiveFailures());
+        assertEquals(2000L, scheduler.nextDelayMs());
+
+        scheduler.runOnce();
+        assertEquals(0, scheduler.getConsecutiveFailures());
+        assertEquals(1000L, scheduler.nextDelayMs());
+    }
+
+    /**
+     * 測試啟動時即使停用擷取，仍會在背景執行緒預熱快取。
+     */
+    @Test
+    void testStartWarmsUpEvenWhenIngestDisabled() {
+        environment.setProperty("coindesk.ingest.enabled", "false");
+
+        scheduler.start();
+
+        verify(coinDeskService, timeout(1000)).warmUp();
+        verify(coinDeskService, never()).fetchAndSaveFromApi();
+    }
+
+    /**
+     * 測試快照時間由預熱的最新資料起算，過期時背景補擷取一次，成功後重新起算，間隔內不重複補擷取。
+     */
+    @Test
+    void testSnapshotAgeAndRevalidate() throws Exception {
+        environment.setProperty("coindesk.ingest.stale-after-ms", "60000");
+        CoinDesk coinDesk = new CoinDesk();
+        coinDesk.setCurrencyType(CurrencyType.USD);
+        coinDesk.setCreatedAt(LocalDateTime.now().minusMinutes(10));
+        when(coinDeskCache.peek(any())).thenReturn(null);
+        when(coinDeskCache.peek(CurrencyType.USD)).thenReturn(coinDesk);
+
+        assertEquals(-1L, scheduler.getSnapshotAgeMillis(null));
+        scheduler.warmUp();
+        long ageMillis = scheduler.getSnapshotAgeMillis(null);
+        assertTrue(ageMillis >= 600000L && ageMillis < 610000L, "age " + ageMillis);
+        assertTrue(scheduler.isStale(ageMillis));
+        assertEquals(0L, scheduler.getSnapshotAgeMillis(LocalDateTime.now().plusSeconds(1)));
+
+        scheduler.revalidate();
+        verify(coinDeskService, timeout(1000)).fetchAndSaveFromApi();
+        for (int i = 0; i < 100 && scheduler.isStale(scheduler.getSnapshotAgeMillis(null)); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(scheduler.isStale(scheduler.getSnapshotAgeMillis(null)));
+
+        scheduler.revalidate();
+        Thread.sleep(100);
+        verify(coinDeskService, times(1)).fetchAndSaveFromApi();
+    }
+
+    /**
+     * 測試抖動會落在設定的範圍內，且設定於執行期間變更後立即生效。
+     */
+    @Test
+    void testJitterWithinBounds() {
+        environment.setProperty("coindesk.ingest.interval-ms", "2000");
+        environment.setProperty("coindesk.ingest.jitter-ms", "500");
+
+        for (int i = 0; i < 100; i++) {
+            long delay = scheduler.nextDelayMs();
+            assertTrue(delay >= 2000L && delay <= 2500L);
+        }
+    }
+}
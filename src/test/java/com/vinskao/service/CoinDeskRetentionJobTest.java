@@ -0,0 +1,101 @@
+package com.vinskao.service;
+
+import com.vinskao.repository.CoinDeskRepository;
+import com.vinskao.repository.CoinDeskRollupRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * CoinDeskRetentionJob 的單元測試類別。
+ * 測試先彙總後刪除、分批刪除與預先序列化回應的失效；保留各幣別最新一筆的 SQL 由 SchemaMigrationTest 驗證。
+ */
+@ExtendWith(MockitoExtension.class)
+public class CoinDeskRetentionJobTest {
+
+    @Mock
+    private CoinDeskRepository coinDeskRepository;
+
+    @Mock
+    private CoinDeskRollupRepository coinDeskRollupRepository;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private SerializedPayloadCache serializedPayloadCache;
+
+    @InjectMocks
+    private CoinDeskRetentionJob coinDeskRetentionJob;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(coinDeskRetentionJob, "deleteChunkSize", 100);
+    }
+
+    /**
+     * 測試所有粒度彙總完成後才分批刪除，刪除筆數少於批次大小時停止。
+     */
+    @Test
+    void testRollsUpBeforeDeletingInChunks() {
+        LocalDateTime cutoff = LocalDateTime.of(2024, 9, 2, 0, 0);
+        when(coinDeskRepository.deleteChunkCreatedBefore(cutoff, 100)).thenReturn(100, 100, 30);
+
+        long deleted = coinDeskRetentionJob.run(cutoff);
+
+        assertEquals(230L, deleted);
+        InOrder inOrder = inOrder(coinDeskRollupRepository, coinDeskRepository);
+        inOrder.verify(coinDeskRollupRepository).rollUp("MINUTE", 60L, cutoff);
+        inOrder.verify(coinDeskRollupRepository).rollUp("HOUR", 3600L, cutoff);
+        inOrder.verify(coinDeskRollupRepository).rollUp("DAY", 86400L, cutoff);
+        inOrder.verify(coinDeskRepository, times(3)).deleteChunkCreatedBefore(cutoff, 100);
+        assertEquals(230.0, meterRegistry.get("coindesk.retention.deleted.rows").counter().count(), 0.0);
+    }
+
+    /**
+     * 測試彙總分界於完成一輪後為該輪的保留分界，尚未完成任何一輪時為目前的保留分界，停用時為 null。
+     */
+    @Test
+    void testRolledUpBefore() {
+        ReflectionTestUtils.setField(coinDeskRetentionJob, "enabled", true);
+        ReflectionTestUtils.setField(coinDeskRetentionJob, "rawDays", 7);
+        assertEquals(coinDeskRetentionJob.getRawCutoff(), coinDeskRetentionJob.getRolledUpBefore());
+
+        LocalDateTime cutoff = LocalDateTime.of(2024, 9, 2, 0, 0);
+        coinDeskRetentionJob.run(cutoff);
+        assertEquals(cutoff, coinDeskRetentionJob.getRolledUpBefore());
+
+        ReflectionTestUtils.setField(coinDeskRetentionJob, "enabled", false);
+        assertNull(coinDeskRetentionJob.getRolledUpBefore());
+    }
+
+    /**
+     * 測試有資料被刪除時才使預先序列化的回應失效。
+     */
+    @Test
+    void testInvalidatesPayloadsOnlyWhenRowsDeleted() {
+        LocalDateTime cutoff = LocalDateTime.of(2024, 9, 2, 0, 0);
+        when(coinDeskRepository.deleteChunkCreatedBefore(cutoff, 100)).thenReturn(0, 1);
+
+        coinDeskRetentionJob.run(cutoff);
+        verify(serializedPayloadCache, never()).invalidateAll();
+
+        coinDeskRetentionJob.run(cutoff);
+        verify(coinDeskRollupRepository, times(6)).rollUp(anyString(), anyLong(), eq(cutoff));
+        verify(serializedPayloadCache).invalidateAll();
+    }
+}
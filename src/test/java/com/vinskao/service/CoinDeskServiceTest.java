@@ -1,22 +1,59 @@
 package com.vinskao.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vinskao.domain.CoinDesk;
+import com.vinskao.domain.CoinDeskSource;
+import com.vinskao.dto.CoinDeskPage;
+import com.vinskao.dto.RateCandle;
+import com.vinskao.enums.CandleInterval;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import com.vinskao.dto.CoinDeskResponse;
-import com.vinskao.dto.CoinDeskResponse.Bpi;
+import com.vinskao.domain.CoinDeskIdempotencyKey;
+import com.vinskao.dto.CoinDeskPatch;
+import com.vinskao.dto.CoinDeskSummary;
+import com.vinskao.dto.SerializedPayload;
+import com.vinskao.exception.CoinDeskBadRequestException;
+import com.vinskao.exception.CoinDeskConflictException;
+import com.vinskao.exception.CoinDeskGoneException;
+import com.vinskao.exception.CoinDeskRateUnavailableException;
+import com.vinskao.mapper.CoinDeskMapper;
+import com.vinskao.repository.CoinDeskIdempotencyKeyRepository;
 import com.vinskao.repository.CoinDeskRepository;
+import com.vinskao.repository.CoinDeskRollupRepository;
+import com.vinskao.source.FetchedRates;
+import com.vinskao.source.RateSourceAggregator;
 import com.vinskao.enums.CurrencyType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.DigestUtils;
 
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -32,26 +69,74 @@ public class CoinDeskServiceTest {
     private CoinDeskRepository coinDeskRepository;
 
     @Mock
-    private RestTemplate restTemplate;
+    private CoinDeskRollupRepository coinDeskRollupRepository;
+
+    @Mock
+    private CoinDeskIdempotencyKeyRepository coinDeskIdempotencyKeyRepository;
+
+    @Mock
+    private CoinDeskApiClient coinDeskApiClient;
+
+    @Mock
+    private RateSourceAggregator rateSourceAggregator;
+
+    @Spy
+    private CoinDeskCache coinDeskCache = new CoinDeskCache();
+
+    @Mock
+    private CoinDeskWriteBuffer coinDeskWriteBuffer;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private CoinDeskSourceRegistry coinDeskSourceRegistry;
+
+    @Spy
+    private IngestChangeDetector ingestChangeDetector = new IngestChangeDetector();
+
+    @Mock
+    private CoinDeskRetentionJob coinDeskRetentionJob;
+
+    @Mock
+    private CurrencyConversionService currencyConversionService;
+
+    @Mock
+    private RateUpdateBroadcaster rateUpdateBroadcaster;
+
+    @Mock
+    private RateHistoryIndex rateHistoryIndex;
+
+    @Mock
+    private SerializedPayloadCache serializedPayloadCache;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private CoinDeskMapper coinDeskMapper = Mappers.getMapper(CoinDeskMapper.class);
 
     @InjectMocks
     private CoinDeskService coinDeskService;
 
     private CoinDeskResponse mockResponse;
-    private static final String TEST_API_URL = "https://api.coindesk.com/v1/bpi/currentprice.json";
+
+    private final AtomicInteger commits = new AtomicInteger();
 
     /**
      * 測試前的設置工作。
      * 初始化測試所需的模擬資料，包括：
-     * - 設置 API URL
      * - 創建模擬的 API 回應
      * - 設置 USD、GBP 和 EUR 的幣別資訊
      */
     @BeforeEach
     void setUp() {
-        // 設置 API URL
-        ReflectionTestUtils.setField(coinDeskService, "apiUrl", TEST_API_URL);
-        
         // 準備模擬的 API 回應
         mockResponse = new CoinDeskResponse();
         CoinDeskResponse.Time time = new CoinDeskResponse.Time();
@@ -62,7 +147,7 @@ public class CoinDeskServiceTest {
         mockResponse.setDisclaimer("just for test");
         mockResponse.setChartName("Bitcoin");
 
-        Bpi bpi = new Bpi();
+        Map<String, CoinDeskResponse.Currency> bpi = new LinkedHashMap<>();
         
         // USD 資料
         CoinDeskResponse.Currency usd = new CoinDeskResponse.Currency();
@@ -70,7 +155,7 @@ public class CoinDeskServiceTest {
         usd.setRate("57,756.298");
         usd.setRate_float(57756.2984);
         usd.setDescription("United States Dollar");
-        bpi.setUSD(usd);
+        bpi.put("USD", usd);
 
         // GBP 資料
         CoinDeskResponse.Currency gbp = new CoinDeskResponse.Currency();
@@ -78,7 +163,7 @@ public class CoinDeskServiceTest {
         gbp.setRate("43,984.02");
         gbp.setRate_float(43984.0203);
         gbp.setDescription("British Pound Sterling");
-        bpi.setGBP(gbp);
+        bpi.put("GBP", gbp);
 
         // EUR 資料
         CoinDeskResponse.Currency eur = new CoinDeskResponse.Currency();
@@ -86,18 +171,22 @@ public class CoinDeskServiceTest {
         eur.setRate("52,243.287");
         eur.setRate_float(52243.2865);
         eur.setDescription("Euro");
-        bpi.setEUR(eur);
+        bpi.put("EUR", eur);
 
         mockResponse.setBpi(bpi);
+
+        lenient().when(coinDeskSourceRegistry.resolve("Bitcoin", "just for test"))
+            .thenReturn(new CoinDeskSource(1L, "Bitcoin", "just for test"));
     }
 
     /**
      * 測試從 API 回應創建 CoinDesk 實體的邏輯。
      * 驗證所有欄位是否正確轉換，包括：
      * - 時間資訊
+     * - 共用的來源描述
      * - 幣別資訊
-     * - 匯率資訊
-     * - 幣別名稱
+     * - 以整數儲存的匯率與推導的格式化字串
+     * - 由幣別推導的幣別名稱
      */
     @Test
     void testCreateCoinDeskFromResponse() {
@@ -105,7 +194,7 @@ public class CoinDeskServiceTest {
         CoinDesk usdCoinDesk = coinDeskService.createCoinDeskFromResponse(
             mockResponse, 
             CurrencyType.USD, 
-            mockResponse.getBpi().getUSD()
+            mockResponse.getBpi().get("USD")
         );
 
         assertNotNull(usdCoinDesk);
@@ -115,7 +204,8 @@ public class CoinDeskServiceTest {
         assertEquals("just for test", usdCoinDesk.getDisclaimer());
         assertEquals("Bitcoin", usdCoinDesk.getChartName());
         assertEquals(CurrencyType.USD, usdCoinDesk.getCurrencyType());
-        assertEquals("57,756.298", usdCoinDesk.getRate());
+        assertEquals(577562984L, usdCoinDesk.getRateScaled());
+        assertEquals("57,756.2984", usdCoinDesk.getRate());
         assertEquals(57756.2984, usdCoinDesk.getRateFloat());
         assertEquals("United States Dollar", usdCoinDesk.getCurrencyName());
         assertEquals("美元", usdCoinDesk.getChineseName());
@@ -125,30 +215,254 @@ public class CoinDeskServiceTest {
      * 測試從 API 獲取資料並保存到資料庫的功能。
      * 驗證：
      * - API 呼叫是否成功
-     * - 資料是否正確保存到資料庫
+     * - 資料是否以單次批次寫入保存到資料庫
      * - 是否正確處理所有幣別（USD、GBP、EUR）
      */
     @SuppressWarnings("unchecked")
     @Test
     void testFetchAndSaveFromApi() {
-        // 模擬 RestTemplate 的行為，使用更寬鬆的存根
-        doReturn(mockResponse)
-            .when(restTemplate)
-            .getForObject(anyString(), any(Class.class));
+        // 模擬 API client 的行為
+        when(rateSourceAggregator.fetch()).thenAnswer(invocation -> fetched());
 
-        // 模擬 Repository 的保存行為
-        CoinDesk savedCoinDesk = new CoinDesk();
-        savedCoinDesk.setCurrencyType(CurrencyType.EUR);
-        when(coinDeskRepository.save(any(CoinDesk.class)))
-            .thenReturn(savedCoinDesk);
+        // 模擬 Repository 的批次保存行為
+        when(coinDeskRepository.saveAll(anyList()))
+            .thenAnswer(invocation -> invocation.getArgument(0));
 
         // 執行測試
         CoinDesk result = coinDeskService.fetchAndSaveFromApi();
 
-        // 驗證
-        verify(coinDeskRepository, times(3)).save(any(CoinDesk.class));
+        // 驗證三筆記錄以單次 saveAll 寫入
+        ArgumentCaptor<List<CoinDesk>> captor = ArgumentCaptor.forClass(List.class);
+        verify(coinDeskRepository, times(1)).saveAll(captor.capture());
+        verify(coinDeskRepository, never()).save(any(CoinDesk.class));
+        assertEquals(3, captor.getValue().size());
         assertNotNull(result);
         assertEquals(CurrencyType.EUR, result.getCurrencyType());
+        assertSame(result, coinDeskCache.get(CurrencyType.EUR));
+        verify(currencyConversionService).rebuild();
+        verify(rateUpdateBroadcaster, times(3)).publish(any(CoinDesk.class));
+        assertEquals(1, commits.get());
+        assertEquals(1L, meterRegistry.get("coindesk.ingest").tag("outcome", "written").timer().count());
+    }
+
+    /**
+     * 測試寫入資料庫失敗時不採用這次回應的 ETag / Last-Modified，下一輪仍會取得完整內容。
+     */
+    @Test
+    void testFetchAndSaveFromApiKeepsValidatorsWhenSaveFails() {
+        when(rateSourceAggregator.fetch()).thenAnswer(invocation -> fetched());
+        when(coinDeskRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("down"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> coinDeskService.fetchAndSaveFromApi());
+
+        assertEquals(0, commits.get());
+        verifyNoInteractions(rateUpdateBroadcaster);
+    }
+
+    /**
+     * 測試啟用寫入緩衝時，擷取的資料交由緩衝處理而不直接寫入資料庫，
+     * 快取與推播等到緩衝寫入成功後才更新，不會出現沒有 ID 的資料。
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    void testFetchAndSaveFromApiWithWriteBuffer() {
+        when(rateSourceAggregator.fetch()).thenAnswer(invocation -> fetched());
+        when(coinDeskWriteBuffer.isEnabled()).thenReturn(true);
+
+        CoinDesk result = coinDeskService.fetchAndSaveFromApi();
+
+        ArgumentCaptor<List<CoinDesk>> captor = ArgumentCaptor.forClass(List.class);
+        verify(coinDeskWriteBuffer).append(captor.capture());
+        verify(coinDeskRepository, never()).saveAll(anyList());
+        assertEquals(CurrencyType.EUR, result.getCurrencyType());
+        assertNull(coinDeskCache.peek(CurrencyType.USD));
+        verifyNoInteractions(rateUpdateBroadcaster, serializedPayloadCache);
+        // 相同報價在寫入前再次擷取也不會重複加入緩衝
+        assertNull(coinDeskService.fetchAndSaveFromApi());
+
+        captor.getValue().forEach(coinDesk -> coinDesk.setId(coinDesk.getCurrencyType().ordinal() + 1L));
+        coinDeskService.publishSaved(captor.getValue());
+
+        assertNotNull(coinDeskCache.peek(CurrencyType.USD).getId());
+        verify(rateUpdateBroadcaster, times(3)).publish(any(CoinDesk.class));
+        verify(serializedPayloadCache).invalidateAll();
+    }
+
+    /**
+     * 測試寫入緩衝的資料在寫入前不會出現在 /all 的預先序列化內容中，寫入成功後下一次讀取即包含新資料。
+     */
+    @Test
+    void testWriteBufferFlushRefreshesAllPayload() {
+        SerializedPayloadCache payloads = new SerializedPayloadCache();
+        ReflectionTestUtils.setField(payloads, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(coinDeskService, "serializedPayloadCache", payloads);
+        List<CoinDeskSummary> rows = new ArrayList<>();
+        when(coinDeskRepository.findAllSummaries(any())).thenAnswer(invocation -> new ArrayList<>(rows));
+        when(rateSourceAggregator.fetch()).thenAnswer(invocation -> fetched());
+        when(coinDeskWriteBuffer.isEnabled()).thenReturn(true);
+        String empty = new String(coinDeskService.getAllCoinDesksPayload().getBody(), StandardCharsets.UTF_8);
+
+        coinDeskService.fetchAndSaveFromApi();
+        verify(coinDeskWriteBuffer).append(anyList());
+        assertEquals(empty, new String(coinDeskService.getAllCoinDesksPayload().getBody(), StandardCharsets.UTF_8));
+
+        rows.add(new CoinDeskSummary(1L, CurrencyType.USD, 577562984L, "2024-09-02T07:07:20+00:00", null));
+        coinDeskService.publishSaved(Collections.singletonList(createMockCoinDesk(1L, CurrencyType.USD)));
+
+        SerializedPayload refreshed = coinDeskService.getAllCoinDesksPayload();
+        assertTrue(new String(refreshed.getBody(), StandardCharsets.UTF_8).contains("\"id\":1"));
+        assertEquals(2, payloads.getBuilds());
+    }
+
+    /**
+     * 測試上游內容未變更時不寫入任何資料。
+     */
+    @Test
+    void testFetchAndSaveFromApiNotModified() {
+        when(rateSourceAggregator.fetch()).thenReturn(null);
+
+        assertNull(coinDeskService.fetchAndSaveFromApi());
+
+        verifyNoInteractions(coinDeskRepository, coinDeskWriteBuffer);
+        assertEquals(1L, ingestChangeDetector.getStats().get("noOpFetches"));
+        assertEquals(1L, meterRegistry.get("coindesk.ingest").tag("outcome", "noop").timer().count());
+    }
+
+    /**
+     * 測試回應沒有 bpi 或 bpi 為空時視為沒有資料：不寫入、不確認這次的回應，計為一次無變動擷取。
+     */
+    @Test
+    void testFetchAndSaveFromApiWithoutBpi() {
+        when(rateSourceAggregator.fetch()).thenAnswer(invocation -> fetched());
+
+        mockResponse.setBpi(null);
+        assertNull(coinDeskService.fetchAndSaveFromApi());
+        mockResponse.setBpi(new LinkedHashMap<>());
+        assertNull(coinDeskService.fetchAndSaveFromApi());
+
+        verifyNoInteractions(coinDeskRepository, coinDeskWriteBuffer, rateUpdateBroadcaster);
+        assertEquals(0, commits.get());
+        assertEquals(2L, ingestChangeDetector.getStats().get("noOpFetches"));
+        assertEquals(2L, meterRegistry.get("coindesk.ingest").tag("outcome", "noop").timer().count());
+    }
+
+    /**
+     * 測試重複擷取到相同報價時只寫入有變動的幣別。
+     * 驗證：
+     * - 完全相同的報價不會再次寫入並計為一次無變動擷取
+     * - 只有匯率變動的幣別會被寫入
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    void testFetchAndSaveFromApiSkipsUnchangedQuotes() {
+        when(rateSourceAggregator.fetch()).thenAnswer(invocation -> fetched());
+        when(coinDeskRepository.saveAll(anyList()))
+            .thenAnswer(invocation -> invocation.getArgument(0));
+
+        coinDeskService.fetchAndSaveFromApi();
+        assertNull(coinDeskService.fetchAndSaveFromApi());
+
+        mockResponse.getBpi().get("GBP").setRate_float(44000.0);
+        CoinDesk result = coinDeskService.fetchAndSaveFromApi();
+
+        ArgumentCaptor<List<CoinDesk>> captor = ArgumentCaptor.forClass(List.class);
+        verify(coinDeskRepository, times(2)).saveAll(captor.capture());
+        assertEquals(3, captor.getAllValues().get(0).size());
+        assertEquals(1, captor.getAllValues().get(1).size());
+        assertEquals(CurrencyType.GBP, result.getCurrencyType());
+        assertEquals(1L, ingestChangeDetector.getStats().get("noOpFetches"));
+        assertEquals(5L, ingestChangeDetector.getStats().get("skippedRows"));
+        // 只推播實際寫入的新資料
+        verify(rateUpdateBroadcaster, times(4)).publish(any(CoinDesk.class));
+    }
+
+    /**
+     * 測試上游新增幣別時不需修改程式：幣別清單中的代碼會被寫入，未知代碼則略過。
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    void testFetchAndSaveFromApiWithDynamicCurrencies() {
+        CoinDeskResponse.Currency jpy = new CoinDeskResponse.Currency();
+        jpy.setCode("JPY");
+        jpy.setRate_float(8312345.5);
+        mockResponse.getBpi().put("JPY", jpy);
+        CoinDeskResponse.Currency unknown = new CoinDeskResponse.Currency();
+        unknown.setCode("XYZ");
+        unknown.setRate_float(1.0);
+        mockResponse.getBpi().put("XYZ", unknown);
+        when(rateSourceAggregator.fetch()).thenAnswer(invocation -> fetched());
+        when(coinDeskRepository.saveAll(anyList()))
+            .thenAnswer(invocation -> invocation.getArgument(0));
+
+        CoinDesk result = coinDeskService.fetchAndSaveFromApi();
+
+        ArgumentCaptor<List<CoinDesk>> captor = ArgumentCaptor.forClass(List.class);
+        verify(coinDeskRepository).saveAll(captor.capture());
+        assertEquals(4, captor.getValue().size());
+        assertEquals(CurrencyType.fromCode("JPY"), result.getCurrencyType());
+        assertEquals("日圓", result.getChineseName());
+        assertSame(result, coinDeskCache.get(CurrencyType.fromCode("JPY")));
+    }
+
+    /**
+     * 測試讀取最新幣價只使用記憶體快取。
+     * 驗證：
+     * - 快取命中時直接回傳
+     * - 快取未命中時回應 404 的例外，不查詢資料庫也不重建換算矩陣
+     */
+    @Test
+    void testGetLatestCoinDeskReadsCacheOnly() {
+        CoinDesk latest = createMockCoinDesk(7L, CurrencyType.USD);
+        coinDeskCache.put(latest);
+
+        assertSame(latest, coinDeskService.getLatestCoinDesk(CurrencyType.USD));
+        assertThrows(CoinDeskRateUnavailableException.class, () -> coinDeskService.getLatestCoinDesk(CurrencyType.GBP));
+
+        verifyNoInteractions(coinDeskRepository, currencyConversionService);
+        assertEquals(1L, coinDeskCache.getHits());
+        assertEquals(1L, coinDeskCache.getMisses());
+    }
+
+    /**
+     * 測試預熱會以資料庫中的最新資料填入快取並重建換算矩陣，
+     * 且之後擷取到相同的資料不會重複寫入。
+     */
+    @Test
+    void testWarmUpFillsCacheAndSeedsChangeDetector() {
+        CoinDesk usd = createMockCoinDesk(7L, CurrencyType.USD);
+        CoinDesk eur = createMockCoinDesk(9L, CurrencyType.EUR);
+        when(coinDeskRepository.findLatestPerCurrency()).thenReturn(Arrays.asList(usd, eur));
+
+        assertEquals(2, coinDeskService.warmUp());
+
+        assertSame(usd, coinDeskCache.peek(CurrencyType.USD));
+        assertSame(eur, coinDeskCache.peek(CurrencyType.EUR));
+        assertFalse(ingestChangeDetector.isChanged(createMockCoinDesk(null, CurrencyType.USD)));
+        assertEquals(0L, ingestChangeDetector.getWrittenRows());
+        verify(currencyConversionService).rebuild();
+    }
+
+    /**
+     * 測試刪除資料時會使對應的最新幣價快取、該幣別的時間索引與預先序列化的回應失效；
+     * 刪除的是快取中的最新一筆時，於刪除路徑上補上該幣別前一筆並只更新換算矩陣中該幣別的匯率。
+     */
+    @Test
+    void testDeleteCoinDeskEvictsCache() {
+        CoinDesk latest = createMockCoinDesk(7L, CurrencyType.GBP);
+        CoinDesk previous = createMockCoinDesk(6L, CurrencyType.GBP);
+        coinDeskCache.put(latest);
+        when(coinDeskRepository.findCurrencyTypeById(7L)).thenReturn(Optional.of(CurrencyType.GBP));
+        when(coinDeskRepository.findLatest("GBP")).thenReturn(Optional.of(previous));
+
+        coinDeskService.deleteCoinDesk(7L);
+
+        verify(coinDeskRepository).deleteById(7L);
+        assertSame(previous, coinDeskService.getLatestCoinDesk(CurrencyType.GBP));
+        verify(currencyConversionService).refresh(CurrencyType.GBP);
+        verify(currencyConversionService, never()).rebuild();
+        verify(rateHistoryIndex).invalidate(CurrencyType.GBP);
+        verify(rateHistoryIndex, never()).invalidateAll();
+        verify(serializedPayloadCache).invalidateAll();
     }
 
     /**
@@ -159,20 +473,316 @@ public class CoinDeskServiceTest {
      */
     @Test
     void testGetAllCoinDesks() {
-        List<CoinDesk> mockList = Arrays.asList(
-            createMockCoinDesk(1L, CurrencyType.USD),
-            createMockCoinDesk(2L, CurrencyType.GBP),
-            createMockCoinDesk(3L, CurrencyType.EUR)
+        List<CoinDeskSummary> mockList = Arrays.asList(
+            new CoinDeskSummary(1L, CurrencyType.USD, 10000000L, null, null),
+            new CoinDeskSummary(2L, CurrencyType.GBP, 10000000L, null, null),
+            new CoinDeskSummary(3L, CurrencyType.EUR, 10000000L, null, null)
         );
-        when(coinDeskRepository.findAll()).thenReturn(mockList);
+        when(coinDeskRepository.findAllSummaries(PageRequest.of(0, 10000))).thenReturn(mockList);
 
-        List<CoinDesk> result = coinDeskService.getAllCoinDesks();
+        List<CoinDeskSummary> result = coinDeskService.getAllCoinDesks();
 
         assertNotNull(result);
         assertEquals(3, result.size());
         assertEquals(CurrencyType.USD, result.get(0).getCurrencyType());
         assertEquals(CurrencyType.GBP, result.get(1).getCurrencyType());
         assertEquals(CurrencyType.EUR, result.get(2).getCurrencyType());
+        assertEquals(1000.0, result.get(0).getRateFloat(), 0.0);
+        verify(coinDeskRepository, never()).findAll();
+    }
+
+    /**
+     * 測試 /all 的內容以筆數上限查詢，達到上限時帶出讀取其餘資料的游標，未達上限時沒有游標。
+     */
+    @Test
+    void testAllPayloadIsCapped() {
+        SerializedPayloadCache payloads = new SerializedPayloadCache();
+        ReflectionTestUtils.setField(payloads, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(coinDeskService, "serializedPayloadCache", payloads);
+        ReflectionTestUtils.setField(coinDeskService, "allMaxRows", 2);
+        when(coinDeskRepository.findAllSummaries(PageRequest.of(0, 2))).thenReturn(
+                Arrays.asList(new CoinDeskSummary(1L, CurrencyType.USD, 10000000L, null, null),
+                        new CoinDeskSummary(2L, CurrencyType.GBP, 10000000L, null, null)),
+                Collections.singletonList(new CoinDeskSummary(1L, CurrencyType.USD, 10000000L, null, null)));
+
+        SerializedPayload capped = coinDeskService.getAllCoinDesksPayload();
+        assertEquals(2L, capped.getNextAfterId());
+        assertSame(capped, coinDeskService.getAllCoinDesksPayload());
+
+        payloads.invalidateAll();
+        assertNull(coinDeskService.getAllCoinDesksPayload().getNextAfterId());
+    }
+
+    /**
+     * 測試 keyset 分頁查詢。
+     * 驗證：
+     * - 滿頁時回傳最後一筆 ID 作為下一頁游標
+     * - 未滿頁時沒有下一頁
+     */
+    @Test
+    void testGetCoinDeskPage() {
+        when(coinDeskRepository.findPage(eq(0L), eq(CurrencyType.USD), isNull(), isNull(), eq(PageRequest.of(0, 2))))
+            .thenReturn(Arrays.asList(createMockCoinDesk(1L, CurrencyType.USD), createMockCoinDesk(4L, CurrencyType.USD)));
+        when(coinDeskRepository.findPage(eq(4L), eq(CurrencyType.USD), isNull(), isNull(), eq(PageRequest.of(0, 2))))
+            .thenReturn(Arrays.asList(createMockCoinDesk(7L, CurrencyType.USD)));
+
+        CoinDeskPage first = coinDeskService.getCoinDeskPage(null, 2, CurrencyType.USD, null, null);
+        assertEquals(2, first.getItems().size());
+        assertEquals(4L, first.getNextAfterId());
+
+        CoinDeskPage second = coinDeskService.getCoinDeskPage(first.getNextAfterId(), 2, CurrencyType.USD, null, null);
+        assertEquals(1, second.getItems().size());
+        assertNull(second.getNextAfterId());
+    }
+
+    /**
+     * 測試建立資料時，請求帶入的來源描述會解析為共用的既有來源。
+     */
+    @Test
+    void testSaveCoinDeskResolvesSource() {
+        CoinDesk coinDesk = createMockCoinDesk(null, CurrencyType.USD);
+        coinDesk.setChartName("Bitcoin");
+        coinDesk.setDisclaimer("just for test");
+        when(coinDeskRepository.save(coinDesk)).thenReturn(coinDesk);
+
+        CoinDesk saved = coinDeskService.saveCoinDesk(coinDesk);
+
+        assertEquals(1L, saved.getSource().getId());
+        assertEquals("Bitcoin", saved.getChartName());
+        assertEquals("just for test", saved.getDisclaimer());
+    }
+
+    /**
+     * 測試以相同 Idempotency-Key 重送相同請求時回傳當初建立的資料，不再寫入。
+     */
+    @Test
+    void testSaveCoinDeskReplaysIdempotencyKey() throws Exception {
+        CoinDesk request = createMockCoinDesk(null, CurrencyType.USD);
+        CoinDesk created = createMockCoinDesk(7L, CurrencyType.USD);
+        String requestHash = DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(request));
+        when(coinDeskIdempotencyKeyRepository.findById("create-1"))
+            .thenReturn(Optional.of(new CoinDeskIdempotencyKey("create-1", requestHash, 7L, LocalDateTime.now())));
+        when(coinDeskRepository.findById(7L)).thenReturn(Optional.of(created));
+
+        assertSame(created, coinDeskService.saveCoinDesk(request, "create-1"));
+
+        verify(coinDeskRepository, never()).save(any(CoinDesk.class));
+        verifyNoInteractions(transactionTemplate);
+    }
+
+    /**
+     * 測試同一個 Idempotency-Key 用於內容不同的請求時回應衝突。
+     */
+    @Test
+    void testSaveCoinDeskRejectsReusedIdempotencyKey() {
+        CoinDesk request = createMockCoinDesk(null, CurrencyType.USD);
+        when(coinDeskIdempotencyKeyRepository.findById("create-1"))
+            .thenReturn(Optional.of(new CoinDeskIdempotencyKey("create-1", "other", 7L, LocalDateTime.now())));
+
+        assertThrows(CoinDeskConflictException.class, () -> coinDeskService.saveCoinDesk(request, "create-1"));
+        verify(coinDeskRepository, never()).save(any(CoinDesk.class));
+    }
+
+    /**
+     * 測試 Idempotency-Key 當初建立的資料已被刪除時回應 410，格式不符的 key 回應 400，兩者都不寫入。
+     */
+    @Test
+    void testSaveCoinDeskIdempotencyKeyErrors() throws Exception {
+        CoinDesk request = createMockCoinDesk(null, CurrencyType.USD);
+        String requestHash = DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(request));
+        when(coinDeskIdempotencyKeyRepository.findById("create-1"))
+            .thenReturn(Optional.of(new CoinDeskIdempotencyKey("create-1", requestHash, 7L, LocalDateTime.now())));
+        when(coinDeskRepository.findById(7L)).thenReturn(Optional.empty());
+
+        assertThrows(CoinDeskGoneException.class, () -> coinDeskService.saveCoinDesk(request, "create-1"));
+        assertThrows(CoinDeskBadRequestException.class, () -> coinDeskService.saveCoinDesk(request, ""));
+        verify(coinDeskRepository, never()).save(any(CoinDesk.class));
+    }
+
+    /**
+     * 測試相同 Idempotency-Key 的請求同時寫入時，較晚的交易被主鍵約束擋下並改為回傳已建立的資料。
+     */
+    @Test
+    void testSaveCoinDeskConcurrentIdempotencyKey() throws Exception {
+        CoinDesk request = createMockCoinDesk(null, CurrencyType.USD);
+        CoinDesk created = createMockCoinDesk(7L, CurrencyType.USD);
+        String requestHash = DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(request));
+        when(coinDeskIdempotencyKeyRepository.findById("create-1"))
+            .thenReturn(Optional.empty())
+            .thenReturn(Optional.of(new CoinDeskIdempotencyKey("create-1", requestHash, 7L, LocalDateTime.now())));
+        when(transactionTemplate.execute(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(coinDeskRepository.findById(7L)).thenReturn(Optional.of(created));
+
+        assertSame(created, coinDeskService.saveCoinDesk(request, "create-1"));
+    }
+
+    /**
+     * 測試更新時版本已過期，回應衝突而不覆寫資料也不更新快取。
+     */
+    @Test
+    void testUpdateCoinDeskConflict() {
+        CoinDesk existing = createMockCoinDesk(7L, CurrencyType.USD);
+        existing.setVersion(3L);
+        CoinDesk request = createMockCoinDesk(null, CurrencyType.USD);
+        request.setVersion(2L);
+        when(coinDeskRepository.findById(7L)).thenReturn(Optional.of(existing));
+        when(coinDeskRepository.save(existing))
+            .thenThrow(new ObjectOptimisticLockingFailureException(CoinDesk.class, 7L));
+
+        assertThrows(CoinDeskConflictException.class, () -> coinDeskService.updateCoinDesk(7L, request));
+        assertEquals(2L, existing.getVersion());
+        assertNull(coinDeskCache.peek(CurrencyType.USD));
+    }
+
+    /**
+     * 測試更新以請求內容覆寫資料，但保留原有的 ID；幣別改變時原幣別與新幣別的時間索引都失效。
+     */
+    @Test
+    void testUpdateCoinDeskCopiesRequest() {
+        CoinDesk existing = createMockCoinDesk(7L, CurrencyType.USD);
+        existing.setVersion(3L);
+        CoinDesk request = createMockCoinDesk(99L, CurrencyType.EUR);
+        request.setRate("2,000.50");
+        request.setUpdatedISO("2024-09-02T07:07:20+00:00");
+        when(coinDeskRepository.findById(7L)).thenReturn(Optional.of(existing));
+        when(coinDeskRepository.save(existing)).thenReturn(existing);
+
+        CoinDesk result = coinDeskService.updateCoinDesk(7L, request);
+
+        assertEquals(7L, result.getId());
+        assertEquals(3L, result.getVersion());
+        assertEquals(CurrencyType.EUR, result.getCurrencyType());
+        assertEquals(20005000L, result.getRateScaled());
+        assertEquals("2024-09-02T07:07:20+00:00", result.getUpdatedISO());
+
+        CoinDeskSummary latest = coinDeskService.getLatestSummary(CurrencyType.EUR);
+        assertEquals(7L, latest.getId());
+        assertEquals(2000.5, latest.getRateFloat(), 0.0);
+        verify(rateHistoryIndex).invalidate(CurrencyType.USD);
+        verify(rateHistoryIndex).invalidate(CurrencyType.EUR);
+        verify(rateHistoryIndex, never()).invalidateAll();
+    }
+
+    /**
+     * 測試部分更新未帶版本時拒絕請求。
+     */
+    @Test
+    void testPatchCoinDeskRequiresVersion() {
+        assertThrows(CoinDeskBadRequestException.class, () -> coinDeskService.patchCoinDesk(7L, new CoinDeskPatch()));
+        verifyNoInteractions(transactionTemplate);
+    }
+
+    /**
+     * 測試部分更新的 rate 不是有效的數字或超出範圍時回應 400，不執行更新。
+     */
+    @Test
+    void testPatchCoinDeskRejectsMalformedRate() {
+        for (String rate : Arrays.asList("12a.5", "1e400")) {
+            CoinDeskPatch patch = new CoinDeskPatch();
+            patch.setVersion(0L);
+            patch.setRate(rate);
+            CoinDeskBadRequestException e = assertThrows(CoinDeskBadRequestException.class,
+                    () -> coinDeskService.patchCoinDesk(7L, patch));
+            assertEquals("Invalid rate: " + rate, e.getMessage());
+        }
+        verifyNoInteractions(entityManager, transactionTemplate);
+    }
+
+    /**
+     * 測試 K 線查詢以幣別代碼與區間秒數交由資料庫聚合。
+     */
+    @Test
+    void testGetCandles() {
+        LocalDateTime from = LocalDateTime.of(2024, 9, 2, 0, 0);
+        LocalDateTime to = from.plusHours(1);
+        RateCandle candle = mock(RateCandle.class);
+        when(coinDeskRetentionJob.getRolledUpBefore()).thenReturn(from.minusDays(3));
+        when(coinDeskRepository.findCandles("USD", 300L, from, to)).thenReturn(Arrays.asList(candle));
+
+        List<RateCandle> result = coinDeskService.getCandles(CurrencyType.USD, CandleInterval.M5, from, to);
+
+        assertEquals(1, result.size());
+        assertSame(candle, result.get(0));
+        verifyNoInteractions(coinDeskRollupRepository);
+    }
+
+    /**
+     * 測試查詢區間跨越原始資料保留分界時，分界前由彙總資料、分界後由原始資料計算。
+     */
+    @Test
+    void testGetCandlesAcrossRetentionBoundary() {
+        LocalDateTime from = LocalDateTime.of(2024, 9, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 9, 4, 0, 0);
+        LocalDateTime split = LocalDateTime.of(2024, 9, 3, 0, 0);
+        RateCandle rolledUp = mock(RateCandle.class);
+        RateCandle raw = mock(RateCandle.class);
+        when(coinDeskRetentionJob.getRolledUpBefore()).thenReturn(split);
+        when(coinDeskRollupRepository.findCandles("USD", "HOUR", 3600L,
+                from.toEpochSecond(ZoneOffset.UTC), split.toEpochSecond(ZoneOffset.UTC)))
+            .thenReturn(Arrays.asList(rolledUp));
+        when(coinDeskRepository.findCandles("USD", 3600L, split, to)).thenReturn(Arrays.asList(raw));
+
+        List<RateCandle> result = coinDeskService.getCandles(CurrencyType.USD, CandleInterval.H1, from, to);
+
+        assertEquals(Arrays.asList(rolledUp, raw), result);
+    }
+
+    /**
+     * 測試唯一留下的原始資料早於保留分界時（報價長期未變動，保留了各幣別最新一筆），
+     * 分界仍以保留排程為準：該筆所在日由彙總資料計算，而不是由單一筆原始資料計算。
+     */
+    @Test
+    void testGetCandlesWhenOnlyRawRowIsOlderThanCutoff() {
+        LocalDateTime cutoff = LocalDateTime.of(2024, 9, 8, 0, 0);
+        LocalDateTime from = LocalDateTime.of(2024, 9, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 9, 10, 0, 0);
+        RateCandle rolledUp = mock(RateCandle.class);
+        when(coinDeskRetentionJob.getRolledUpBefore()).thenReturn(cutoff);
+        when(coinDeskRollupRepository.findCandles("USD", "DAY", 86400L,
+                from.toEpochSecond(ZoneOffset.UTC), cutoff.toEpochSecond(ZoneOffset.UTC)))
+            .thenReturn(Arrays.asList(rolledUp));
+        when(coinDeskRepository.findCandles("USD", 86400L, cutoff, to)).thenReturn(Collections.emptyList());
+
+        List<RateCandle> result = coinDeskService.getCandles(CurrencyType.USD, CandleInterval.D1, from, to);
+
+        assertEquals(Arrays.asList(rolledUp), result);
+        verify(coinDeskRepository, never()).findOldestCreatedAt(any());
+    }
+
+    /**
+     * 測試歷史查詢的筆數上限。
+     */
+    @Test
+    void testGetHistoryCapsLimit() {
+        LocalDateTime from = LocalDateTime.of(2024, 9, 2, 0, 0);
+        LocalDateTime to = from.plusDays(1);
+
+        coinDeskService.getHistory(CurrencyType.EUR, from, to, 1000000);
+
+        verify(coinDeskRepository).findSummaries(CurrencyType.EUR, from, to, PageRequest.of(0, 1000));
+    }
+
+    /**
+     * 測試以 NDJSON 串流輸出資料。
+     * 驗證：
+     * - 每筆資料輸出為一行 JSON
+     * - 每筆資料輸出後自持久化內容移除
+     */
+    @Test
+    void testStreamCoinDesks() throws Exception {
+        CoinDesk usd = createMockCoinDesk(1L, CurrencyType.USD);
+        CoinDesk gbp = createMockCoinDesk(2L, CurrencyType.GBP);
+        when(coinDeskRepository.streamAll(0L, null, null, null)).thenReturn(Stream.of(usd, gbp));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        coinDeskService.streamCoinDesks(null, null, null, out);
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(1L, objectMapper.readTree(lines[0]).get("id").asLong());
+        assertEquals("GBP", objectMapper.readTree(lines[1]).get("currencyType").asText());
+        verify(entityManager).detach(usd);
+        verify(entityManager).detach(gbp);
     }
 
     /**
@@ -182,14 +792,19 @@ public class CoinDeskServiceTest {
      * @param currencyType 幣別類型
      * @return 模擬的 CoinDesk 實體
      */
+    /**
+     * 以 mockResponse 作為來源合併結果，確認寫入時累計於 commits。
+     */
+    private FetchedRates fetched() {
+        return new FetchedRates(mockResponse, commits::incrementAndGet);
+    }
+
     private CoinDesk createMockCoinDesk(Long id, CurrencyType currencyType) {
         CoinDesk coinDesk = new CoinDesk();
         coinDesk.setId(id);
         coinDesk.setCurrencyType(currencyType);
         coinDesk.setRate("1000.00");
         coinDesk.setRateFloat(1000.0);
-        coinDesk.setCurrencyName("Test Currency");
-        coinDesk.setChineseName("測試幣別");
         coinDesk.setCreatedAt(LocalDateTime.now());
         coinDesk.setUpdatedAt(LocalDateTime.now());
         return coinDesk;
@@ -0,0 +1,216 @@
+package com.vinskao.service;
+
+import com.vinskao.enums.CurrencyType;
+import com.vinskao.enums.HistoryFormat;
+import com.vinskao.exception.CoinDeskBadRequestException;
+import com.vinskao.repository.CoinDeskRepository;
+import org.flywaydb.core.Flyway;
+import org.hibernate.dialect.H2Dialect;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * CoinDeskTransferService 的單元測試類別。
+ * 以記憶體 H2 執行遷移後，測試 CSV 與欄式二進位格式的匯入、匯出與往返。
+ */
+@ExtendWith(MockitoExtension.class)
+public class CoinDeskTransferServiceTest {
+
+    private static final String CSV = "currency_type,created_at,rate,updated_iso\n"
+            + "USD,2024-09-01T00:00:10,57756.2984,\n";
+
+    @Mock
+    private RateHistoryIndex rateHistoryIndex;
+
+    @Mock
+    private CoinDeskService coinDeskService;
+
+    @Mock
+    private CoinDeskRetentionJob coinDeskRetentionJob;
+
+    private CoinDeskTransferService coinDeskTransferService;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:transfer;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        coinDeskTransferService = new CoinDeskTransferService();
+        ReflectionTestUtils.setField(coinDeskTransferService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(coinDeskTransferService, "transactionTemplate",
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        ReflectionTestUtils.setField(coinDeskTransferService, "rateHistoryIndex", rateHistoryIndex);
+        ReflectionTestUtils.setField(coinDeskTransferService, "coinDeskService", coinDeskService);
+        ReflectionTestUtils.setField(coinDeskTransferService, "coinDeskRetentionJob", coinDeskRetentionJob);
+        ReflectionTestUtils.setField(coinDeskTransferService, "sequenceNextValSql",
+                new H2Dialect().getSequenceNextValString("coin_desk_seq"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    /**
+     * 測試匯入 CSV 後再匯出：時間補齊毫秒、匯率固定 4 位小數、其他寫法的匯率與空白的 updated_iso 皆可解析。
+     */
+    @Test
+    void testCsvRoundTrip() throws Exception {
+        String csv = "currency_type,created_at,rate,updated_iso\n"
+                + "USD,2024-09-01T00:00:10,57756.2984,2024-09-01T00:00:07+00:00\n"
+                + "EUR,2024-09-01T00:00:10.500,52000.5,\n"
+                + "USD,2024-09-01T00:00:20.000,57756.29845,2024-09-01T00:00:17+00:00\n";
+
+        assertEquals(3, coinDeskTransferService.importHistory(HistoryFormat.CSV, input(csv)));
+
+        assertEquals("currency_type,created_at,rate,updated_iso\n"
+                + "EUR,2024-09-01T00:00:10.500,52000.5000,\n"
+                + "USD,2024-09-01T00:00:10.000,57756.2984,2024-09-01T00:00:07+00:00\n"
+                + "USD,2024-09-01T00:00:20.000,57756.2985,2024-09-01T00:00:17+00:00\n",
+                export(HistoryFormat.CSV, null, null, null));
+        assertEquals("currency_type,created_at,rate,updated_iso\n"
+                + "USD,2024-09-01T00:00:20.000,57756.2985,2024-09-01T00:00:17+00:00\n",
+                export(HistoryFormat.CSV, CurrencyType.USD, LocalDateTime.of(2024, 9, 1, 0, 0, 11), null));
+        verify(rateHistoryIndex).invalidateAll();
+        verify(coinDeskService).warmUp();
+    }
+
+    /**
+     * 測試跨越多個區塊與批次的資料以二進位格式匯出後重新匯入，兩種 updated_iso 編碼皆能還原且 ID 不與序列衝突。
+     */
+    @Test
+    void testBinaryRoundTrip() throws Exception {
+        jdbcTemplate.update("INSERT INTO coin_desk (id, currency_type, rate_scaled, created_at, updated_iso)"
+                + " SELECT X, CASEWHEN(MOD(X, 3) = 0, 'EUR', 'USD'), 577562984 - X * 7 + MOD(X, 5) * 100,"
+                + " DATEADD('MILLISECOND', X * 1500, TIMESTAMP '2024-09-01 00:00:00'),"
+                + " CASEWHEN(MOD(X, 4) = 0, NULL, 'ISO-' || (X / 60))"
+                + " FROM SYSTEM_RANGE(1, 12000)");
+        jdbcTemplate.update("UPDATE coin_desk SET updated_iso = FORMATDATETIME(DATEADD('SECOND', -3, created_at),"
+                + " 'yyyy-MM-dd''T''HH:mm:ss') || '+08:00' WHERE currency_type = 'EUR' AND updated_iso IS NOT NULL");
+        jdbcTemplate.update("UPDATE coin_desk SET updated_iso = '2024-09-01T00:00:00-00:00' WHERE id = 11997");
+        String expected = export(HistoryFormat.CSV, null, null, null);
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        assertEquals(12000, coinDeskTransferService.exportHistory(HistoryFormat.BINARY, null, null, null, binary));
+        assertTrue(binary.size() < expected.length() / 4);
+
+        jdbcTemplate.update("DELETE FROM coin_desk");
+        assertEquals(12000, coinDeskTransferService.importHistory(HistoryFormat.BINARY,
+                new ByteArrayInputStream(binary.toByteArray())));
+
+        assertEquals(expected, export(HistoryFormat.CSV, null, null, null));
+        Long next = jdbcTemplate.queryForObject(new H2Dialect().getSequenceNextValString("coin_desk_seq"), Long.class);
+        assertTrue(jdbcTemplate.queryForObject("SELECT MAX(id) FROM coin_desk", Long.class) < next - 49);
+    }
+
+    /**
+     * 測試匯入較舊的歷史資料後，各幣別的最新一筆仍為原本的即時資料，而非 ID 較大的匯入資料。
+     */
+    @Test
+    void testImportOldHistoryKeepsLatest() throws Exception {
+        jdbcTemplate.update("INSERT INTO coin_desk (id, currency_type, rate_scaled, created_at, updated_iso)"
+                + " VALUES (1, 'USD', 577582982, TIMESTAMP '2024-09-02 07:07:20', '2024-09-02T07:07:20+00:00')");
+        jdbcTemplate.execute("ALTER SEQUENCE coin_desk_seq RESTART WITH 51");
+
+        coinDeskTransferService.importHistory(HistoryFormat.CSV, input(CSV
+                + "USD,2024-09-01T00:00:20,57000.0000,\n"
+                + "EUR,2024-09-01T00:00:20,52000.0000,\n"));
+
+        NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+        List<Map<String, Object>> latest = jdbc.queryForList(nativeQuery(CoinDeskRepository.class.getMethod(
+                "findLatestPerCurrency")), new MapSqlParameterSource());
+        assertEquals(2, latest.size());
+        Map<String, Object> usd = jdbc.queryForMap(nativeQuery(CoinDeskRepository.class.getMethod(
+                "findLatest", String.class)), new MapSqlParameterSource("currencyType", "USD"));
+        assertEquals(1L, ((Number) usd.get("ID")).longValue());
+        assertEquals(577582982L, ((Number) usd.get("RATE_SCALED")).longValue());
+        assertTrue(latest.stream().anyMatch(row -> ((Number) row.get("ID")).longValue() == 1L));
+        assertTrue(latest.stream().anyMatch(row -> "EUR".equals(row.get("CURRENCY_TYPE"))));
+    }
+
+    /**
+     * 測試重複匯入同一檔案時略過已存在的資料，只寫入新的部分。
+     */
+    @Test
+    void testImportSkipsDuplicates() throws Exception {
+        assertEquals(1, coinDeskTransferService.importHistory(HistoryFormat.CSV, input(CSV)));
+
+        assertEquals(1, coinDeskTransferService.importHistory(HistoryFormat.CSV, input(CSV
+                + "USD,2024-09-01T00:00:10.000,57756.2984,\n"
+                + "USD,2024-09-01T00:00:20,57000.0000,\n")));
+
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coin_desk", Integer.class));
+    }
+
+    /**
+     * 測試早於保留分界的資料被拒絕並回應 400，分界之後的資料可匯入。
+     */
+    @Test
+    void testImportRejectsRowsBeforeRetentionCutoff() throws Exception {
+        when(coinDeskRetentionJob.getRawCutoff()).thenReturn(LocalDateTime.of(2024, 9, 1, 0, 0, 10));
+
+        assertEquals(1, coinDeskTransferService.importHistory(HistoryFormat.CSV, input(CSV)));
+        CoinDeskBadRequestException e = assertThrows(CoinDeskBadRequestException.class,
+                () -> coinDeskTransferService.importHistory(HistoryFormat.CSV,
+                        input(CSV.replace("00:00:10", "00:00:09.999"))));
+        assertTrue(e.getMessage().contains("retention cutoff"));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coin_desk", Integer.class));
+    }
+
+    /**
+     * 測試格式錯誤的檔案以 400 回報錯誤，未寫入任何資料時不重新載入索引。
+     */
+    @Test
+    void testImportRejectsMalformedInput() {
+        assertThrows(CoinDeskBadRequestException.class,
+                () -> coinDeskTransferService.importHistory(HistoryFormat.CSV, input("currency,rate\n")));
+        assertThrows(CoinDeskBadRequestException.class,
+                () -> coinDeskTransferService.importHistory(HistoryFormat.CSV, input(CSV.replace("USD", "XXX"))));
+        assertThrows(CoinDeskBadRequestException.class,
+                () -> coinDeskTransferService.importHistory(HistoryFormat.BINARY, input("CDH1\u0003US")));
+        assertThrows(CoinDeskBadRequestException.class,
+                () -> coinDeskTransferService.importHistory(HistoryFormat.BINARY, input(CSV)));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coin_desk", Integer.class));
+        verifyNoInteractions(rateHistoryIndex, coinDeskService);
+    }
+
+    private String export(HistoryFormat format, CurrencyType currencyType, LocalDateTime from, LocalDateTime to)
+            throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        coinDeskTransferService.exportHistory(format, currencyType, from, to, out);
+        return out.toString(StandardCharsets.UTF_8.name());
+    }
+
+    private static String nativeQuery(Method method) {
+        Query query = method.getAnnotation(Query.class);
+        assertTrue(query.nativeQuery(), method.getName());
+        return query.value();
+    }
+
+    private static ByteArrayInputStream input(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
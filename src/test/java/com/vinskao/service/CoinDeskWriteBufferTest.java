@@ -0,0 +1,122 @@
+package com.vinskao.service;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.enums.CurrencyType;
+import com.vinskao.repository.CoinDeskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CoinDeskWriteBuffer 的單元測試類別。
+ * 測試多次輪詢資料的累積、批次寫入時機與寫入後的通知。
+ */
+@ExtendWith(MockitoExtension.class)
+public class CoinDeskWriteBufferTest {
+
+    @Mock
+    private CoinDeskRepository coinDeskRepository;
+
+    @InjectMocks
+    private CoinDeskWriteBuffer coinDeskWriteBuffer;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(coinDeskWriteBuffer, "enabled", true);
+        ReflectionTestUtils.setField(coinDeskWriteBuffer, "maxPolls", 3);
+        ReflectionTestUtils.setField(coinDeskWriteBuffer, "maxDelayMs", 60000L);
+    }
+
+    /**
+     * 測試達到輪詢次數上限時才以單次 saveAll 寫入所有資料，寫入後才通知已寫入的資料。
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    void testFlushAfterMaxPolls() {
+        List<List<CoinDesk>> flushed = new ArrayList<>();
+        coinDeskWriteBuffer.setFlushListener(flushed::add);
+        when(coinDeskRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        coinDeskWriteBuffer.append(createPoll());
+        coinDeskWriteBuffer.append(createPoll());
+        verify(coinDeskRepository, never()).saveAll(anyList());
+        assertEquals(6, coinDeskWriteBuffer.getPendingSize());
+        assertTrue(flushed.isEmpty());
+
+        coinDeskWriteBuffer.append(createPoll());
+
+        verify(coinDeskRepository, times(1)).saveAll(argThat(rows -> ((List<CoinDesk>) rows).size() == 9));
+        assertEquals(0, coinDeskWriteBuffer.getPendingSize());
+        assertEquals(1, flushed.size());
+        assertEquals(9, flushed.get(0).size());
+    }
+
+    /**
+     * 測試沒有新的輪詢資料時，背景檢查在等待時間到期後寫入；寫入失敗時保留資料待下次重試。
+     */
+    @Test
+    void testScheduledFlushWithoutNewPolls() {
+        when(coinDeskRepository.saveAll(anyList()))
+            .thenThrow(new IllegalStateException("database down"))
+            .thenAnswer(invocation -> invocation.getArgument(0));
+        coinDeskWriteBuffer.append(createPoll());
+
+        coinDeskWriteBuffer.flushIfDue();
+        verify(coinDeskRepository, never()).saveAll(anyList());
+
+        ReflectionTestUtils.setField(coinDeskWriteBuffer, "oldestPendingAt", 0L);
+        coinDeskWriteBuffer.flushIfDue();
+        assertEquals(3, coinDeskWriteBuffer.getPendingSize());
+
+        coinDeskWriteBuffer.flushIfDue();
+        verify(coinDeskRepository, times(2)).saveAll(anyList());
+        assertEquals(0, coinDeskWriteBuffer.getPendingSize());
+    }
+
+    /**
+     * 測試最舊資料超過等待時間上限時立即寫入。
+     */
+    @Test
+    void testFlushAfterMaxDelay() {
+        ReflectionTestUtils.setField(coinDeskWriteBuffer, "maxDelayMs", 0L);
+
+        coinDeskWriteBuffer.append(createPoll());
+
+        verify(coinDeskRepository, times(1)).saveAll(anyList());
+    }
+
+    /**
+     * 測試沒有緩衝資料時 flush 不會存取資料庫。
+     */
+    @Test
+    void testFlushWhenEmpty() {
+        coinDeskWriteBuffer.flush();
+
+        verifyNoInteractions(coinDeskRepository);
+    }
+
+    private List<CoinDesk> createPoll() {
+        return Arrays.asList(
+            createCoinDesk(CurrencyType.USD),
+            createCoinDesk(CurrencyType.GBP),
+            createCoinDesk(CurrencyType.EUR)
+        );
+    }
+
+    private CoinDesk createCoinDesk(CurrencyType currencyType) {
+        CoinDesk coinDesk = new CoinDesk();
+        coinDesk.setCurrencyType(currencyType);
+        return coinDesk;
+    }
+}
@@ -0,0 +1,134 @@
+package com.vinskao.service;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.dto.ConversionResult;
+import com.vinskao.enums.CurrencyType;
+import com.vinskao.exception.CoinDeskBadRequestException;
+import com.vinskao.exception.CoinDeskRateUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * CurrencyConversionService 的單元測試類別。
+ * 測試交叉匯率矩陣的建立與 BTC、法幣之間的換算。
+ */
+public class CurrencyConversionServiceTest {
+
+    private CoinDeskCache coinDeskCache;
+    private RateHistoryIndex rateHistoryIndex;
+    private CurrencyConversionService currencyConversionService;
+
+    @BeforeEach
+    void setUp() {
+        coinDeskCache = new CoinDeskCache();
+        currencyConversionService = new CurrencyConversionService();
+        ReflectionTestUtils.setField(currencyConversionService, "coinDeskCache", coinDeskCache);
+        rateHistoryIndex = mock(RateHistoryIndex.class);
+        ReflectionTestUtils.setField(currencyConversionService, "rateHistoryIndex", rateHistoryIndex);
+    }
+
+    /**
+     * 測試 BTC 與法幣、法幣與法幣之間的換算。
+     */
+    @Test
+    void testConvert() {
+        coinDeskCache.put(createCoinDesk(1L, CurrencyType.USD, 60000.0, "2024-09-02T07:07:20+00:00"));
+        coinDeskCache.put(createCoinDesk(2L, CurrencyType.EUR, 50000.0, "2024-09-02T07:08:20+00:00"));
+        currencyConversionService.rebuild();
+
+        ConversionResult btcToUsd = currencyConversionService.convert(2.0, "BTC", "USD");
+        assertEquals(120000.0, btcToUsd.getResult(), 1e-9);
+        assertEquals("2024-09-02T07:08:20+00:00", btcToUsd.getAsOf());
+
+        assertEquals(0.5, currencyConversionService.convert(30000.0, "USD", "BTC").getResult(), 1e-12);
+        assertEquals(50.0, currencyConversionService.convert(60.0, "USD", "EUR").getResult(), 1e-9);
+        assertEquals(60.0, currencyConversionService.convert(50.0, "EUR", "USD").getResult(), 1e-9);
+        assertEquals(7.0, currencyConversionService.convert(7.0, "EUR", "EUR").getResult(), 0.0);
+
+        int usd = CrossRateMatrix.indexOf("USD");
+        int btc = CrossRateMatrix.indexOf("BTC");
+        assertEquals(60000.0, currencyConversionService.convert(1.0, btc, usd), 1e-9);
+    }
+
+    /**
+     * 測試只更新單一幣別時，結果與整體重建相同，移除報價後該幣別的組合不再可用。
+     */
+    @Test
+    void testRefreshSingleCurrency() {
+        coinDeskCache.put(createCoinDesk(1L, CurrencyType.USD, 60000.0, "2024-09-02T07:07:20+00:00"));
+        coinDeskCache.put(createCoinDesk(2L, CurrencyType.EUR, 50000.0, "2024-09-02T07:08:20+00:00"));
+        currencyConversionService.rebuild();
+
+        coinDeskCache.put(createCoinDesk(3L, CurrencyType.GBP, 45000.0, "2024-09-02T07:09:20+00:00"));
+        currencyConversionService.refresh(CurrencyType.GBP);
+        CrossRateMatrix refreshed = currencyConversionService.getMatrix();
+        currencyConversionService.rebuild();
+        CrossRateMatrix rebuilt = currencyConversionService.getMatrix();
+        for (int from = 0; from < CrossRateMatrix.SIZE; from++) {
+            for (int to = 0; to < CrossRateMatrix.SIZE; to++) {
+                assertEquals(rebuilt.rate(from, to), refreshed.rate(from, to), 1e-9);
+            }
+        }
+        assertEquals("2024-09-02T07:09:20+00:00", refreshed.getAsOf());
+
+        coinDeskCache.evict(3L);
+        currencyConversionService.refresh(CurrencyType.GBP);
+        assertThrows(CoinDeskRateUnavailableException.class, () -> currencyConversionService.convert(1.0, "USD", "GBP"));
+        assertEquals(50.0, currencyConversionService.convert(60.0, "USD", "EUR").getResult(), 1e-9);
+    }
+
+    /**
+     * 測試尚無報價的幣別與未知幣別代碼。
+     */
+    @Test
+    void testConvertWithoutQuote() {
+        assertThrows(CoinDeskRateUnavailableException.class, () -> currencyConversionService.convert(1.0, "BTC", "USD"));
+
+        coinDeskCache.put(createCoinDesk(1L, CurrencyType.USD, 60000.0, "2024-09-02T07:07:20+00:00"));
+        currencyConversionService.rebuild();
+
+        assertThrows(CoinDeskRateUnavailableException.class, () -> currencyConversionService.convert(1.0, "USD", "GBP"));
+        assertThrows(CoinDeskBadRequestException.class, () -> currencyConversionService.convert(1.0, "USD", "XYZ"));
+        assertTrue(Double.isNaN(currencyConversionService.convert(1.0,
+                CrossRateMatrix.indexOf("GBP"), CrossRateMatrix.indexOf("BTC"))));
+    }
+
+    /**
+     * 測試以指定時間點之前的報價換算，asOf 為較晚的報價時間。
+     */
+    @Test
+    void testConvertAsOf() {
+        LocalDateTime at = LocalDateTime.of(2024, 9, 2, 12, 0);
+        long usdTime = LocalDateTime.of(2024, 9, 2, 11, 59).toInstant(ZoneOffset.UTC).toEpochMilli();
+        long eurTime = LocalDateTime.of(2024, 9, 2, 11, 58).toInstant(ZoneOffset.UTC).toEpochMilli();
+        when(rateHistoryIndex.find(CurrencyType.USD, at)).thenReturn(new RateHistoryIndex.RateTick(usdTime, 600000000L));
+        when(rateHistoryIndex.find(CurrencyType.EUR, at)).thenReturn(new RateHistoryIndex.RateTick(eurTime, 500000000L));
+
+        ConversionResult usdToBtc = currencyConversionService.convertAsOf(30000.0, "USD", "BTC", at);
+        assertEquals(0.5, usdToBtc.getResult(), 1e-12);
+        assertEquals("2024-09-02T11:59", usdToBtc.getAsOf());
+
+        ConversionResult usdToEur = currencyConversionService.convertAsOf(60.0, "USD", "EUR", at);
+        assertEquals(50.0, usdToEur.getResult(), 1e-9);
+        assertEquals("2024-09-02T11:59", usdToEur.getAsOf());
+
+        assertThrows(CoinDeskRateUnavailableException.class,
+                () -> currencyConversionService.convertAsOf(1.0, "BTC", "GBP", at));
+    }
+
+    private CoinDesk createCoinDesk(Long id, CurrencyType currencyType, double rate, String updatedIso) {
+        CoinDesk coinDesk = new CoinDesk();
+        coinDesk.setId(id);
+        coinDesk.setCurrencyType(currencyType);
+        coinDesk.setRateFloat(rate);
+        coinDesk.setUpdatedISO(updatedIso);
+        return coinDesk;
+    }
+}
@@ -0,0 +1,90 @@
+package com.vinskao.service;
+
+import com.vinskao.enums.ExecutionMode;
+import com.vinskao.exception.CoinDeskBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DatabaseExecutor 的單元測試類別。
+ * 測試同步模式在呼叫端執行緒上執行，ASYNC 模式移至資料庫執行緒池並在佇列滿時拒絕。
+ */
+public class DatabaseExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DatabaseExecutor databaseExecutor;
+
+    @AfterEach
+    void tearDown() {
+        databaseExecutor.stop();
+    }
+
+    /**
+     * 測試 PLATFORM 模式直接執行並回傳已完成的結果，例外不經過 CompletableFuture。
+     */
+    @Test
+    void testPlatformModeRunsInline() {
+        databaseExecutor = createExecutor(ExecutionMode.PLATFORM, 1, 1);
+
+        CompletableFuture<String> result = databaseExecutor.supply(() -> Thread.currentThread().getName());
+
+        assertTrue(result.isDone());
+        assertEquals(Thread.currentThread().getName(), result.join());
+        assertThrows(IllegalStateException.class, () -> databaseExecutor.supply(() -> {
+            throw new IllegalStateException("boom");
+        }));
+    }
+
+    /**
+     * 測試 ASYNC 模式在 coindesk-db 執行緒上執行，執行緒與佇列皆滿時回應忙碌並計數。
+     */
+    @Test
+    void testAsyncModeOffloadsAndRejectsWhenSaturated() throws Exception {
+        databaseExecutor = createExecutor(ExecutionMode.ASYNC, 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> running = databaseExecutor.supply(() -> {
+            started.countDown();
+            await(release);
+            return Thread.currentThread().getName();
+        });
+        started.await();
+        CompletableFuture<String> queued = databaseExecutor.supply(() -> {
+            throw new IllegalStateException("boom");
+        });
+        assertThrows(CoinDeskBusyException.class, () -> databaseExecutor.supply(() -> "rejected"));
+        release.countDown();
+
+        assertEquals("coindesk-db-1", running.join());
+        CompletionException failure = assertThrows(CompletionException.class, queued::join);
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertEquals(1.0, meterRegistry.get("coindesk.db.rejected").counter().count(), 0.0);
+    }
+
+    private DatabaseExecutor createExecutor(ExecutionMode executionMode, int threads, int queueCapacity) {
+        DatabaseExecutor executor = new DatabaseExecutor();
+        ReflectionTestUtils.setField(executor, "executionMode", executionMode);
+        ReflectionTestUtils.setField(executor, "threads", threads);
+        ReflectionTestUtils.setField(executor, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(executor, "meterRegistry", meterRegistry);
+        executor.init();
+        return executor;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
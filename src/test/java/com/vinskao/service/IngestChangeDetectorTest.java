@@ -0,0 +1,60 @@
+package com.vinskao.service;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.enums.CurrencyType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IngestChangeDetector 的單元測試類別。
+ * 測試各幣別最後寫入資料的比對規則。
+ */
+public class IngestChangeDetectorTest {
+
+    private IngestChangeDetector ingestChangeDetector;
+
+    @BeforeEach
+    void setUp() {
+        ingestChangeDetector = new IngestChangeDetector();
+    }
+
+    /**
+     * 測試首次出現的幣別一定視為變動，相同資料寫入後則不再視為變動。
+     */
+    @Test
+    void testSameQuoteIsUnchanged() {
+        CoinDesk usd = createCoinDesk(CurrencyType.USD, "2024-09-02T07:07:20+00:00", 577562984L);
+        assertTrue(ingestChangeDetector.isChanged(usd));
+        ingestChangeDetector.record(usd);
+
+        assertFalse(ingestChangeDetector.isChanged(createCoinDesk(CurrencyType.USD, "2024-09-02T07:07:20+00:00", 577562984L)));
+        assertTrue(ingestChangeDetector.isChanged(createCoinDesk(CurrencyType.GBP, "2024-09-02T07:07:20+00:00", 577562984L)));
+        assertEquals(1L, ingestChangeDetector.getStats().get("skippedRows"));
+    }
+
+    /**
+     * 測試 updatedISO 更新但匯率未變時，預設仍寫入，啟用合併後則略過。
+     */
+    @Test
+    void testCollapseUnchangedRates() {
+        ingestChangeDetector.record(createCoinDesk(CurrencyType.EUR, "2024-09-02T07:07:20+00:00", 522432865L));
+        CoinDesk next = createCoinDesk(CurrencyType.EUR, "2024-09-02T07:08:20+00:00", 522432865L);
+
+        assertTrue(ingestChangeDetector.isChanged(next));
+
+        ReflectionTestUtils.setField(ingestChangeDetector, "collapseUnchangedRates", true);
+        assertFalse(ingestChangeDetector.isChanged(next));
+        assertTrue(ingestChangeDetector.isChanged(createCoinDesk(CurrencyType.EUR, "2024-09-02T07:08:20+00:00", 522440000L)));
+    }
+
+    private CoinDesk createCoinDesk(CurrencyType currencyType, String updatedIso, long rateScaled) {
+        CoinDesk coinDesk = new CoinDesk();
+        coinDesk.setCurrencyType(currencyType);
+        coinDesk.setUpdatedISO(updatedIso);
+        coinDesk.setRateScaled(rateScaled);
+        return coinDesk;
+    }
+}
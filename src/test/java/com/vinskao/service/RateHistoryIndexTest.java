@@ -0,0 +1,184 @@
+package com.vinskao.service;
+
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.enums.CurrencyType;
+import com.vinskao.repository.CoinDeskRepository;
+import com.vinskao.repository.CoinDeskRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * RateHistoryIndex 的單元測試類別。
+ * 測試由彙總與原始資料載入索引、二分搜尋、附加新資料、過期資料的移除與索引範圍外的資料庫查詢。
+ */
+@ExtendWith(MockitoExtension.class)
+public class RateHistoryIndexTest {
+
+    @Mock
+    private CoinDeskRepository coinDeskRepository;
+
+    @Mock
+    private CoinDeskRollupRepository coinDeskRollupRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private RateHistoryIndex rateHistoryIndex;
+
+    private LocalDateTime base;
+    private long baseSecond;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(rateHistoryIndex, "indexDays", 1);
+        base = LocalDateTime.now().minusHours(2).truncatedTo(ChronoUnit.MINUTES);
+        baseSecond = base.toEpochSecond(ZoneOffset.UTC);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(coinDeskRepository.findOldestCreatedAt(CurrencyType.USD)).thenReturn(base);
+        when(coinDeskRollupRepository.streamCloses(eq("USD"), eq("MINUTE"), anyLong(), eq(baseSecond - 60)))
+                .thenAnswer(invocation -> Stream.of(
+                        new Object[]{baseSecond - 180, 1000000L},
+                        new Object[]{baseSecond - 120, 1100000L}));
+        when(coinDeskRepository.streamTicks(eq(CurrencyType.USD), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> Stream.of(
+                        new Object[]{base, 2000000L},
+                        new Object[]{base.plusSeconds(30), 2100000L}));
+    }
+
+    /**
+     * 測試分鐘彙總的收盤價記於該分鐘結束時，原始資料接續其後，查詢取時間點（含）之前的最後一筆。
+     */
+    @Test
+    void testFindFromIndex() {
+        assertEquals(1000000L, rateHistoryIndex.find(CurrencyType.USD, base.minusSeconds(120)).getRateScaled());
+        RateHistoryIndex.RateTick rolledUp = rateHistoryIndex.find(CurrencyType.USD, base.minusSeconds(1));
+        assertEquals(1100000L, rolledUp.getRateScaled());
+        assertEquals(base.minusSeconds(60), rolledUp.getTime());
+        assertEquals(2000000L, rateHistoryIndex.find(CurrencyType.USD, base.plusSeconds(29)).getRateScaled());
+        assertEquals(2100000L, rateHistoryIndex.find(CurrencyType.USD, base.plusSeconds(30)).getRateScaled());
+        assertEquals(4, rateHistoryIndex.size());
+        assertEquals(4, rateHistoryIndex.getIndexHits());
+        assertEquals(0, rateHistoryIndex.getDatabaseLookups());
+        verify(coinDeskRepository, times(1)).streamTicks(eq(CurrencyType.USD), any(LocalDateTime.class));
+    }
+
+    /**
+     * 測試新寫入的資料附加至索引，重複的資料略過，時間較早的資料插入正確位置。
+     */
+    @Test
+    void testAppend() {
+        rateHistoryIndex.load(CurrencyType.USD);
+
+        rateHistoryIndex.append(createCoinDesk(base.plusSeconds(60), 2200000L));
+        rateHistoryIndex.append(createCoinDesk(base.plusSeconds(60), 2200000L));
+        rateHistoryIndex.append(createCoinDesk(base.plusSeconds(45), 2150000L));
+
+        assertEquals(6, rateHistoryIndex.size());
+        assertEquals(2100000L, rateHistoryIndex.find(CurrencyType.USD, base.plusSeconds(44)).getRateScaled());
+        assertEquals(2150000L, rateHistoryIndex.find(CurrencyType.USD, base.plusSeconds(59)).getRateScaled());
+        assertEquals(2200000L, rateHistoryIndex.find(CurrencyType.USD, base.plusDays(1)).getRateScaled());
+    }
+
+    /**
+     * 測試早於索引起點的時間點改查詢資料庫，原始資料已刪除時使用分鐘彙總，前一日內沒有資料時查詢整個範圍。
+     */
+    @Test
+    void testFindBeforeIndexQueriesDatabase() {
+        LocalDateTime at = base.minusMinutes(10);
+        when(coinDeskRepository.findTicksAtOrBefore(eq(CurrencyType.USD), any(LocalDateTime.class), eq(at), any()))
+                .thenReturn(Collections.emptyList());
+        when(coinDeskRollupRepository.findLastClose("USD", "MINUTE", baseSecond - 600 - 86400 - 60, baseSecond - 660))
+                .thenReturn(Collections.emptyList());
+        when(coinDeskRollupRepository.findLastClose("USD", "MINUTE", -60, baseSecond - 660))
+                .thenReturn(Collections.singletonList(new Object[]{baseSecond - 720, 900000L}));
+
+        RateHistoryIndex.RateTick tick = rateHistoryIndex.find(CurrencyType.USD, at);
+
+        assertEquals(900000L, tick.getRateScaled());
+        assertEquals(base.minusMinutes(11), tick.getTime());
+        assertEquals(1, rateHistoryIndex.getDatabaseLookups());
+    }
+
+    /**
+     * 測試清除後下次查詢重新載入。
+     */
+    @Test
+    void testInvalidateReloads() {
+        rateHistoryIndex.load(CurrencyType.USD);
+        rateHistoryIndex.invalidateAll();
+        assertEquals(0, rateHistoryIndex.size());
+
+        rateHistoryIndex.append(createCoinDesk(base.plusSeconds(60), 2200000L));
+        assertEquals(0, rateHistoryIndex.size());
+
+        assertEquals(2100000L, rateHistoryIndex.find(CurrencyType.USD, base.plusSeconds(60)).getRateScaled());
+        verify(coinDeskRepository, times(2)).streamTicks(eq(CurrencyType.USD), any(LocalDateTime.class));
+    }
+
+    /**
+     * 測試附加的資料使索引跨過 coindesk.asof.index-days 後，過期的報價累積足夠數量時自前端移除，
+     * 索引起點跟著後移，更早的時間點改查詢資料庫。
+     */
+    @Test
+    void testAppendTrimsExpiredRates() {
+        rateHistoryIndex.load(CurrencyType.USD);
+        for (int i = 0; i < 1100; i++) {
+            rateHistoryIndex.append(createCoinDesk(base.plusSeconds(60 + i), 2200000L + i));
+        }
+        assertEquals(1104, rateHistoryIndex.size());
+
+        LocalDateTime next = base.plusSeconds(1200).plusDays(1);
+        rateHistoryIndex.append(createCoinDesk(next, 3000000L));
+        assertEquals(1, rateHistoryIndex.size());
+
+        LocalDateTime at = base.plusSeconds(30);
+        when(coinDeskRepository.findTicksAtOrBefore(eq(CurrencyType.USD), any(LocalDateTime.class), eq(at), any()))
+                .thenReturn(Collections.singletonList(new Object[]{at, 2100000L}));
+        assertEquals(2100000L, rateHistoryIndex.find(CurrencyType.USD, at).getRateScaled());
+        assertEquals(1, rateHistoryIndex.getDatabaseLookups());
+        assertEquals(3000000L, rateHistoryIndex.find(CurrencyType.USD, next).getRateScaled());
+    }
+
+    /**
+     * 測試只清除指定幣別的索引。
+     */
+    @Test
+    void testInvalidateSingleCurrency() {
+        rateHistoryIndex.load(CurrencyType.USD);
+
+        rateHistoryIndex.invalidate(CurrencyType.EUR);
+        assertEquals(4, rateHistoryIndex.size());
+
+        rateHistoryIndex.invalidate(CurrencyType.USD);
+        assertEquals(0, rateHistoryIndex.size());
+    }
+
+    private CoinDesk createCoinDesk(LocalDateTime createdAt, long rateScaled) {
+        CoinDesk coinDesk = new CoinDesk();
+        coinDesk.setCurrencyType(CurrencyType.USD);
+        coinDesk.setCreatedAt(createdAt);
+        coinDesk.setRateScaled(rateScaled);
+        return coinDesk;
+    }
+}
@@ -0,0 +1,159 @@
+package com.vinskao.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vinskao.domain.CoinDesk;
+import com.vinskao.enums.CurrencyType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RateUpdateBroadcaster 的單元測試類別。
+ * 測試訂閱者的幣別篩選、佇列滿時丟棄最舊資料、訂閱快照的排序，以及寫出卡住的訂閱者不影響其他訂閱者並在逾時後被移除。
+ */
+public class RateUpdateBroadcasterTest {
+
+    private RateUpdateBroadcaster rateUpdateBroadcaster;
+
+    @BeforeEach
+    void setUp() {
+        rateUpdateBroadcaster = new RateUpdateBroadcaster();
+        ReflectionTestUtils.setField(rateUpdateBroadcaster, "coinDeskCache", new CoinDeskCache());
+        ReflectionTestUtils.setField(rateUpdateBroadcaster, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(rateUpdateBroadcaster, "queueCapacity", 2);
+        ReflectionTestUtils.setField(rateUpdateBroadcaster, "timeoutMs", 1000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        rateUpdateBroadcaster.stop();
+    }
+
+    /**
+     * 測試佇列滿時丟棄最舊的一筆，且未訂閱的幣別不會進入佇列。
+     */
+    @Test
+    void testSubscriberDropsOldest() {
+        boolean[] mask = new boolean[CurrencyType.size()];
+        mask[CurrencyType.USD.ordinal()] = true;
+        RateUpdateBroadcaster.Subscriber subscriber = new RateUpdateBroadcaster.Subscriber(new SseEmitter(), mask, 2);
+
+        assertTrue(subscriber.offer(CurrencyType.GBP.ordinal(), "gbp"));
+        assertTrue(subscriber.offer(CurrencyType.USD.ordinal(), "1"));
+        assertTrue(subscriber.offer(CurrencyType.USD.ordinal(), "2"));
+        assertFalse(subscriber.offer(CurrencyType.USD.ordinal(), "3"));
+
+        assertEquals("2", nextData(subscriber));
+        assertEquals("3", nextData(subscriber));
+        assertNull(subscriber.next());
+    }
+
+    /**
+     * 測試訂閱時的快照排在已收到的推播之前，佇列已滿時不再放入快照。
+     */
+    @Test
+    void testSnapshotQueuedBeforePublished() {
+        boolean[] mask = new boolean[CurrencyType.size()];
+        mask[CurrencyType.USD.ordinal()] = true;
+        RateUpdateBroadcaster.Subscriber subscriber = new RateUpdateBroadcaster.Subscriber(new SseEmitter(), mask, 2);
+
+        subscriber.offer(CurrencyType.USD.ordinal(), "published");
+        subscriber.offerFirst(CurrencyType.GBP.ordinal(), "gbp");
+        subscriber.offerFirst(CurrencyType.USD.ordinal(), "snapshot");
+        subscriber.offerFirst(CurrencyType.USD.ordinal(), "dropped");
+
+        assertEquals("snapshot", nextData(subscriber));
+        assertEquals("published", nextData(subscriber));
+        assertNull(subscriber.next());
+    }
+
+    /**
+     * 測試訂閱與推播：沒有訂閱者時不做任何事，訂閱者斷線後自動移除。
+     */
+    @Test
+    void testSubscribeAndPublish() {
+        rateUpdateBroadcaster.publish(createCoinDesk());
+        assertEquals(0, rateUpdateBroadcaster.getSubscriberCount());
+
+        SseEmitter emitter = rateUpdateBroadcaster.subscribe(Collections.singletonList(CurrencyType.USD));
+        assertEquals(1, rateUpdateBroadcaster.getSubscriberCount());
+
+        rateUpdateBroadcaster.publish(createCoinDesk());
+        assertEquals(0L, rateUpdateBroadcaster.getDropped());
+
+        emitter.complete();
+        rateUpdateBroadcaster.stop();
+        assertEquals(0, rateUpdateBroadcaster.getSubscriberCount());
+    }
+
+    /**
+     * 測試某個訂閱者的寫出卡住時，其他訂閱者照常收到推播，卡住超過 send-timeout-ms 的訂閱者被移除。
+     */
+    @Test
+    void testStalledSubscriberIsEvicted() throws InterruptedException {
+        ReflectionTestUtils.setField(rateUpdateBroadcaster, "sendTimeoutMs", 50L);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(2);
+        boolean[] all = new boolean[CurrencyType.size()];
+        Arrays.fill(all, true);
+        rateUpdateBroadcaster.register(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, all);
+        rateUpdateBroadcaster.register(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                delivered.countDown();
+            }
+        }, all);
+
+        rateUpdateBroadcaster.publish(createCoinDesk());
+
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        rateUpdateBroadcaster.evictStalled();
+        release.countDown();
+
+        assertEquals(1, rateUpdateBroadcaster.getSubscriberCount());
+        assertEquals(1L, rateUpdateBroadcaster.getEvicted());
+        rateUpdateBroadcaster.publish(createCoinDesk());
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+    }
+
+    private static String nextData(RateUpdateBroadcaster.Subscriber subscriber) {
+        SseEmitter.SseEventBuilder event = subscriber.next();
+        assertNotNull(event);
+        return event.build().stream()
+                .filter(data -> MediaType.APPLICATION_JSON.equals(data.getMediaType()))
+                .map(data -> (String) data.getData())
+                .findFirst()
+                .orElse(null);
+    }
+
+    private CoinDesk createCoinDesk() {
+        CoinDesk coinDesk = new CoinDesk();
+        coinDesk.setId(1L);
+        coinDesk.setCurrencyType(CurrencyType.USD);
+        coinDesk.setRateFloat(60000.0);
+        coinDesk.setUpdatedISO("2024-09-02T07:07:20+00:00");
+        return coinDesk;
+    }
+}
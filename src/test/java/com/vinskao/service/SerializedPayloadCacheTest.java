@@ -0,0 +1,138 @@
+package com.vinskao.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vinskao.dto.SerializedPayload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SerializedPayloadCache 的單元測試類別。
+ * 測試每次寫入後每個檢視只重建一次、內容未變時沿用既有 ETag、gzip 門檻與 Last-Modified 的前進。
+ */
+public class SerializedPayloadCacheTest {
+
+    private static final long UPDATED = SerializedPayloadCache.epochMillis("2024-09-02T07:07:20+00:00");
+
+    private SerializedPayloadCache serializedPayloadCache;
+
+    @BeforeEach
+    void setUp() {
+        serializedPayloadCache = new SerializedPayloadCache();
+        ReflectionTestUtils.setField(serializedPayloadCache, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(serializedPayloadCache, "gzipMinBytes", 64);
+    }
+
+    /**
+     * 測試失效前的讀取共用同一份內容，失效後重建一次；內容未變時沿用同一份內容與 ETag。
+     */
+    @Test
+    void testBuildsOncePerInvalidation() {
+        AtomicInteger loads = new AtomicInteger();
+        AtomicReference<String> rate = new AtomicReference<>("57756.2984");
+
+        SerializedPayload first = serializedPayloadCache.get("latest/USD", () -> {
+            loads.incrementAndGet();
+            return Collections.singletonMap("rateFloat", rate.get());
+        }, value -> UPDATED);
+        SerializedPayload second = serializedPayloadCache.get("latest/USD", () -> {
+            loads.incrementAndGet();
+            return Collections.singletonMap("rateFloat", rate.get());
+        }, value -> UPDATED);
+        serializedPayloadCache.invalidateAll();
+        SerializedPayload unchanged = serializedPayloadCache.get("latest/USD", () -> {
+            loads.incrementAndGet();
+            return Collections.singletonMap("rateFloat", rate.get());
+        }, value -> UPDATED);
+
+        assertSame(first, second);
+        assertSame(first, unchanged);
+        assertEquals(2, loads.get());
+        assertEquals(1, serializedPayloadCache.getHits());
+        assertEquals(2, serializedPayloadCache.getBuilds());
+        assertEquals("{\"rateFloat\":\"57756.2984\"}", new String(first.getBody()));
+        assertTrue(first.getETag().startsWith("\"") && first.getETag().endsWith("\""));
+        assertEquals(UPDATED, first.getLastModified());
+        assertNull(first.getGzipBody());
+    }
+
+    /**
+     * 測試內容改變但 updatedISO 未前進時，ETag 改變且 Last-Modified 至少前進一秒。
+     */
+    @Test
+    void testLastModifiedAdvancesWhenContentChanges() {
+        SerializedPayload before = serializedPayloadCache.get("latest/USD",
+                () -> Collections.singletonMap("rateFloat", 57756.2984), value -> UPDATED);
+        serializedPayloadCache.invalidateAll();
+        SerializedPayload after = serializedPayloadCache.get("latest/USD",
+                () -> Collections.singletonMap("rateFloat", 57000.0), value -> UPDATED);
+
+        assertNotEquals(before.getETag(), after.getETag());
+        assertTrue(after.getLastModified() >= UPDATED + 1000L);
+        assertEquals(0, after.getLastModified() % 1000L);
+    }
+
+    /**
+     * 測試建立時間與內容取自同一次查詢並隨內容保存，命中時不再呼叫 loader。
+     */
+    @Test
+    void testCarriesCreatedAt() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 9, 2, 7, 7, 20);
+        AtomicInteger loads = new AtomicInteger();
+
+        SerializedPayload first = serializedPayloadCache.get("latest/USD", () -> {
+            loads.incrementAndGet();
+            return Collections.singletonMap("createdAt", createdAt.toString());
+        }, value -> UPDATED, value -> LocalDateTime.parse(value.get("createdAt")));
+        SerializedPayload second = serializedPayloadCache.get("latest/USD", () -> {
+            loads.incrementAndGet();
+            return Collections.singletonMap("createdAt", createdAt.toString());
+        }, value -> UPDATED, value -> LocalDateTime.parse(value.get("createdAt")));
+
+        assertEquals(createdAt, first.getCreatedAt());
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertNull(serializedPayloadCache.get("all", () -> 1, value -> -1L).getCreatedAt());
+    }
+
+    /**
+     * 測試達到門檻的內容另存可還原的 gzip 版本，超過上限的內容照常回傳但不保存。
+     */
+    @Test
+    void testGzipAndMaxBytes() throws IOException {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            values.add(i);
+        }
+        SerializedPayload payload = serializedPayloadCache.get("all", () -> values, value -> -1L);
+
+        assertNotNull(payload.getGzipBody());
+        assertTrue(payload.getGzipBody().length < payload.getBody().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(payload.getGzipBody()))) {
+            assertArrayEquals(payload.getBody(), in.readAllBytes());
+        }
+        assertEquals(payload.getETag().replace("\"", "") + "-gzip",
+                payload.getGzipETag().replace("\"", ""));
+        assertEquals(payload.getBody().length + payload.getGzipBody().length, serializedPayloadCache.getBytes());
+
+        ReflectionTestUtils.setField(serializedPayloadCache, "maxBytes", 16L);
+        serializedPayloadCache.invalidateAll();
+        serializedPayloadCache.get("all", () -> values, value -> -1L);
+        serializedPayloadCache.get("all", () -> values, value -> -1L);
+
+        assertEquals(3, serializedPayloadCache.getBuilds());
+        assertEquals(0, serializedPayloadCache.getBytes());
+    }
+}
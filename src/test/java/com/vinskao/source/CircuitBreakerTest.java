@@ -0,0 +1,62 @@
+package com.vinskao.source;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CircuitBreaker 的單元測試類別。
+ * 以可控制的時鐘測試開啟、半開試探與關閉的狀態轉換。
+ */
+public class CircuitBreakerTest {
+
+    /**
+     * 測試連續失敗達門檻後開啟，期滿後只放行一次試探，試探失敗重新開啟、成功則關閉。
+     */
+    @Test
+    void testOpensAndRecovers() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(2, 1000L, now::get);
+
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertTrue(breaker.allowRequest());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertEquals(3, breaker.getRejected());
+    }
+
+    /**
+     * 測試半開的試探沒有回報結果時，下一個期滿後再放行一次。
+     */
+    @Test
+    void testHalfOpenTrialWithoutResult() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000L, now::get);
+        breaker.recordFailure();
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertTrue(breaker.allowRequest());
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertFalse(breaker.allowRequest());
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(breaker.allowRequest());
+    }
+}
@@ -0,0 +1,231 @@
+package com.vinskao.source;
+
+import com.vinskao.dto.CoinDeskResponse;
+import com.vinskao.enums.RateMergeStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RateSourceAggregator 的單元測試類別。
+ * 測試多來源同時擷取的期限、失敗處理、斷路器與合併方式。
+ */
+public class RateSourceAggregatorTest {
+
+    private RateSourceAggregator rateSourceAggregator;
+
+    @AfterEach
+    void tearDown() {
+        if (rateSourceAggregator != null) {
+            rateSourceAggregator.stop();
+        }
+    }
+
+    /**
+     * 測試中位數合併：各幣別取有報價來源的中位數，缺少的幣別由其他來源補上。
+     */
+    @Test
+    void testMedianMerge() {
+        CoinDeskResponse a = createResponse(60000.0, 50000.0);
+        CoinDeskResponse b = createResponse(60010.0, null);
+        CoinDeskResponse c = createResponse(61000.0, 50100.0);
+        rateSourceAggregator = createAggregator(RateMergeStrategy.MEDIAN, 1000L,
+                source("a", () -> a), source("b", () -> b), source("c", () -> c));
+
+        CoinDeskResponse merged = rateSourceAggregator.fetch().getResponse();
+
+        assertEquals(60010.0, merged.getBpi().get("USD").getRate_float(), 0.0);
+        assertEquals("60,010.00", merged.getBpi().get("USD").getRate());
+        assertEquals(50050.0, merged.getBpi().get("GBP").getRate_float(), 0.0);
+        assertNull(merged.getBpi().get("EUR"));
+    }
+
+    /**
+     * 測試逾時與失敗的來源不影響其他來源，總耗時受期限限制。
+     */
+    @Test
+    void testFirstWinsSkipsSlowAndFailingSources() {
+        CoinDeskResponse fast = createResponse(60000.0, 50000.0);
+        rateSourceAggregator = createAggregator(RateMergeStrategy.FIRST_WINS, 200L,
+                source("slow", () -> {
+                    try {
+                        Thread.sleep(5000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return createResponse(1.0, 1.0);
+                }),
+                source("broken", () -> {
+                    throw new IllegalStateException("boom");
+                }),
+                source("fast", () -> fast));
+
+        long start = System.nanoTime();
+        CoinDeskResponse merged = rateSourceAggregator.fetch().getResponse();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertSame(fast.getBpi().get("USD"), merged.getBpi().get("USD"));
+        assertTrue(elapsedMs < 2000, "fetch took " + elapsedMs + " ms");
+    }
+
+    /**
+     * 測試所有來源皆未變更時回傳 null，全部失敗時拋出例外。
+     */
+    @Test
+    void testNotModifiedAndAllFailed() {
+        rateSourceAggregator = createAggregator(RateMergeStrategy.FIRST_WINS, 1000L, source("none", () -> null));
+        assertNull(rateSourceAggregator.fetch());
+        rateSourceAggregator.stop();
+
+        rateSourceAggregator = createAggregator(RateMergeStrategy.FIRST_WINS, 1000L, source("broken", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        RuntimeException e = assertThrows(RuntimeException.class, () -> rateSourceAggregator.fetch());
+        assertEquals("Failed to fetch data from API", e.getMessage());
+    }
+
+    /**
+     * 測試連續失敗的來源在斷路器開啟後不再被呼叫，其他來源照常擷取。
+     */
+    @Test
+    void testOpenCircuitBreakerSkipsSource() {
+        AtomicInteger brokenCalls = new AtomicInteger();
+        CoinDeskResponse healthy = createResponse(60000.0, 50000.0);
+        rateSourceAggregator = createAggregator(RateMergeStrategy.FIRST_WINS, 1000L,
+                source("broken", () -> {
+                    brokenCalls.incrementAndGet();
+                    throw new IllegalStateException("boom");
+                }),
+                source("healthy", () -> healthy));
+
+        for (int i = 0; i < 5; i++) {
+            assertSame(healthy.getBpi().get("USD"), rateSourceAggregator.fetch().getResponse().getBpi().get("USD"));
+        }
+
+        assertEquals(2, brokenCalls.get());
+        CircuitBreaker breaker = rateSourceAggregator.getCircuitBreakers().get("broken");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(3, breaker.getRejected());
+        assertEquals(CircuitBreaker.State.CLOSED, rateSourceAggregator.getCircuitBreakers().get("healthy").getState());
+    }
+
+    /**
+     * 測試合併結果確認寫入時，只確認參與合併的來源；逾時後才完成的擷取不被確認，
+     * 未變更的來源沿用上次確認的報價，而不是最後一次取得的報價。
+     */
+    @Test
+    void testCommitsOnlyMergedSources() throws InterruptedException {
+        CoinDeskResponse first = createResponse(60000.0, null);
+        CoinDeskResponse second = createResponse(61000.0, null);
+        AtomicInteger slowCalls = new AtomicInteger();
+        AtomicInteger primaryCalls = new AtomicInteger();
+        AtomicInteger slowCommits = new AtomicInteger();
+        AtomicInteger primaryCommits = new AtomicInteger();
+        CountDownLatch slowFinished = new CountDownLatch(1);
+        rateSourceAggregator = createAggregator(RateMergeStrategy.FIRST_WINS, 200L,
+                committing("slow", () -> {
+                    if (slowCalls.incrementAndGet() > 1) {
+                        return null;
+                    }
+                    // 模擬不理會中斷、逾時後才回應的 HTTP 呼叫
+                    long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(400);
+                    while (System.nanoTime() < until) {
+                        Thread.onSpinWait();
+                    }
+                    slowFinished.countDown();
+                    return new FetchedRates(createResponse(1.0, null), slowCommits::incrementAndGet);
+                }),
+                committing("primary", () -> {
+                    switch (primaryCalls.incrementAndGet()) {
+                        case 1:
+                            return new FetchedRates(first, primaryCommits::incrementAndGet);
+                        case 2:
+                            return new FetchedRates(second, primaryCommits::incrementAndGet);
+                        default:
+                            return null;
+                    }
+                }),
+                source("secondary", () -> createResponse(null, 50000.0)));
+
+        FetchedRates merged = rateSourceAggregator.fetch();
+        assertTrue(slowFinished.await(5, TimeUnit.SECONDS));
+        merged.commit();
+        assertSame(first.getBpi().get("USD"), merged.getResponse().getBpi().get("USD"));
+        assertEquals(1, primaryCommits.get());
+        assertEquals(0, slowCommits.get());
+
+        // 第二份報價未確認（例如寫入失敗），之後來源回應未變更時沿用已確認的第一份報價
+        assertSame(second.getBpi().get("USD"), rateSourceAggregator.fetch().getResponse().getBpi().get("USD"));
+        assertSame(first.getBpi().get("USD"), rateSourceAggregator.fetch().getResponse().getBpi().get("USD"));
+        assertEquals(1, primaryCommits.get());
+        assertEquals(0, slowCommits.get());
+    }
+
+    private RateSourceAggregator createAggregator(RateMergeStrategy strategy, long deadlineMs, RateSource... sources) {
+        RateSourceAggregator aggregator = new RateSourceAggregator();
+        ReflectionTestUtils.setField(aggregator, "rateSources", Arrays.asList(sources));
+        ReflectionTestUtils.setField(aggregator, "sourceNames",
+                Arrays.stream(sources).map(RateSource::getName).toArray(String[]::new));
+        ReflectionTestUtils.setField(aggregator, "deadlineMs", deadlineMs);
+        ReflectionTestUtils.setField(aggregator, "mergeStrategy", strategy);
+        ReflectionTestUtils.setField(aggregator, "breakerFailureThreshold", 2);
+        ReflectionTestUtils.setField(aggregator, "breakerOpenMs", 60000L);
+        ReflectionTestUtils.setField(aggregator, "meterRegistry", new SimpleMeterRegistry());
+        aggregator.init();
+        return aggregator;
+    }
+
+    private static RateSource source(String name, Supplier<CoinDeskResponse> fetch) {
+        return committing(name, () -> {
+            CoinDeskResponse response = fetch.get();
+            return response == null ? null : new FetchedRates(response);
+        });
+    }
+
+    private static RateSource committing(String name, Supplier<FetchedRates> fetch) {
+        return new RateSource() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public FetchedRates fetch() {
+                return fetch.get();
+            }
+        };
+    }
+
+    private static CoinDeskResponse createResponse(Double usd, Double gbp) {
+        CoinDeskResponse response = new CoinDeskResponse();
+        CoinDeskResponse.Time time = new CoinDeskResponse.Time();
+        time.setUpdatedISO("2024-09-02T07:07:20+00:00");
+        response.setTime(time);
+        response.setChartName("Bitcoin");
+        response.setBpi(new LinkedHashMap<>());
+        if (usd != null) {
+            response.getBpi().put("USD", createCurrency("USD", usd));
+        }
+        if (gbp != null) {
+            response.getBpi().put("GBP", createCurrency("GBP", gbp));
+        }
+        return response;
+    }
+
+    private static CoinDeskResponse.Currency createCurrency(String code, double rate) {
+        CoinDeskResponse.Currency currency = new CoinDeskResponse.Currency();
+        currency.setCode(code);
+        currency.setRate_float(rate);
+        return currency;
+    }
+}